@@ -0,0 +1,91 @@
+package com.journalSystem.clinical_service.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link KeycloakRoleConverter#convert} for a typical Keycloak access token, run on every
+ * authenticated request, alone and as part of the {@link JwtAuthenticationConverter} set up in
+ * {@code SecurityConfig}, which is what the bearer token filter pays per request after decoding.
+ * <p>
+ * Logging runs at INFO, Spring Boot's default level, into a no-op appender: the cost of building
+ * log events is measured, console I/O is not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeycloakRoleConverterBenchmark {
+
+    private KeycloakRoleConverter converter;
+    private JwtAuthenticationConverter authenticationConverter;
+    private Jwt jwt;
+
+    @Setup
+    public void setUp() {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger root = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        NOPAppender<ILoggingEvent> appender = new NOPAppender<>();
+        appender.setContext(loggerContext);
+        appender.start();
+        root.addAppender(appender);
+        root.setLevel(Level.INFO);
+
+        converter = new KeycloakRoleConverter();
+        authenticationConverter = new SecurityConfig().jwtAuthenticationConverter();
+        Instant issuedAt = Instant.parse("2025-01-01T08:00:00Z");
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .header("kid", "5cP3ZbXq")
+                .issuer("https://keycloak.example/realms/patientsystem")
+                .subject("0b6c3c1e-3f1a-4b53-9a8e-2f1d6c7e8a90")
+                .audience(List.of("account"))
+                .issuedAt(issuedAt)
+                .expiresAt(issuedAt.plusSeconds(300))
+                .claim("azp", "patientsystem-frontend")
+                .claim("preferred_username", "doctor.berg")
+                .claim("scope", "openid profile email")
+                .claim("realm_access", Map.of("roles", List.of(
+                        "doctor", "offline_access", "uma_authorization", "default-roles-patientsystem")))
+                .claim("resource_access", Map.of("account", Map.of("roles", List.of(
+                        "manage-account", "view-profile"))))
+                .build();
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> convert() {
+        return converter.convert(jwt);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken authenticate() {
+        return authenticationConverter.convert(jwt);
+    }
+}
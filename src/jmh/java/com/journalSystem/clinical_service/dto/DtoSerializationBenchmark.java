@@ -0,0 +1,90 @@
+package com.journalSystem.clinical_service.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.journalSystem.clinical_service.mapper.FhirMapper;
+import com.journalSystem.clinical_service.mapper.SampleResources;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Jackson serialization of the DTO lists returned by the list endpoints, using an
+ * {@link ObjectMapper} configured like Spring MVC's (ISO-8601 dates via the Java time module).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoSerializationBenchmark {
+
+    @Param({"20", "200"})
+    public int entries;
+
+    private ObjectMapper objectMapper;
+    private List<ObservationDTO> observations;
+    private List<ConditionDTO> conditions;
+    private List<EncounterDTO> encounters;
+    private List<PatientDTO> patients;
+    private List<PractitionerDTO> practitioners;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        observations = map(SampleResources.observations(entries), r -> FhirMapper.observationToDTO((Observation) r));
+        conditions = map(SampleResources.conditions(entries), r -> FhirMapper.conditionToDTO((Condition) r));
+        encounters = map(SampleResources.encounters(entries), r -> FhirMapper.encounterToDTO((Encounter) r));
+        patients = map(SampleResources.patients(entries), r -> FhirMapper.patientToDTO((Patient) r));
+        practitioners = map(SampleResources.practitioners(entries), r -> FhirMapper.practitionerToDTO((Practitioner) r));
+    }
+
+    @Benchmark
+    public byte[] observations() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(observations);
+    }
+
+    @Benchmark
+    public byte[] conditions() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(conditions);
+    }
+
+    @Benchmark
+    public byte[] encounters() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(encounters);
+    }
+
+    @Benchmark
+    public byte[] patients() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(patients);
+    }
+
+    @Benchmark
+    public byte[] practitioners() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(practitioners);
+    }
+
+    private static <D> List<D> map(Bundle bundle, Function<org.hl7.fhir.r4.model.Resource, D> mapper) {
+        return bundle.getEntry().stream().map(entry -> mapper.apply(entry.getResource())).toList();
+    }
+}
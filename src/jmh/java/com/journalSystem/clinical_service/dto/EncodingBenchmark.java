@@ -0,0 +1,143 @@
+package com.journalSystem.clinical_service.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.journalSystem.clinical_service.config.ProtobufDtoHttpMessageConverter;
+import com.journalSystem.clinical_service.mapper.FhirMapper;
+import com.journalSystem.clinical_service.mapper.SampleResources;
+import org.hl7.fhir.r4.model.Observation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of an observation list in each response encoding, with mappers set up
+ * as in {@code MessageConverterConfig}. Payload sizes are printed once per fork during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark {
+
+    @Param({"20", "200"})
+    public int entries;
+
+    private List<ObservationDTO> observations;
+
+    private ObjectWriter jsonWriter;
+    private ObjectReader jsonReader;
+    private ObjectWriter cborWriter;
+    private ObjectReader cborReader;
+    private ObjectWriter smileWriter;
+    private ObjectReader smileReader;
+    private ObjectWriter protobufWriter;
+    private ObjectReader protobufReader;
+
+    private byte[] json;
+    private byte[] cbor;
+    private byte[] smile;
+    private byte[] protobuf;
+
+    @Setup
+    public void setUp() throws IOException {
+        observations = SampleResources.observations(entries).getEntry().stream()
+                .map(entry -> FhirMapper.observationToDTO((Observation) entry.getResource()))
+                .toList();
+
+        ObjectMapper jsonMapper = builder().build();
+        ObjectMapper cborMapper = builder().factory(new CBORFactory()).build();
+        ObjectMapper smileMapper = builder().factory(new SmileFactory()).build();
+        ProtobufMapper protobufMapper = new ProtobufMapper();
+        builder().configure(protobufMapper);
+
+        jsonWriter = jsonMapper.writerFor(List.class);
+        jsonReader = jsonMapper.readerForListOf(ObservationDTO.class);
+        cborWriter = cborMapper.writerFor(List.class);
+        cborReader = cborMapper.readerForListOf(ObservationDTO.class);
+        smileWriter = smileMapper.writerFor(List.class);
+        smileReader = smileMapper.readerForListOf(ObservationDTO.class);
+
+        ProtobufSchema schema = new ProtobufDtoHttpMessageConverter(protobufMapper)
+                .schemaFor(protobufMapper.getTypeFactory().constructCollectionType(List.class, ObservationDTO.class));
+        protobufWriter = protobufMapper.writer(schema);
+        protobufReader = protobufMapper
+                .readerFor(protobufMapper.getTypeFactory().constructParametricType(
+                        ProtobufDtoHttpMessageConverter.Items.class, ObservationDTO.class))
+                .with(schema);
+
+        json = jsonEncode();
+        cbor = cborEncode();
+        smile = smileEncode();
+        protobuf = protobufEncode();
+        System.out.printf("%n%d observations: json=%d B, cbor=%d B, smile=%d B, protobuf=%d B%n",
+                entries, json.length, cbor.length, smile.length, protobuf.length);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() throws IOException {
+        return jsonWriter.writeValueAsBytes(observations);
+    }
+
+    @Benchmark
+    public List<ObservationDTO> jsonDecode() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public byte[] cborEncode() throws IOException {
+        return cborWriter.writeValueAsBytes(observations);
+    }
+
+    @Benchmark
+    public List<ObservationDTO> cborDecode() throws IOException {
+        return cborReader.readValue(cbor);
+    }
+
+    @Benchmark
+    public byte[] smileEncode() throws IOException {
+        return smileWriter.writeValueAsBytes(observations);
+    }
+
+    @Benchmark
+    public List<ObservationDTO> smileDecode() throws IOException {
+        return smileReader.readValue(smile);
+    }
+
+    @Benchmark
+    public byte[] protobufEncode() throws IOException {
+        return protobufWriter.writeValueAsBytes(new ProtobufDtoHttpMessageConverter.Items<>(observations));
+    }
+
+    @Benchmark
+    public List<ObservationDTO> protobufDecode() throws IOException {
+        ProtobufDtoHttpMessageConverter.Items<ObservationDTO> items = protobufReader.readValue(protobuf);
+        return items.items();
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        // What Spring Boot's auto-configured builder does by default
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
@@ -0,0 +1,122 @@
+package com.journalSystem.clinical_service.mapper;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import com.journalSystem.clinical_service.dto.ConditionDTO;
+import com.journalSystem.clinical_service.dto.EncounterDTO;
+import com.journalSystem.clinical_service.dto.ObservationDTO;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a search Bundle's JSON into DTOs, per Bundle of {@code entries} resources:
+ * HAPI parsing alone ({@code *Parse}), HAPI parsing plus {@link FhirMapper} (the default list path)
+ * and {@link FhirJsonDecoder} (the {@code clinical.fast-json} path).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleParsingBenchmark {
+
+    @Param({"20", "200"})
+    public int entries;
+
+    private FhirContext context;
+    private byte[] observations;
+    private byte[] conditions;
+    private byte[] encounters;
+
+    @Setup
+    public void setUp() {
+        context = FhirContext.forR4();
+        IParser parser = context.newJsonParser();
+        observations = parser.encodeResourceToString(SampleResources.observations(entries)).getBytes(StandardCharsets.UTF_8);
+        conditions = parser.encodeResourceToString(SampleResources.conditions(entries)).getBytes(StandardCharsets.UTF_8);
+        encounters = parser.encodeResourceToString(SampleResources.encounters(entries)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Bundle observationsParse() {
+        return parse(observations);
+    }
+
+    @Benchmark
+    public List<ObservationDTO> observationsParseAndMap() {
+        List<ObservationDTO> dtos = new ArrayList<>(entries);
+        for (Bundle.BundleEntryComponent entry : parse(observations).getEntry()) {
+            dtos.add(FhirMapper.observationToDTO((Observation) entry.getResource()));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<ObservationDTO> observationsDecode() throws IOException {
+        return FhirJsonDecoder.decodeObservations(new ByteArrayInputStream(observations));
+    }
+
+    @Benchmark
+    public Bundle conditionsParse() {
+        return parse(conditions);
+    }
+
+    @Benchmark
+    public List<ConditionDTO> conditionsParseAndMap() {
+        List<ConditionDTO> dtos = new ArrayList<>(entries);
+        for (Bundle.BundleEntryComponent entry : parse(conditions).getEntry()) {
+            dtos.add(FhirMapper.conditionToDTO((Condition) entry.getResource()));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<ConditionDTO> conditionsDecode() throws IOException {
+        return FhirJsonDecoder.decodeConditions(new ByteArrayInputStream(conditions));
+    }
+
+    @Benchmark
+    public Bundle encountersParse() {
+        return parse(encounters);
+    }
+
+    @Benchmark
+    public List<EncounterDTO> encountersParseAndMap() {
+        List<EncounterDTO> dtos = new ArrayList<>(entries);
+        for (Bundle.BundleEntryComponent entry : parse(encounters).getEntry()) {
+            dtos.add(FhirMapper.encounterToDTO((Encounter) entry.getResource()));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<EncounterDTO> encountersDecode() throws IOException {
+        return FhirJsonDecoder.decodeEncounters(new ByteArrayInputStream(encounters));
+    }
+
+    private Bundle parse(byte[] json) {
+        // Parsers are cheap, not thread-safe, and the HAPI client creates one per response
+        return context.newJsonParser().parseResource(Bundle.class, new ByteArrayInputStream(json));
+    }
+}
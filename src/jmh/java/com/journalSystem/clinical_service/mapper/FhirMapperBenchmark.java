@@ -0,0 +1,139 @@
+package com.journalSystem.clinical_service.mapper;
+
+import com.journalSystem.clinical_service.dto.ConditionDTO;
+import com.journalSystem.clinical_service.dto.EncounterDTO;
+import com.journalSystem.clinical_service.dto.ObservationDTO;
+import com.journalSystem.clinical_service.dto.PatientDTO;
+import com.journalSystem.clinical_service.dto.PractitionerDTO;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and, with {@code -prof gc}, bytes allocated per mapped DTO ({@code gc.alloc.rate.norm})
+ * for the current {@link FhirMapper} against {@link BaselineFhirMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FhirMapperBenchmark {
+
+    private Observation observation;
+    private Condition condition;
+    private Encounter encounter;
+    private Patient patient;
+    private Practitioner practitioner;
+
+    @Setup
+    public void setUp() {
+        Date now = new Date(1_700_000_000_000L);
+
+        observation = new Observation();
+        observation.setId("Observation/1001");
+        observation.setSubject(new Reference("Patient/2002"));
+        observation.addPerformer(new Reference("Practitioner/3003"));
+        observation.setEncounter(new Reference("Encounter/4004"));
+        observation.getCode().setText("Heart rate");
+        observation.setValue(new Quantity().setValue(72).setUnit("bpm"));
+        observation.setEffective(new DateTimeType(now));
+
+        condition = new Condition();
+        condition.setId("Condition/1002");
+        condition.setSubject(new Reference("Patient/2002"));
+        condition.setRecorder(new Reference("Practitioner/3003"));
+        condition.getCode().setText("Asthma");
+        condition.setRecordedDate(now);
+
+        encounter = new Encounter();
+        encounter.setId("Encounter/4004");
+        encounter.setSubject(new Reference("Patient/2002"));
+        encounter.addParticipant().setIndividual(new Reference("Practitioner/3003"));
+        encounter.setPeriod(new Period().setStart(now).setEnd(new Date(now.getTime() + 1_800_000)));
+
+        patient = new Patient();
+        patient.setId("Patient/2002");
+        patient.addName().setFamily("Andersson").addGiven("Anna");
+        patient.addIdentifier().setValue("197001011234");
+        patient.setBirthDate(new Date(0L));
+
+        practitioner = new Practitioner();
+        practitioner.setId("Practitioner/3003");
+        practitioner.addName().setFamily("Berg").addGiven("Erik");
+        practitioner.addIdentifier().setValue("196505051234");
+        practitioner.setBirthDate(new Date(-147_000_000_000L));
+        practitioner.addQualification().setCode(new CodeableConcept().setText("Cardiologist"));
+    }
+
+    @Benchmark
+    public ObservationDTO observationBaseline() {
+        return BaselineFhirMapper.observationToDTO(observation);
+    }
+
+    @Benchmark
+    public ObservationDTO observation() {
+        return FhirMapper.observationToDTO(observation);
+    }
+
+    @Benchmark
+    public ConditionDTO conditionBaseline() {
+        return BaselineFhirMapper.conditionToDTO(condition);
+    }
+
+    @Benchmark
+    public ConditionDTO condition() {
+        return FhirMapper.conditionToDTO(condition);
+    }
+
+    @Benchmark
+    public EncounterDTO encounterBaseline() {
+        return BaselineFhirMapper.encounterToDTO(encounter);
+    }
+
+    @Benchmark
+    public EncounterDTO encounter() {
+        return FhirMapper.encounterToDTO(encounter);
+    }
+
+    @Benchmark
+    public PatientDTO patientBaseline() {
+        return BaselineFhirMapper.patientToDTO(patient);
+    }
+
+    @Benchmark
+    public PatientDTO patient() {
+        return FhirMapper.patientToDTO(patient);
+    }
+
+    @Benchmark
+    public PractitionerDTO practitionerBaseline() {
+        return BaselineFhirMapper.practitionerToDTO(practitioner);
+    }
+
+    @Benchmark
+    public PractitionerDTO practitioner() {
+        return FhirMapper.practitionerToDTO(practitioner);
+    }
+}
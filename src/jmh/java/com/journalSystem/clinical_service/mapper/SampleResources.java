@@ -0,0 +1,157 @@
+package com.journalSystem.clinical_service.mapper;
+
+import org.hl7.fhir.r4.model.*;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Resources shaped like what the HAPI server returns for this service: server-assigned ids, meta,
+ * narrative-free but with the codings, identifiers and extra elements real records carry, so parsing
+ * benchmarks see realistic field counts rather than only the fields the mapper reads.
+ */
+public final class SampleResources {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private SampleResources() {
+    }
+
+    public static Bundle observations(int count) {
+        Bundle bundle = searchBundle();
+        for (int i = 0; i < count; i++) {
+            Observation observation = new Observation();
+            observation.setId(String.valueOf(1000 + i));
+            meta(observation, i);
+            observation.addIdentifier().setSystem("urn:journal-system:idempotency-key").setValue("obs-key-" + i);
+            observation.setStatus(Observation.ObservationStatus.FINAL);
+            observation.addCategory().addCoding()
+                    .setSystem("http://terminology.hl7.org/CodeSystem/observation-category")
+                    .setCode("vital-signs")
+                    .setDisplay("Vital Signs");
+            observation.getCode()
+                    .setText("Heart rate")
+                    .addCoding().setSystem("http://loinc.org").setCode("8867-4").setDisplay("Heart rate");
+            observation.setSubject(new Reference("Patient/2002"));
+            observation.addPerformer(new Reference("Practitioner/3003"));
+            observation.setEncounter(new Reference("Encounter/" + (4000 + i)));
+            observation.setEffective(new DateTimeType(new Date(BASE_TIME + i * 3_600_000L)));
+            observation.setValue(new Quantity()
+                    .setValue(new BigDecimal("72.5"))
+                    .setUnit("bpm")
+                    .setSystem("http://unitsofmeasure.org")
+                    .setCode("/min"));
+            addEntry(bundle, observation);
+        }
+        return bundle;
+    }
+
+    public static Bundle conditions(int count) {
+        Bundle bundle = searchBundle();
+        for (int i = 0; i < count; i++) {
+            Condition condition = new Condition();
+            condition.setId(String.valueOf(5000 + i));
+            meta(condition, i);
+            condition.getClinicalStatus().addCoding()
+                    .setSystem("http://terminology.hl7.org/CodeSystem/condition-clinical")
+                    .setCode("active");
+            condition.getVerificationStatus().addCoding()
+                    .setSystem("http://terminology.hl7.org/CodeSystem/condition-ver-status")
+                    .setCode("confirmed");
+            condition.getCode()
+                    .setText("Asthma")
+                    .addCoding().setSystem("http://snomed.info/sct").setCode("195967001").setDisplay("Asthma");
+            condition.setSubject(new Reference("Patient/2002"));
+            condition.setRecorder(new Reference("Practitioner/3003"));
+            condition.setAsserter(new Reference("Practitioner/3003"));
+            condition.setRecordedDateElement(new DateTimeType(new Date(BASE_TIME + i * 86_400_000L)));
+            addEntry(bundle, condition);
+        }
+        return bundle;
+    }
+
+    public static Bundle encounters(int count) {
+        Bundle bundle = searchBundle();
+        for (int i = 0; i < count; i++) {
+            Encounter encounter = new Encounter();
+            encounter.setId(String.valueOf(4000 + i));
+            meta(encounter, i);
+            encounter.setStatus(Encounter.EncounterStatus.FINISHED);
+            encounter.setClass_(new Coding()
+                    .setSystem("http://terminology.hl7.org/CodeSystem/v3-ActCode")
+                    .setCode("AMB")
+                    .setDisplay("ambulatory"));
+            encounter.setSubject(new Reference("Patient/2002"));
+            encounter.addParticipant()
+                    .addType(new CodeableConcept().setText("primary performer"))
+                    .setIndividual(new Reference("Practitioner/3003"));
+            encounter.setServiceProvider(new Reference("Organization/6006"));
+            long start = BASE_TIME + i * 86_400_000L;
+            encounter.setPeriod(new Period().setStart(new Date(start)).setEnd(new Date(start + 1_800_000)));
+            addEntry(bundle, encounter);
+        }
+        return bundle;
+    }
+
+    public static Bundle patients(int count) {
+        Bundle bundle = searchBundle();
+        for (int i = 0; i < count; i++) {
+            Patient patient = new Patient();
+            patient.setId(String.valueOf(2000 + i));
+            meta(patient, i);
+            patient.addIdentifier()
+                    .setSystem("http://electronichealth.se/identifier/personnummer")
+                    .setValue(String.format("19700101%04d", i));
+            patient.addName().setFamily("Andersson").addGiven("Anna").addGiven("Maria");
+            patient.setGender(Enumerations.AdministrativeGender.FEMALE);
+            patient.setBirthDateElement(new DateType("1970-01-01"));
+            patient.addAddress().addLine("Storgatan 1").setCity("Stockholm").setPostalCode("11122");
+            patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.PHONE).setValue("+46701234567");
+            addEntry(bundle, patient);
+        }
+        return bundle;
+    }
+
+    public static Bundle practitioners(int count) {
+        Bundle bundle = searchBundle();
+        for (int i = 0; i < count; i++) {
+            Practitioner practitioner = new Practitioner();
+            practitioner.setId(String.valueOf(3000 + i));
+            meta(practitioner, i);
+            practitioner.addIdentifier()
+                    .setSystem("http://electronichealth.se/identifier/personnummer")
+                    .setValue(String.format("19650505%04d", i));
+            practitioner.addName().setFamily("Berg").addGiven("Erik");
+            practitioner.setBirthDateElement(new DateType("1965-05-05"));
+            practitioner.addQualification().setCode(new CodeableConcept()
+                    .setText("Cardiologist")
+                    .addCoding(new Coding().setSystem("http://snomed.info/sct").setCode("17561000")));
+            addEntry(bundle, practitioner);
+        }
+        return bundle;
+    }
+
+    private static Bundle searchBundle() {
+        Bundle bundle = new Bundle();
+        bundle.setId("f3a1c2d4-5b6e-4f70-8a9b-0c1d2e3f4a5b");
+        bundle.getMeta().setLastUpdated(new Date(BASE_TIME));
+        bundle.setType(Bundle.BundleType.SEARCHSET);
+        bundle.addLink().setRelation("self").setUrl("https://hapi.example/fhir/search");
+        return bundle;
+    }
+
+    private static void meta(DomainResource resource, int i) {
+        resource.getMeta()
+                .setVersionId(String.valueOf(1 + i % 3))
+                .setLastUpdated(new Date(BASE_TIME + i * 60_000L))
+                .setSource("#" + Integer.toHexString(0x1000 + i));
+    }
+
+    private static void addEntry(Bundle bundle, Resource resource) {
+        bundle.setTotal(bundle.getTotal() + 1);
+        bundle.addEntry()
+                .setFullUrl("https://hapi.example/fhir/" + resource.fhirType() + "/" + resource.getIdElement().getIdPart())
+                .setResource(resource)
+                .getSearch().setMode(Bundle.SearchEntryMode.MATCH);
+    }
+}
@@ -0,0 +1,219 @@
+package com.journalSystem.clinical_service.service;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost of the per-create log line for 8 concurrent request threads, written to {@code /dev/null}:
+ * as a {@code System.out.println} (the service code before SLF4J), through a synchronous logback
+ * console-style appender, and through the bounded, never-blocking {@link AsyncAppender} from
+ * {@code logback-spring.xml}.
+ * <p>
+ * Throughput alone is misleading here: the async appender, like the production one, discards INFO
+ * events once its queue is 80% full and drops everything when it is full, so it can "log" faster
+ * than anything is written. After each iteration the number of logged events that never reached
+ * the downstream appender is therefore printed, counted once the queue has drained.
+ * <p>
+ * What the appender choice is about is the time request threads spend waiting on each other, reported
+ * as the secondary results {@code blockedMs} (blocked on monitors; {@code System.out} is synchronized)
+ * and {@code parkedMs} (parked on locks: logback's stream lock, the async queue), summed over threads
+ * from {@link ThreadMXBean} contention monitoring. For individual stacks add {@code -prof jfr} and
+ * look at the {@code jdk.JavaMonitorEnter} and {@code jdk.ThreadPark} events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ConsoleLoggingBenchmark {
+
+    private static final String ID = "4f2c9a1e-77b0-4e0c-9d51-3c8e2a6b1f90";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private PrintStream stdout;
+    private LoggerContext loggerContext;
+    private org.slf4j.Logger syncLogger;
+    private org.slf4j.Logger asyncLogger;
+    private AsyncAppender async;
+
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * Per-thread lock contention during the iteration, summed over threads by JMH.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Contention {
+        public long blockedMs;
+        public long parkedMs;
+
+        private long blockedAtStart;
+        private long parkedAtStart;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            THREADS.setThreadContentionMonitoringEnabled(true);
+            ThreadInfo info = THREADS.getThreadInfo(Thread.currentThread().getId());
+            blockedAtStart = info.getBlockedTime();
+            parkedAtStart = info.getWaitedTime();
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() {
+            ThreadInfo info = THREADS.getThreadInfo(Thread.currentThread().getId());
+            blockedMs = info.getBlockedTime() - blockedAtStart;
+            parkedMs = info.getWaitedTime() - parkedAtStart;
+        }
+    }
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        // Like System.out: buffered, flushed on every println
+        stdout = new PrintStream(new BufferedOutputStream(new FileOutputStream("/dev/null")), true);
+
+        loggerContext = new LoggerContext();
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+        syncLogger = logger("sync", devNullAppender());
+
+        async = new AsyncAppender();
+        async.setContext(loggerContext);
+        async.setQueueSize(8192);
+        async.setNeverBlock(true);
+        async.addAppender(devNullAppender());
+        async.start();
+        asyncLogger = logger("async", async);
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        awaitWritten();
+        logged.reset();
+        written.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportDropped() {
+        awaitWritten();
+        long events = logged.sum();
+        if (events > 0) {
+            long dropped = events - written.sum();
+            System.out.printf("%n%,d of %,d logged events dropped (%.1f%%)%n", dropped, events, 100.0 * dropped / events);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggerContext.stop();
+        stdout.close();
+    }
+
+    @Benchmark
+    public void systemOut(Contention contention) {
+        stdout.println("✓ Observation created with ID: " + ID);
+    }
+
+    @Benchmark
+    public void syncAppender(Contention contention) {
+        logged.increment();
+        syncLogger.atInfo()
+                .addKeyValue("resourceType", "Observation")
+                .addKeyValue("id", ID)
+                .addKeyValue("latencyMs", 42L)
+                .log("Observation created with ID {}", ID);
+    }
+
+    @Benchmark
+    public void asyncAppender(Contention contention) {
+        logged.increment();
+        asyncLogger.atInfo()
+                .addKeyValue("resourceType", "Observation")
+                .addKeyValue("id", ID)
+                .addKeyValue("latencyMs", 42L)
+                .log("Observation created with ID {}", ID);
+    }
+
+    /**
+     * Waits until the async queue is empty and the worker has stopped writing, i.e. until every
+     * event that was not dropped has been counted.
+     */
+    private void awaitWritten() {
+        long before = -1;
+        long after = written.sum();
+        while (async.getNumberOfElementsInQueue() > 0 || after != before) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            before = after;
+            after = written.sum();
+        }
+    }
+
+    private org.slf4j.Logger logger(String name, ch.qos.logback.core.Appender<ILoggingEvent> appender) {
+        Logger logger = loggerContext.getLogger(name);
+        logger.setAdditive(false);
+        logger.setLevel(ch.qos.logback.classic.Level.INFO);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    private OutputStreamAppender<ILoggingEvent> devNullAppender() {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        // Spring Boot's default console pattern, without colors
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m %kvp%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>() {
+            @Override
+            protected void subAppend(ILoggingEvent event) {
+                super.subAppend(event);
+                written.increment();
+            }
+        };
+        appender.setContext(loggerContext);
+        appender.setEncoder(encoder);
+        try {
+            appender.setOutputStream(new FileOutputStream("/dev/null"));
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        appender.start();
+        return appender;
+    }
+}
@@ -0,0 +1,101 @@
+package com.journalSystem.clinical_service.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link JwtDecoder} that remembers successfully verified tokens, so the same bearer token sent
+ * on every call of a page is parsed and signature-checked once.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the token and kept until {@code expiry-skew} before the
+ * token's {@code exp}; tokens without {@code exp} and failed decodes are never cached. The map is
+ * bounded to {@code max-entries}, least recently used first.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Duration expirySkew;
+    private final Map<String, Jwt> verified;
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, int maxEntries, Duration expirySkew) {
+        this.delegate = delegate;
+        this.expirySkew = expirySkew;
+        this.verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Jwt> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("clinical.jwt.cache.requests")
+                .description("Bearer tokens answered from the verified-token cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("clinical.jwt.cache.requests")
+                .description("Bearer tokens passed to the verifying decoder")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("clinical.jwt.cache.size", this, CachingJwtDecoder::size)
+                .description("Verified tokens currently cached")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Instant now = Instant.now();
+
+        synchronized (verified) {
+            Jwt jwt = verified.get(key);
+            if (jwt != null) {
+                if (isFresh(jwt, now)) {
+                    hits.increment();
+                    return jwt;
+                }
+                verified.remove(key);
+            }
+        }
+
+        misses.increment();
+        Jwt jwt = delegate.decode(token);
+        if (isFresh(jwt, now)) {
+            synchronized (verified) {
+                verified.put(key, jwt);
+            }
+        }
+        return jwt;
+    }
+
+    private boolean isFresh(Jwt jwt, Instant now) {
+        return jwt.getExpiresAt() != null && now.isBefore(jwt.getExpiresAt().minus(expirySkew));
+    }
+
+    int size() {
+        synchronized (verified) {
+            return verified.size();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -8,42 +8,54 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Converts Keycloak roles from JWT token to Spring Security GrantedAuthorities.
+ * <p>
+ * Users share a handful of distinct role sets, so the immutable authority list is built once per
+ * role set and reused for every later token carrying the same roles.
  */
 public class KeycloakRoleConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
 
     private static final Logger logger = LoggerFactory.getLogger(KeycloakRoleConverter.class);
 
+    // Guards against unbounded growth from unusual tokens; beyond this, role sets are mapped uncached
+    private static final int MAX_ROLE_SETS = 1024;
+
+    private final Map<List<String>, List<GrantedAuthority>> authoritiesByRoles = new ConcurrentHashMap<>();
+
     @Override
     public Collection<GrantedAuthority> convert(Jwt jwt) {
-        Collection<GrantedAuthority> authorities = new ArrayList<>();
-
-        logger.debug("Converting JWT for user: {}", jwt.getSubject());
-        logger.debug("JWT claims: {}", jwt.getClaims().keySet());
-
-        // Extract realm roles
-        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
-        if (realmAccess != null && realmAccess.containsKey("roles")) {
-            @SuppressWarnings("unchecked")
-            List<String> roles = (List<String>) realmAccess.get("roles");
-
-            logger.info("Found realm roles: {}", roles);
-
-            authorities.addAll(roles.stream()
-                    .map(role -> {
-                        String authority = "ROLE_" + role.toUpperCase();
-                        logger.debug("Mapped role '{}' to authority '{}'", role, authority);
-                        return new SimpleGrantedAuthority(authority);
-                    })
-                    .collect(Collectors.toList()));
-        } else {
+        // Extract realm roles; read the raw claim since getClaimAsMap copies it through the conversion service
+        Object realmAccess = jwt.getClaims().get("realm_access");
+        if (!(realmAccess instanceof Map<?, ?> realmAccessMap) || !(realmAccessMap.get("roles") instanceof List<?> roleList)) {
             logger.warn("No realm_access.roles found in JWT token");
+            return List.of();
+        }
+
+        @SuppressWarnings("unchecked")
+        List<String> roles = (List<String>) roleList;
+
+        List<GrantedAuthority> authorities = authoritiesByRoles.get(roles);
+        if (authorities == null) {
+            authorities = toAuthorities(roles);
+            if (authoritiesByRoles.size() < MAX_ROLE_SETS) {
+                authoritiesByRoles.putIfAbsent(List.copyOf(roles), authorities);
+            }
         }
 
-        logger.info("Final authorities for user {}: {}", jwt.getSubject(), authorities);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Authorities for user {} from realm roles {}: {}", jwt.getSubject(), roles, authorities);
+        }
         return authorities;
     }
-}
\ No newline at end of file
+
+    private static List<GrantedAuthority> toAuthorities(List<String> roles) {
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (String role : roles) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
+        }
+        return List.copyOf(authorities);
+    }
+}
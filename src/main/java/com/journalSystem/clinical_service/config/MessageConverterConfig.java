@@ -0,0 +1,52 @@
+package com.journalSystem.clinical_service.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Binary alternatives to JSON, chosen by the {@code Accept} header: CBOR ({@code application/cbor}),
+ * Smile ({@code application/x-jackson-smile}) and protobuf ({@code application/x-protobuf}).
+ * <p>
+ * All three use mappers built from Spring Boot's {@link Jackson2ObjectMapperBuilder}, so field names,
+ * null handling and ISO-8601 dates are the same as in the JSON responses. Spring MVC's own CBOR and
+ * Smile converters are replaced because they use a default mapper that writes dates as arrays.
+ * JSON stays first in the list, so clients sending a wildcard {@code Accept} still get JSON.
+ */
+@Configuration
+public class MessageConverterConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    public MessageConverterConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                builder().factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                builder().factory(new SmileFactory()).build()));
+
+        ProtobufMapper protobufMapper = new ProtobufMapper();
+        builder().configure(protobufMapper);
+        converters.add(new ProtobufDtoHttpMessageConverter(protobufMapper));
+    }
+
+    private Jackson2ObjectMapperBuilder builder() {
+        return objectMapperBuilder.getIfAvailable(Jackson2ObjectMapperBuilder::json);
+    }
+}
@@ -0,0 +1,208 @@
+package com.journalSystem.clinical_service.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.journalSystem.clinical_service.dto.ObservationDTO;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Protobuf encoding ({@code application/x-protobuf}) of the DTOs and DTO lists.
+ * <p>
+ * Schemas are derived from the DTO records themselves, so fields and their order follow the
+ * record components and null fields are simply absent. A list is encoded as
+ * {@code message Items { repeated <Dto> items = 1; }} since protobuf has no top-level repeated
+ * type. The root message name is sent in {@code X-Protobuf-Message}.
+ * <p>
+ * Only types from the {@code dto} package (and lists of them) are handled; anything else falls
+ * through to the other converters. Lists returned through an untyped {@code ResponseEntity<?>} are
+ * encoded by the runtime class of their elements.
+ */
+public class ProtobufDtoHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+    public static final String MESSAGE_HEADER = "X-Protobuf-Message";
+
+    private static final String DTO_PACKAGE = ObservationDTO.class.getPackageName();
+
+    /**
+     * Top-level wrapper for lists.
+     */
+    public record Items<T>(List<T> items) {}
+
+    private final ProtobufMapper mapper;
+    private final Map<JavaType, ProtobufSchema> schemas = new ConcurrentHashMap<>();
+
+    public ProtobufDtoHttpMessageConverter(ProtobufMapper mapper) {
+        super(PROTOBUF);
+        this.mapper = mapper;
+    }
+
+    /**
+     * Schema used for values of {@code type}, e.g. to publish the {@code .proto} for consumers.
+     */
+    public ProtobufSchema schemaFor(Type type) {
+        JavaType wireType = wireType(mapper.constructType(type));
+        if (wireType == null) {
+            throw new IllegalArgumentException("Not a DTO or DTO list: " + type);
+        }
+        return schema(wireType);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return isDto(mapper.constructType(clazz));
+    }
+
+    /**
+     * Spring MVC offers the media types by the value's class, which for lists and generic DTOs has
+     * lost its element type; whether the value can actually be written is left to
+     * {@link #canWrite(Type, Class, MediaType)}.
+     */
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        if (DTO_PACKAGE.equals(clazz.getPackageName()) || Collection.class.isAssignableFrom(clazz)) {
+            return getSupportedMediaTypes();
+        }
+        return List.of();
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return canRead(mediaType) && wireType(resolve(type, contextClass)) != null;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        JavaType javaType = type != null ? resolve(type, null) : mapper.constructType(clazz);
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        // Declared as Object or a raw collection, e.g. ResponseEntity<?>: decided by the elements when writing
+        return wireType(javaType) != null || (isUntyped(javaType) && clazz != null && Collection.class.isAssignableFrom(clazz));
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        JavaType javaType = type != null ? resolve(type, null) : mapper.constructType(value.getClass());
+        if (wireType(javaType) == null && value instanceof Collection<?> values) {
+            if (values.isEmpty()) {
+                // An empty repeated field encodes to nothing, whatever the element type
+                outputMessage.getHeaders().set(MESSAGE_HEADER, "Items");
+                return;
+            }
+            javaType = elementType(values);
+        }
+        JavaType wireType = javaType != null ? wireType(javaType) : null;
+        if (wireType == null) {
+            throw new HttpMessageNotWritableException("Cannot encode " + (javaType != null ? javaType : value.getClass()) + " as protobuf");
+        }
+
+        Object wireValue = javaType.isCollectionLikeType() ? new Items<>(new ArrayList<>((Collection<?>) value)) : value;
+        ProtobufSchema schema = schema(wireType);
+        outputMessage.getHeaders().set(MESSAGE_HEADER, schema.getRootType().getName());
+        mapper.writer(schema).writeValue(outputMessage.getBody(), wireValue);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return decode(resolve(type, contextClass), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return decode(mapper.constructType(clazz), inputMessage);
+    }
+
+    private Object decode(JavaType javaType, HttpInputMessage inputMessage) throws IOException {
+        JavaType wireType = wireType(javaType);
+        if (wireType == null) {
+            throw new HttpMessageNotReadableException("Cannot decode " + javaType + " from protobuf", inputMessage);
+        }
+
+        Object value = mapper.readerFor(wireType).with(schema(wireType)).readValue(inputMessage.getBody());
+        return javaType.isCollectionLikeType() ? ((Items<?>) value).items() : value;
+    }
+
+    /**
+     * List type of the values' common element class, or null when their classes differ.
+     */
+    private JavaType elementType(Collection<?> values) {
+        Class<?> elementClass = null;
+        for (Object value : values) {
+            if (value == null) continue;
+            if (elementClass == null) {
+                elementClass = value.getClass();
+            } else if (elementClass != value.getClass()) {
+                return null;
+            }
+        }
+        return elementClass == null ? null : mapper.getTypeFactory().constructCollectionType(List.class, elementClass);
+    }
+
+    private static boolean isUntyped(JavaType javaType) {
+        if (javaType.isCollectionLikeType()) {
+            return javaType.getContentType().getRawClass() == Object.class;
+        }
+        return javaType.getRawClass() == Object.class;
+    }
+
+    private JavaType resolve(Type type, Class<?> contextClass) {
+        return mapper.constructType(GenericTypeResolver.resolveType(type, contextClass));
+    }
+
+    /**
+     * The type actually encoded for {@code javaType}: the DTO itself, {@link Items} for a list of
+     * DTOs, or null when the type is not handled.
+     */
+    private JavaType wireType(JavaType javaType) {
+        if (javaType.isCollectionLikeType()) {
+            JavaType element = javaType.getContentType();
+            return isDto(element) ? mapper.getTypeFactory().constructParametricType(Items.class, element) : null;
+        }
+        return isDto(javaType) ? javaType : null;
+    }
+
+    private static boolean isDto(JavaType javaType) {
+        if (!DTO_PACKAGE.equals(javaType.getRawClass().getPackageName())) {
+            return false;
+        }
+        // Generic DTOs such as ChangesDTO<T> need a concrete DTO element type for their schema
+        if (javaType.containedTypeCount() != javaType.getRawClass().getTypeParameters().length) {
+            return false;
+        }
+        for (int i = 0; i < javaType.containedTypeCount(); i++) {
+            if (!isDto(javaType.containedType(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ProtobufSchema schema(JavaType wireType) {
+        return schemas.computeIfAbsent(wireType, type -> {
+            try {
+                return mapper.generateSchemaFor(type);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not generate protobuf schema for " + type, e);
+            }
+        });
+    }
+}
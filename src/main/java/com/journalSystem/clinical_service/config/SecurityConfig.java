@@ -1,5 +1,12 @@
 package com.journalSystem.clinical_service.config;
 
+import com.journalSystem.clinical_service.service.RequestTimings;
+import com.journalSystem.clinical_service.service.WriteBehindService;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,6 +23,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
@@ -27,6 +35,15 @@ public class SecurityConfig {
     @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
     private String jwkSetUri;
 
+    @Value("${clinical.jwt-cache.enabled:false}")
+    private boolean jwtCacheEnabled;
+
+    @Value("${clinical.jwt-cache.max-entries:10000}")
+    private int jwtCacheMaxEntries;
+
+    @Value("${clinical.jwt-cache.expiry-skew-ms:30000}")
+    private long jwtCacheExpirySkewMs;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -35,6 +52,13 @@ public class SecurityConfig {
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Probes
+                        .requestMatchers(HttpMethod.GET, "/actuator/health/**").permitAll()
+
+                        // Metrics scraping (endpoint paths and FHIR resource types are not for the public),
+                        // e.g. by Prometheus with an oauth2 client-credentials scrape config
+                        .requestMatchers(HttpMethod.GET, "/actuator/prometheus").hasRole("METRICS")
+
                         // GET patients/practitioners
                         .requestMatchers(HttpMethod.GET, "/api/patients/**").authenticated()
                         .requestMatchers(HttpMethod.GET, "/api/practitioners/**").authenticated()
@@ -51,6 +75,12 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/v1/clinical/encounters/**").authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/v1/clinical/encounters/**").hasAnyRole("DOCTOR", "STAFF")
 
+                        // Async create operations
+                        .requestMatchers(HttpMethod.GET, "/api/v1/clinical/operations/**").hasAnyRole("DOCTOR", "STAFF")
+
+                        // Bulk NDJSON import
+                        .requestMatchers("/api/v1/clinical/import/**").hasAnyRole("DOCTOR", "STAFF")
+
                         // All other requests require authentication
                         .anyRequest().authenticated()
                 )
@@ -71,8 +101,22 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
+    public JwtDecoder jwtDecoder(MeterRegistry meterRegistry, SnapshotJwkSource snapshotJwkSource) {
+        JwtDecoder decoder;
+        if (snapshotJwkSource.isEnabled()) {
+            DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+            processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, snapshotJwkSource));
+            // Claims are validated by NimbusJwtDecoder's own validators, as with withJwkSetUri
+            processor.setJWTClaimsSetVerifier((claims, context) -> {});
+            decoder = new NimbusJwtDecoder(processor);
+        } else {
+            decoder = NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
+        }
+        if (jwtCacheEnabled) {
+            decoder = new CachingJwtDecoder(decoder, meterRegistry, jwtCacheMaxEntries, Duration.ofMillis(jwtCacheExpirySkewMs));
+        }
+        JwtDecoder verifying = decoder;
+        return token -> RequestTimings.time(RequestTimings.Phase.JWT, () -> verifying.decode(token));
     }
 
     @Bean
@@ -85,6 +129,8 @@ public class SecurityConfig {
         ));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of(WriteBehindService.TRACKING_ID_HEADER, "Location", "Retry-After",
+                ServerTimingFilter.HEADER));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,142 @@
+package com.journalSystem.clinical_service.config;
+
+import com.journalSystem.clinical_service.service.RequestTimings;
+import com.journalSystem.clinical_service.service.RequestTimings.Phase;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the {@link RequestTimings} of every request as a {@code Server-Timing} header, e.g.
+ * {@code jwt;dur=0.41, lookup;dur=12.30, fhir;dur=41.02, parse;dur=3.15, map;dur=0.52, write;dur=0.77, total;dur=58.94},
+ * and records each phase in the {@code clinical.request.phase} histogram.
+ * <p>
+ * Runs ahead of Spring Security so token verification is included. The header is added just before
+ * the response is committed; for bodies larger than the response buffer that is while the body is
+ * still being written, so the header's {@code write} covers the first buffer only, while the
+ * histogram always gets the full time. Enabled with {@code clinical.server-timing.enabled}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Server-Timing";
+
+    private final boolean enabled;
+    private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+
+    public ServerTimingFilter(
+            MeterRegistry meterRegistry,
+            @Value("${clinical.server-timing.enabled:false}") boolean enabled
+    ) {
+        this.enabled = enabled;
+        for (Phase phase : Phase.values()) {
+            timers.put(phase, Timer.builder("clinical.request.phase")
+                    .description("Time spent per request in each processing phase")
+                    .tag("phase", phase.metricName())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTimings timings = RequestTimings.begin();
+        TimingResponse timingResponse = new TimingResponse(response, timings);
+        try {
+            chain.doFilter(request, timingResponse);
+        } finally {
+            RequestTimings.end();
+            timingResponse.finish();
+            for (Map.Entry<Phase, Timer> timer : timers.entrySet()) {
+                if (timings.isRecorded(timer.getKey())) {
+                    timer.getValue().record(timings.nanos(timer.getKey()), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Times the body from the first {@code getOutputStream}/{@code getWriter} call, and adds the
+     * header when the response is about to be committed.
+     */
+    private static final class TimingResponse extends OnCommittedResponseWrapper {
+
+        private final RequestTimings timings;
+        private long writeStart;
+        private boolean headerWritten;
+
+        TimingResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            startWrite();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            startWrite();
+            return super.getWriter();
+        }
+
+        private void startWrite() {
+            if (writeStart == 0) {
+                writeStart = System.nanoTime();
+            }
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            stopWrite();
+            writeHeader();
+        }
+
+        void finish() {
+            stopWrite();
+            if (!isCommitted()) {
+                writeHeader();
+            }
+        }
+
+        private void stopWrite() {
+            if (writeStart != 0) {
+                long now = System.nanoTime();
+                timings.add(Phase.WRITE, now - writeStart);
+                writeStart = now;
+            }
+        }
+
+        private void writeHeader() {
+            if (!headerWritten) {
+                headerWritten = true;
+                setHeader(HEADER, timings.toHeaderValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.journalSystem.clinical_service.config;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keycloak signing keys served from memory, so verifying a token never waits for Keycloak.
+ * <p>
+ * At startup the keys are loaded from a local snapshot file, when present, and then refreshed from
+ * the JWK set URI in the background, right away and every {@code refresh-ms}; each fetch that finds
+ * changed keys rewrites the snapshot. Until the first fetch completes, tokens are verified against
+ * the snapshot. A token with an unknown {@code kid} is rejected and triggers a refresh, at most once per
+ * {@code min-refresh-ms}, so rotated keys are picked up without a blocking fetch per request. Only
+ * when no keys are known at all (no snapshot, first fetch still running) does a request wait for it.
+ * <p>
+ * With a snapshot in place the service also starts and verifies tokens while Keycloak is down,
+ * e.g. for offline load tests.
+ */
+@Component
+public class SnapshotJwkSource implements JWKSource<SecurityContext> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotJwkSource.class);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final boolean enabled;
+    private final URI jwkSetUri;
+    private final Path snapshotPath;
+    private final long refreshMillis;
+    private final long minRefreshMillis;
+    private final HttpClient httpClient;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private volatile JWKSet keys = new JWKSet();
+    private long lastRefreshRequestMillis;
+    private ScheduledExecutorService refresher;
+
+    public SnapshotJwkSource(
+            @Value("${clinical.jwks-snapshot.enabled:false}") boolean enabled,
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${clinical.jwks-snapshot.path:data/jwks.json}") String snapshotPath,
+            @Value("${clinical.jwks-snapshot.refresh-ms:300000}") long refreshMillis,
+            @Value("${clinical.jwks-snapshot.min-refresh-ms:30000}") long minRefreshMillis
+    ) {
+        this.enabled = enabled;
+        this.jwkSetUri = URI.create(jwkSetUri);
+        this.snapshotPath = Path.of(snapshotPath);
+        this.refreshMillis = refreshMillis;
+        this.minRefreshMillis = minRefreshMillis;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+
+        if (Files.exists(snapshotPath)) {
+            try {
+                update(JWKSet.load(snapshotPath.toFile()));
+                logger.info("Loaded {} signing keys from {}", keys.size(), snapshotPath);
+            } catch (Exception e) {
+                logger.warn("Could not read JWK snapshot {}: {}", snapshotPath, e.getMessage());
+            }
+        }
+
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Even with a snapshot, fetch right away: keys rotated while the service was down must not
+        // wait for the first scheduled refresh
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (!enabled) return;
+
+        refresher.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        List<JWK> matches = jwkSelector.select(keys);
+        if (!matches.isEmpty()) {
+            return matches;
+        }
+
+        requestRefresh();
+        if (keys.isEmpty()) {
+            try {
+                if (!loaded.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new KeySourceException("No signing keys available from " + jwkSetUri);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KeySourceException("Interrupted while waiting for signing keys");
+            }
+            return jwkSelector.select(keys);
+        }
+        return matches;
+    }
+
+    private void requestRefresh() {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - lastRefreshRequestMillis < minRefreshMillis) return;
+            lastRefreshRequestMillis = now;
+        }
+        refresher.execute(this::refresh);
+    }
+
+    void refresh() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(jwkSetUri)
+                    .timeout(TIMEOUT)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                logger.warn("Could not refresh signing keys: {} returned {}", jwkSetUri, response.statusCode());
+                return;
+            }
+
+            JWKSet fetched = JWKSet.parse(response.body()).toPublicJWKSet();
+            if (!fetched.toJSONObject().equals(keys.toJSONObject())) {
+                logger.info("Refreshed signing keys from {}: {} keys", jwkSetUri, fetched.size());
+                update(fetched);
+                writeSnapshot(fetched);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Could not refresh signing keys from {}: {}", jwkSetUri, e.getMessage());
+        }
+    }
+
+    private void update(JWKSet newKeys) {
+        keys = newKeys;
+        if (!newKeys.isEmpty()) {
+            loaded.countDown();
+        }
+    }
+
+    private void writeSnapshot(JWKSet snapshot) {
+        try {
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, "jwks", ".tmp");
+            Files.writeString(temp, snapshot.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write JWK snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+}
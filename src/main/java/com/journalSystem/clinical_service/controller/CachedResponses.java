@@ -0,0 +1,64 @@
+package com.journalSystem.clinical_service.controller;
+
+import com.journalSystem.clinical_service.service.EncodedResponseCache;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * Helpers for answering reads from {@link EncodedResponseCache}.
+ */
+final class CachedResponses {
+
+    private CachedResponses() {
+    }
+
+    /**
+     * Whether the cached JSON bodies suit this request: the cache is on and the client's first
+     * choice in {@code Accept} is JSON or a wildcard. Clients preferring CBOR, Smile or protobuf
+     * go through content negotiation as usual.
+     */
+    static boolean applies(EncodedResponseCache cache, HttpServletRequest request) {
+        if (!cache.isEnabled()) {
+            return false;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            return mediaTypes.isEmpty() || mediaTypes.get(0).includes(MediaType.APPLICATION_JSON);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].strip().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    static ResponseEntity<byte[]> ok(EncodedResponseCache.Encoded encoded) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (encoded.gzipped()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(encoded.body());
+    }
+}
@@ -1,15 +1,33 @@
 package com.journalSystem.clinical_service.controller;
 
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.journalSystem.clinical_service.dto.ChangesDTO;
 import com.journalSystem.clinical_service.dto.ConditionDTO;
+import com.journalSystem.clinical_service.dto.OperationStatusDTO;
 import com.journalSystem.clinical_service.mapper.FhirMapper;
+import com.journalSystem.clinical_service.service.AsyncCreateService;
+import com.journalSystem.clinical_service.service.ChangeSet;
+import com.journalSystem.clinical_service.service.EncodedResponseCache;
+import com.journalSystem.clinical_service.service.FhirJsonSearchService;
 import com.journalSystem.clinical_service.service.HapiConditionService;
+import com.journalSystem.clinical_service.service.IdempotencyCache;
+import com.journalSystem.clinical_service.service.RequestTimings;
+import com.journalSystem.clinical_service.service.WriteBehindService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/clinical/conditions")
@@ -17,14 +35,42 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ConditionController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ConditionController.class);
+
     private final HapiConditionService hapiConditionService;
+    private final WriteBehindService writeBehindService;
+    private final AsyncCreateService asyncCreateService;
+    private final FhirJsonSearchService fhirJsonSearchService;
+    private final EncodedResponseCache encodedResponseCache;
 
     @GetMapping("/patient/{patientId}")
-    public List<ConditionDTO> getConditionsForPatient(@PathVariable String patientId) {
-        return hapiConditionService.getConditionsForPatient(patientId)
-                .stream()
-                .map(FhirMapper::conditionToDTO)
-                .toList();
+    public ResponseEntity<?> getConditionsForPatient(@PathVariable String patientId, HttpServletRequest request) {
+        if (CachedResponses.applies(encodedResponseCache, request)) {
+            return CachedResponses.ok(encodedResponseCache.getPatientList(org.hl7.fhir.r4.model.Condition.class, patientId, "",
+                    CachedResponses.acceptsGzip(request), () -> conditionsForPatient(patientId)));
+        }
+        return ResponseEntity.ok(conditionsForPatient(patientId));
+    }
+
+    private List<ConditionDTO> conditionsForPatient(String patientId) {
+        if (fhirJsonSearchService.isEnabled()) {
+            return fhirJsonSearchService.getConditionsForPatient(patientId);
+        }
+        List<org.hl7.fhir.r4.model.Condition> conditions = hapiConditionService.getConditionsForPatient(patientId);
+        return RequestTimings.time(RequestTimings.Phase.MAP, () -> FhirMapper.toDTOs(conditions, FhirMapper::conditionToDTO));
+    }
+
+    @GetMapping("/patient/{patientId}/changes")
+    public ChangesDTO<ConditionDTO> getConditionChangesForPatient(
+            @PathVariable String patientId,
+            @RequestParam(required = false) Instant since
+    ) {
+        ChangeSet<org.hl7.fhir.r4.model.Condition> changes = hapiConditionService.getConditionsChangedSince(patientId, since);
+        return new ChangesDTO<>(
+                FhirMapper.toDTOs(changes.resources(), FhirMapper::conditionToDTO),
+                changes.watermark(),
+                changes.hasMore()
+        );
     }
 
     @GetMapping("/{id}")
@@ -36,24 +82,86 @@ public class ConditionController {
     }
 
     @PostMapping
-    public ResponseEntity<ConditionDTO> createCondition(@RequestBody CreateConditionRequest request) {
+    public ResponseEntity<?> createCondition(
+            @RequestBody CreateConditionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal
+    ) {
+        String scopedKey = IdempotencyCache.scope(principal, idempotencyKey);
         try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-            Date recordedDate = sdf.parse(request.assertedDate());
+            Date recordedDate;
+            try {
+                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+                recordedDate = sdf.parse(request.assertedDate());
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body("Invalid date format. Use: yyyy-MM-dd");
+            }
+
+            if (writeBehindService.isEnabled()) {
+                if (request.patientPersonnummer() == null || request.patientPersonnummer().isEmpty()) {
+                    return ResponseEntity.badRequest().body("Patient personnummer is required");
+                }
+                String trackingId = writeBehindService.accept(WriteBehindService.WriteType.CONDITION,
+                        new HapiConditionService.NewCondition(
+                                request.patientPersonnummer(),
+                                request.practitionerPersonnummer(),
+                                request.description(),
+                                recordedDate
+                        ),
+                        scopedKey);
+                return ResponseEntity.accepted()
+                        .header(WriteBehindService.TRACKING_ID_HEADER, trackingId)
+                        .body("Condition accepted: " + trackingId);
+            }
 
             org.hl7.fhir.r4.model.Condition condition = hapiConditionService.createCondition(
                     request.patientPersonnummer(),
                     request.practitionerPersonnummer(),
                     request.description(),
-                    recordedDate
+                    recordedDate,
+                    scopedKey
             );
 
             ConditionDTO dto = FhirMapper.conditionToDTO(condition);
             return ResponseEntity.ok(dto);
+        } catch (UnprocessableEntityException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage());
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.warn("Could not create condition: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Could not create condition: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/async")
+    public ResponseEntity<OperationStatusDTO> createConditionAsync(
+            @RequestBody CreateConditionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal
+    ) {
+        String scopedKey = IdempotencyCache.scope(principal, idempotencyKey);
+        Date recordedDate;
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+            recordedDate = sdf.parse(request.assertedDate());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (request.patientPersonnummer() == null || request.patientPersonnummer().isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
+
+        return OperationController.submit(asyncCreateService, "Condition",
+                () -> hapiConditionService.createCondition(
+                        request.patientPersonnummer(),
+                        request.practitionerPersonnummer(),
+                        request.description(),
+                        recordedDate,
+                        scopedKey
+                ));
     }
 
     public record CreateConditionRequest(
@@ -1,16 +1,34 @@
 package com.journalSystem.clinical_service.controller;
 
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.journalSystem.clinical_service.dto.ChangesDTO;
 import com.journalSystem.clinical_service.dto.EncounterDTO;
+import com.journalSystem.clinical_service.dto.OperationStatusDTO;
 import com.journalSystem.clinical_service.mapper.FhirMapper;
+import com.journalSystem.clinical_service.service.AsyncCreateService;
+import com.journalSystem.clinical_service.service.ChangeSet;
+import com.journalSystem.clinical_service.service.EncodedResponseCache;
+import com.journalSystem.clinical_service.service.FhirJsonSearchService;
 import com.journalSystem.clinical_service.service.HapiEncounterService;
+import com.journalSystem.clinical_service.service.IdempotencyCache;
+import com.journalSystem.clinical_service.service.RequestTimings;
+import com.journalSystem.clinical_service.service.WriteBehindService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/clinical/encounters")
@@ -18,14 +36,42 @@ import java.util.TimeZone;
 @RequiredArgsConstructor
 public class EncounterController {
 
+    private static final Logger logger = LoggerFactory.getLogger(EncounterController.class);
+
     private final HapiEncounterService hapiEncounterService;
+    private final WriteBehindService writeBehindService;
+    private final AsyncCreateService asyncCreateService;
+    private final FhirJsonSearchService fhirJsonSearchService;
+    private final EncodedResponseCache encodedResponseCache;
 
     @GetMapping("/patient/{patientId}")
-    public List<EncounterDTO> getEncountersForPatient(@PathVariable String patientId) {
-        return hapiEncounterService.getEncountersForPatient(patientId)
-                .stream()
-                .map(FhirMapper::encounterToDTO)
-                .toList();
+    public ResponseEntity<?> getEncountersForPatient(@PathVariable String patientId, HttpServletRequest request) {
+        if (CachedResponses.applies(encodedResponseCache, request)) {
+            return CachedResponses.ok(encodedResponseCache.getPatientList(org.hl7.fhir.r4.model.Encounter.class, patientId, "",
+                    CachedResponses.acceptsGzip(request), () -> encountersForPatient(patientId)));
+        }
+        return ResponseEntity.ok(encountersForPatient(patientId));
+    }
+
+    private List<EncounterDTO> encountersForPatient(String patientId) {
+        if (fhirJsonSearchService.isEnabled()) {
+            return fhirJsonSearchService.getEncountersForPatient(patientId);
+        }
+        List<org.hl7.fhir.r4.model.Encounter> encounters = hapiEncounterService.getEncountersForPatient(patientId);
+        return RequestTimings.time(RequestTimings.Phase.MAP, () -> FhirMapper.toDTOs(encounters, FhirMapper::encounterToDTO));
+    }
+
+    @GetMapping("/patient/{patientId}/changes")
+    public ChangesDTO<EncounterDTO> getEncounterChangesForPatient(
+            @PathVariable String patientId,
+            @RequestParam(required = false) Instant since
+    ) {
+        ChangeSet<org.hl7.fhir.r4.model.Encounter> changes = hapiEncounterService.getEncountersChangedSince(patientId, since);
+        return new ChangesDTO<>(
+                FhirMapper.toDTOs(changes.resources(), FhirMapper::encounterToDTO),
+                changes.watermark(),
+                changes.hasMore()
+        );
     }
 
     @GetMapping("/{id}")
@@ -37,7 +83,12 @@ public class EncounterController {
     }
 
     @PostMapping
-    public ResponseEntity<String> createEncounter(@RequestBody CreateEncounterRequest request) {
+    public ResponseEntity<String> createEncounter(
+            @RequestBody CreateEncounterRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal
+    ) {
+        String scopedKey = IdempotencyCache.scope(principal, idempotencyKey);
         try {
             SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm");
             sdf.setTimeZone(TimeZone.getTimeZone("Europe/Stockholm"));
@@ -48,20 +99,79 @@ public class EncounterController {
                 endTime = sdf.parse(request.endTime());
             }
 
+            if (writeBehindService.isEnabled()) {
+                if (request.patientPersonnummer() == null || request.patientPersonnummer().isEmpty()) {
+                    return ResponseEntity.badRequest().body("Patient personnummer is required");
+                }
+                String trackingId = writeBehindService.accept(WriteBehindService.WriteType.ENCOUNTER,
+                        new HapiEncounterService.NewEncounter(
+                                request.patientPersonnummer(),
+                                request.practitionerPersonnummer(),
+                                startTime,
+                                endTime
+                        ),
+                        scopedKey);
+                return ResponseEntity.accepted()
+                        .header(WriteBehindService.TRACKING_ID_HEADER, trackingId)
+                        .body("Encounter accepted: " + trackingId);
+            }
+
             org.hl7.fhir.r4.model.Encounter encounter = hapiEncounterService.createEncounter(
                     request.patientPersonnummer(),
                     request.practitionerPersonnummer(),
                     startTime,
-                    endTime
+                    endTime,
+                    scopedKey
             );
 
             return ResponseEntity.ok("Encounter created: " + encounter.getIdElement().getIdPart());
+        } catch (UnprocessableEntityException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage());
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.warn("Could not create encounter: {}", e.getMessage());
             return ResponseEntity.badRequest().body("Could not create encounter: " + e.getMessage());
         }
     }
 
+    @PostMapping("/async")
+    public ResponseEntity<OperationStatusDTO> createEncounterAsync(
+            @RequestBody CreateEncounterRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal
+    ) {
+        String scopedKey = IdempotencyCache.scope(principal, idempotencyKey);
+        Date startTime;
+        Date endTime = null;
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm");
+            sdf.setTimeZone(TimeZone.getTimeZone("Europe/Stockholm"));
+
+            startTime = sdf.parse(request.startTime());
+            if (request.endTime() != null && !request.endTime().isEmpty()) {
+                endTime = sdf.parse(request.endTime());
+            }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (request.patientPersonnummer() == null || request.patientPersonnummer().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Date end = endTime;
+        return OperationController.submit(asyncCreateService, "Encounter",
+                () -> hapiEncounterService.createEncounter(
+                        request.patientPersonnummer(),
+                        request.practitionerPersonnummer(),
+                        startTime,
+                        end,
+                        scopedKey
+                ));
+    }
+
     public record CreateEncounterRequest(
             String patientPersonnummer,
             String practitionerPersonnummer,
@@ -0,0 +1,34 @@
+package com.journalSystem.clinical_service.controller;
+
+import com.journalSystem.clinical_service.dto.ImportStatusDTO;
+import com.journalSystem.clinical_service.service.ImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/clinical/import")
+@CrossOrigin(origins = {"http://localhost:30000", "http://localhost:3000","https://patientsystem-frontend.app.cloud.cbh.kth.se"})
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final ImportService importService;
+
+    /**
+     * Streams an NDJSON body (one observation, condition or encounter per line) into FHIR.
+     * The body is read incrementally, so uploads of any size are accepted.
+     */
+    @PostMapping(consumes = {"application/x-ndjson", "application/ndjson"})
+    public ResponseEntity<ImportStatusDTO> importNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(importService.importNdjson(body));
+    }
+
+    @GetMapping
+    public List<ImportStatusDTO> getActiveImports() {
+        return importService.getActiveImports();
+    }
+}
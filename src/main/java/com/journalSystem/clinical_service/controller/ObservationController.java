@@ -1,15 +1,41 @@
 package com.journalSystem.clinical_service.controller;
 
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.journalSystem.clinical_service.dto.BulkItemResultDTO;
+import com.journalSystem.clinical_service.dto.ChangesDTO;
 import com.journalSystem.clinical_service.dto.ObservationDTO;
+import com.journalSystem.clinical_service.dto.OperationStatusDTO;
 import com.journalSystem.clinical_service.mapper.FhirMapper;
+import com.journalSystem.clinical_service.service.AsyncCreateService;
+import com.journalSystem.clinical_service.service.ChangeSet;
+import com.journalSystem.clinical_service.service.EncodedResponseCache;
+import com.journalSystem.clinical_service.service.FhirJsonSearchService;
 import com.journalSystem.clinical_service.service.HapiObservationService;
+import com.journalSystem.clinical_service.service.IdempotencyCache;
+import com.journalSystem.clinical_service.service.RequestTimings;
+import com.journalSystem.clinical_service.service.WriteBehindService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.r4.model.Observation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/clinical/observations")
@@ -17,14 +43,74 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ObservationController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ObservationController.class);
+
     private final HapiObservationService hapiObservationService;
+    private final WriteBehindService writeBehindService;
+    private final AsyncCreateService asyncCreateService;
+    private final FhirJsonSearchService fhirJsonSearchService;
+    private final EncodedResponseCache encodedResponseCache;
+
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_BULK_SIZE = 1000;
 
     @GetMapping("/patient/{patientId}")
-    public List<ObservationDTO> getObservationsForPatient(@PathVariable String patientId) {
-        return hapiObservationService.getObservationsForPatient(patientId)
-                .stream()
-                .map(FhirMapper::observationToDTO)
-                .toList();
+    public ResponseEntity<?> getObservationsForPatient(
+            @PathVariable String patientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request
+    ) {
+        SortSpec sortSpec = null;
+        if (sort != null) {
+            switch (sort) {
+                case "date" -> sortSpec = new SortSpec(Observation.SP_DATE, SortOrderEnum.ASC);
+                case "-date" -> sortSpec = new SortSpec(Observation.SP_DATE, SortOrderEnum.DESC);
+                default -> {
+                    return ResponseEntity.badRequest().build();
+                }
+            }
+        }
+        if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SortSpec finalSortSpec = sortSpec;
+        if (CachedResponses.applies(encodedResponseCache, request)) {
+            String variant = "from=" + from + "&to=" + to + "&sort=" + sort + "&limit=" + limit;
+            return CachedResponses.ok(encodedResponseCache.getPatientList(Observation.class, patientId, variant,
+                    CachedResponses.acceptsGzip(request),
+                    () -> observationsForPatient(patientId, from, to, finalSortSpec, limit)));
+        }
+        return ResponseEntity.ok(observationsForPatient(patientId, from, to, sortSpec, limit));
+    }
+
+    private List<ObservationDTO> observationsForPatient(String patientId, LocalDate from, LocalDate to,
+                                                        SortSpec sortSpec, Integer limit) {
+        if (fhirJsonSearchService.isEnabled()) {
+            return fhirJsonSearchService.getObservationsForPatient(patientId, from, to, sortSpec, limit);
+        }
+        List<Observation> observations =
+                hapiObservationService.getObservationsForPatient(patientId, from, to, sortSpec, limit);
+        return RequestTimings.time(RequestTimings.Phase.MAP, () -> FhirMapper.toDTOs(observations, FhirMapper::observationToDTO));
+    }
+
+    @GetMapping("/patient/{patientId}/changes")
+    public ChangesDTO<ObservationDTO> getObservationChangesForPatient(
+            @PathVariable String patientId,
+            @RequestParam(required = false) Instant since
+    ) {
+        ChangeSet<org.hl7.fhir.r4.model.Observation> changes = hapiObservationService.getObservationsChangedSince(patientId, since);
+        return new ChangesDTO<>(
+                FhirMapper.toDTOs(changes.resources(), FhirMapper::observationToDTO),
+                changes.watermark(),
+                changes.hasMore()
+        );
     }
 
     @GetMapping("/{id}")
@@ -36,7 +122,12 @@ public class ObservationController {
     }
 
     @PostMapping
-    public ResponseEntity<String> createObservation(@RequestBody CreateObservationRequest request) {
+    public ResponseEntity<String> createObservation(
+            @RequestBody CreateObservationRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal
+    ) {
+        String scopedKey = IdempotencyCache.scope(principal, idempotencyKey);
         try {
             Date effectiveDate;
             try {
@@ -46,22 +137,114 @@ public class ObservationController {
                 return ResponseEntity.badRequest().body("Invalid date format. Use: yyyy-MM-dd");
             }
 
+            if (writeBehindService.isEnabled()) {
+                if (request.patientPersonnummer() == null || request.patientPersonnummer().isEmpty()) {
+                    return ResponseEntity.badRequest().body("Patient personnummer is required");
+                }
+                String trackingId = writeBehindService.accept(WriteBehindService.WriteType.OBSERVATION,
+                        new HapiObservationService.NewObservation(
+                                request.patientPersonnummer(),
+                                request.performerPersonnummer(),
+                                request.description(),
+                                request.value(),
+                                request.unit(),
+                                effectiveDate
+                        ),
+                        scopedKey);
+                return ResponseEntity.accepted()
+                        .header(WriteBehindService.TRACKING_ID_HEADER, trackingId)
+                        .body("Observation accepted: " + trackingId);
+            }
+
             org.hl7.fhir.r4.model.Observation observation = hapiObservationService.createObservation(
                     request.patientPersonnummer(),
                     request.performerPersonnummer(),
                     request.description(),
                     request.value(),
                     request.unit(),
-                    effectiveDate
+                    effectiveDate,
+                    scopedKey
             );
 
             return ResponseEntity.ok("Observation created: " + observation.getIdElement().getIdPart());
+        } catch (UnprocessableEntityException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage());
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.warn("Could not create observation: {}", e.getMessage());
             return ResponseEntity.badRequest().body("Could not create observation: " + e.getMessage());
         }
     }
 
+    @PostMapping("/async")
+    public ResponseEntity<OperationStatusDTO> createObservationAsync(
+            @RequestBody CreateObservationRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal
+    ) {
+        String scopedKey = IdempotencyCache.scope(principal, idempotencyKey);
+        Date effectiveDate;
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+            effectiveDate = sdf.parse(request.effectiveDate());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (request.patientPersonnummer() == null || request.patientPersonnummer().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return OperationController.submit(asyncCreateService, "Observation",
+                () -> hapiObservationService.createObservation(
+                        request.patientPersonnummer(),
+                        request.performerPersonnummer(),
+                        request.description(),
+                        request.value(),
+                        request.unit(),
+                        effectiveDate,
+                        scopedKey
+                ));
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkItemResultDTO>> createObservations(@RequestBody List<CreateObservationRequest> requests) {
+        if (requests.isEmpty() || requests.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        BulkItemResultDTO[] results = new BulkItemResultDTO[requests.size()];
+        List<HapiObservationService.NewObservation> items = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        for (int i = 0; i < requests.size(); i++) {
+            CreateObservationRequest request = requests.get(i);
+            try {
+                items.add(new HapiObservationService.NewObservation(
+                        request.patientPersonnummer(),
+                        request.performerPersonnummer(),
+                        request.description(),
+                        request.value(),
+                        request.unit(),
+                        sdf.parse(request.effectiveDate())
+                ));
+                positions.add(i);
+            } catch (Exception e) {
+                results[i] = BulkItemResultDTO.rejected("Invalid date format. Use: yyyy-MM-dd");
+            }
+        }
+
+        List<BulkItemResultDTO> created = hapiObservationService.createObservations(items);
+        for (int j = 0; j < created.size(); j++) {
+            results[positions.get(j)] = created.get(j);
+        }
+
+        return ResponseEntity.ok(Arrays.asList(results));
+    }
+
     public record CreateObservationRequest(
             String patientPersonnummer,
             String performerPersonnummer,
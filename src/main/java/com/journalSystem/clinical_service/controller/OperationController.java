@@ -0,0 +1,56 @@
+package com.journalSystem.clinical_service.controller;
+
+import com.journalSystem.clinical_service.dto.OperationStatusDTO;
+import com.journalSystem.clinical_service.service.AsyncCreateService;
+import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.r4.model.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/api/v1/clinical/operations")
+@CrossOrigin(origins = {"http://localhost:30000", "http://localhost:3000","https://patientsystem-frontend.app.cloud.cbh.kth.se"})
+@RequiredArgsConstructor
+public class OperationController {
+
+    private final AsyncCreateService asyncCreateService;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<OperationStatusDTO> getOperation(@PathVariable String id) {
+        return asyncCreateService.getOperation(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Queues an already validated create and answers 202 with the operation's location,
+     * or 503 when the queue is full.
+     */
+    static ResponseEntity<OperationStatusDTO> submit(
+            AsyncCreateService asyncCreateService,
+            String resourceType,
+            Supplier<? extends Resource> create
+    ) {
+        try {
+            String operationId = asyncCreateService.submit(resourceType, create);
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/v1/clinical/operations/{id}")
+                    .buildAndExpand(operationId)
+                    .toUri();
+            return ResponseEntity.accepted()
+                    .location(location)
+                    .body(asyncCreateService.getOperation(operationId).orElse(null));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+    }
+}
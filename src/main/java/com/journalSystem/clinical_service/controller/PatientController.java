@@ -2,8 +2,13 @@ package com.journalSystem.clinical_service.controller;
 
 import com.journalSystem.clinical_service.dto.PatientDTO;
 import com.journalSystem.clinical_service.mapper.FhirMapper;
+import com.journalSystem.clinical_service.service.EncodedResponseCache;
+import com.journalSystem.clinical_service.service.FhirJsonSearchService;
 import com.journalSystem.clinical_service.service.HapiPatientService;
+import com.journalSystem.clinical_service.service.PatientSearchIndex;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.r4.model.Patient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,18 +20,50 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PatientController {
 
+    private static final int MAX_LIMIT = 100;
+
     private final HapiPatientService hapiPatientService;
+    private final PatientSearchIndex patientSearchIndex;
+    private final FhirJsonSearchService fhirJsonSearchService;
+    private final EncodedResponseCache encodedResponseCache;
 
     @GetMapping
     public List<PatientDTO> getAllPatients() {
-        return hapiPatientService.getAllPatients()
+        if (fhirJsonSearchService.isEnabled()) {
+            return fhirJsonSearchService.getAllPatients();
+        }
+        return FhirMapper.toDTOs(hapiPatientService.getAllPatients(), FhirMapper::patientToDTO);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<PatientDTO>> searchPatients(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        if (q.isBlank() || limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (patientSearchIndex.isReady()) {
+            return ResponseEntity.ok(patientSearchIndex.search(q, limit));
+        }
+
+        List<PatientDTO> patients = hapiPatientService.searchPatients(q.strip())
                 .stream()
+                .limit(limit)
                 .map(FhirMapper::patientToDTO)
                 .toList();
+        return ResponseEntity.ok(patients);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PatientDTO> getPatientById(@PathVariable String id) {
+    public ResponseEntity<?> getPatientById(@PathVariable String id, HttpServletRequest request) {
+        if (CachedResponses.applies(encodedResponseCache, request)) {
+            return encodedResponseCache.getResource(Patient.class, id, FhirMapper::patientToDTO,
+                            CachedResponses.acceptsGzip(request))
+                    .map(CachedResponses::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
         return hapiPatientService.getPatientById(id)
                 .map(FhirMapper::patientToDTO)
                 .map(ResponseEntity::ok)
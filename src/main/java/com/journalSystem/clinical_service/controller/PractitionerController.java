@@ -2,8 +2,13 @@ package com.journalSystem.clinical_service.controller;
 
 import com.journalSystem.clinical_service.dto.PractitionerDTO;
 import com.journalSystem.clinical_service.mapper.FhirMapper;
+import com.journalSystem.clinical_service.service.EncodedResponseCache;
+import com.journalSystem.clinical_service.service.FhirJsonSearchService;
 import com.journalSystem.clinical_service.service.HapiPractitionerService;
+import com.journalSystem.clinical_service.service.PractitionerSearchIndex;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.r4.model.Practitioner;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,18 +20,29 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PractitionerController {
 
+    private static final int MAX_LIMIT = 100;
+
     private final HapiPractitionerService hapiPractitionerService;
+    private final PractitionerSearchIndex practitionerSearchIndex;
+    private final FhirJsonSearchService fhirJsonSearchService;
+    private final EncodedResponseCache encodedResponseCache;
 
     @GetMapping
     public List<PractitionerDTO> getAllPractitioners() {
-        return hapiPractitionerService.getAllPractitioners()
-                .stream()
-                .map(FhirMapper::practitionerToDTO)
-                .toList();
+        if (fhirJsonSearchService.isEnabled()) {
+            return fhirJsonSearchService.getAllPractitioners();
+        }
+        return FhirMapper.toDTOs(hapiPractitionerService.getAllPractitioners(), FhirMapper::practitionerToDTO);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PractitionerDTO> getPractitionerById(@PathVariable String id) {
+    public ResponseEntity<?> getPractitionerById(@PathVariable String id, HttpServletRequest request) {
+        if (CachedResponses.applies(encodedResponseCache, request)) {
+            return encodedResponseCache.getResource(Practitioner.class, id, FhirMapper::practitionerToDTO,
+                            CachedResponses.acceptsGzip(request))
+                    .map(CachedResponses::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
         return hapiPractitionerService.getPractitionerById(id)
                 .map(FhirMapper::practitionerToDTO)
                 .map(ResponseEntity::ok)
@@ -34,10 +50,23 @@ public class PractitionerController {
     }
 
     @GetMapping("/search")
-    public List<PractitionerDTO> searchPractitioner(@RequestParam String name) {
-        return hapiPractitionerService.searchPractitionerByName(name)
+    public ResponseEntity<List<PractitionerDTO>> searchPractitioner(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (practitionerSearchIndex.isReady()) {
+            return ResponseEntity.ok(practitionerSearchIndex.search(name, limit));
+        }
+
+        List<PractitionerDTO> practitioners = hapiPractitionerService.searchPractitionerByName(name)
                 .stream()
+                .limit(limit)
                 .map(FhirMapper::practitionerToDTO)
                 .toList();
+        return ResponseEntity.ok(practitioners);
     }
 }
\ No newline at end of file
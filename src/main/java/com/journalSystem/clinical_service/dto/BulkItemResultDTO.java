@@ -0,0 +1,19 @@
+package com.journalSystem.clinical_service.dto;
+
+public record BulkItemResultDTO(
+        String status,
+        String id,
+        String error
+) {
+    public static BulkItemResultDTO created(String id) {
+        return new BulkItemResultDTO("CREATED", id, null);
+    }
+
+    public static BulkItemResultDTO rejected(String error) {
+        return new BulkItemResultDTO("REJECTED", null, error);
+    }
+
+    public static BulkItemResultDTO failed(String error) {
+        return new BulkItemResultDTO("FAILED", null, error);
+    }
+}
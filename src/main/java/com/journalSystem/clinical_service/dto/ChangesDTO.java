@@ -0,0 +1,10 @@
+package com.journalSystem.clinical_service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ChangesDTO<T>(
+        List<T> entries,
+        Instant watermark,
+        boolean hasMore
+) {}
@@ -0,0 +1,17 @@
+package com.journalSystem.clinical_service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ImportStatusDTO(
+        String id,
+        boolean finished,
+        long linesRead,
+        long imported,
+        long rejected,
+        long failed,
+        double recordsPerSecond,
+        int concurrency,
+        Instant startedAt,
+        List<String> errors
+) {}
@@ -0,0 +1,13 @@
+package com.journalSystem.clinical_service.dto;
+
+import java.time.Instant;
+
+public record OperationStatusDTO(
+        String id,
+        String status,
+        String resourceType,
+        String resourceId,
+        String error,
+        Instant submittedAt,
+        Instant completedAt
+) {}
@@ -0,0 +1,517 @@
+package com.journalSystem.clinical_service.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.journalSystem.clinical_service.dto.*;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.DateType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Decodes FHIR JSON search Bundles straight into the service DTOs.
+ * <p>
+ * The Bundle is read with a streaming parser and only the fields {@link FhirMapper} uses are kept;
+ * everything else is skipped without being materialised. The resulting DTOs are identical to
+ * parsing the Bundle with HAPI and mapping each resource through {@link FhirMapper}: ids and
+ * references go through the same helpers, and date strings are parsed by HAPI's own
+ * {@link DateTimeType}/{@link DateType} so partial dates and time zones resolve the same way.
+ * <p>
+ * Entries whose resource is not of the requested type (e.g. an {@code OperationOutcome} with
+ * search mode {@code outcome}) are skipped.
+ */
+public final class FhirJsonDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private FhirJsonDecoder() {
+    }
+
+    public static List<ObservationDTO> decodeObservations(InputStream bundle) throws IOException {
+        return decodeBundle(bundle, "Observation", FhirJsonDecoder::toObservation);
+    }
+
+    public static List<ConditionDTO> decodeConditions(InputStream bundle) throws IOException {
+        return decodeBundle(bundle, "Condition", FhirJsonDecoder::toCondition);
+    }
+
+    public static List<EncounterDTO> decodeEncounters(InputStream bundle) throws IOException {
+        return decodeBundle(bundle, "Encounter", FhirJsonDecoder::toEncounter);
+    }
+
+    public static List<PatientDTO> decodePatients(InputStream bundle) throws IOException {
+        return decodeBundle(bundle, "Patient", FhirJsonDecoder::toPatient);
+    }
+
+    public static List<PractitionerDTO> decodePractitioners(InputStream bundle) throws IOException {
+        return decodeBundle(bundle, "Practitioner", FhirJsonDecoder::toPractitioner);
+    }
+
+    /**
+     * Reference element: {@code present} mirrors HAPI's {@code hasX()}, which is true for any
+     * non-empty reference even when it carries no {@code reference} string.
+     */
+    private record Ref(boolean present, String reference) {
+        static final Ref ABSENT = new Ref(false, null);
+    }
+
+    /**
+     * The union of the fields used by the DTO mappings, filled in whatever order they appear.
+     */
+    private static final class Fields {
+        String resourceType;
+        String id;
+
+        Ref subject = Ref.ABSENT;
+        Ref encounter = Ref.ABSENT;
+        Ref asserter = Ref.ABSENT;
+        Ref recorder = Ref.ABSENT;
+        Ref serviceProvider = Ref.ABSENT;
+        Ref firstPerformer = Ref.ABSENT;
+        List<Ref> participants;
+
+        boolean hasCode;
+        String codeText;
+        boolean hasCoding;
+        String firstCodingDisplay;
+
+        boolean hasValueQuantity;
+        BigDecimal quantityValue;
+        String quantityUnit;
+        boolean hasValueString;
+        String valueString;
+
+        String effectiveDateTime;
+        String recordedDate;
+        String periodStart;
+        String periodEnd;
+
+        String firstGiven;
+        String family;
+        String identifier;
+        String birthDate;
+        String qualificationText;
+    }
+
+    private static <D> List<D> decodeBundle(InputStream in, String resourceType, Function<Fields, D> mapping)
+            throws IOException {
+        List<D> results = new ArrayList<>();
+        try (JsonParser parser = JSON.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("entry".equals(name) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        Fields fields = readEntry(parser);
+                        if (fields != null && resourceType.equals(fields.resourceType)) {
+                            results.add(mapping.apply(fields));
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return results;
+    }
+
+    private static Fields readEntry(JsonParser parser) throws IOException {
+        Fields fields = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("resource".equals(name) && value == JsonToken.START_OBJECT) {
+                fields = readResource(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return fields;
+    }
+
+    private static Fields readResource(JsonParser parser) throws IOException {
+        Fields fields = new Fields();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case "resourceType" -> fields.resourceType = text(parser);
+                case "id" -> fields.id = text(parser);
+                case "subject" -> fields.subject = readReference(parser);
+                case "encounter" -> fields.encounter = readReference(parser);
+                case "asserter" -> fields.asserter = readReference(parser);
+                case "recorder" -> fields.recorder = readReference(parser);
+                case "serviceProvider" -> fields.serviceProvider = readReference(parser);
+                case "performer" -> readPerformers(parser, fields);
+                case "participant" -> readParticipants(parser, fields);
+                case "code" -> readCode(parser, fields);
+                case "valueQuantity" -> readQuantity(parser, fields);
+                case "valueString" -> {
+                    fields.hasValueString = true;
+                    fields.valueString = text(parser);
+                }
+                case "effectiveDateTime" -> fields.effectiveDateTime = text(parser);
+                case "recordedDate" -> fields.recordedDate = text(parser);
+                case "period" -> readPeriod(parser, fields);
+                case "name" -> readFirstName(parser, fields);
+                case "identifier" -> readIdentifier(parser, fields);
+                case "birthDate" -> fields.birthDate = text(parser);
+                case "qualification" -> readQualification(parser, fields);
+                default -> {
+                    if (value.isStructStart()) parser.skipChildren();
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static Ref readReference(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return Ref.ABSENT;
+        }
+        boolean present = false;
+        String reference = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value != JsonToken.VALUE_NULL) present = true;
+            if ("reference".equals(name)) {
+                reference = text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return present ? new Ref(true, reference) : Ref.ABSENT;
+    }
+
+    private static void readPerformers(JsonParser parser, Fields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        boolean first = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (first) {
+                fields.firstPerformer = readReference(parser);
+                first = false;
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readParticipants(JsonParser parser, Fields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        fields.participants = new ArrayList<>(2);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if ("individual".equals(name)) {
+                    fields.participants.add(readReference(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void readCode(JsonParser parser, Fields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value != JsonToken.VALUE_NULL) fields.hasCode = true;
+            if ("text".equals(name)) {
+                fields.codeText = text(parser);
+            } else if ("coding".equals(name) && value == JsonToken.START_ARRAY) {
+                boolean first = true;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    fields.hasCoding = true;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String codingField = parser.currentName();
+                        parser.nextToken();
+                        if (first && "display".equals(codingField)) {
+                            fields.firstCodingDisplay = text(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    first = false;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readQuantity(JsonParser parser, Fields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        fields.hasValueQuantity = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("value".equals(name) && value.isNumeric()) {
+                // HAPI reads decimals back from their plain string: 72.50 keeps its scale, 1E+2 becomes 100
+                fields.quantityValue = new BigDecimal(new BigDecimal(parser.getText()).toPlainString());
+            } else if ("unit".equals(name)) {
+                fields.quantityUnit = text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readPeriod(JsonParser parser, Fields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("start".equals(name)) {
+                fields.periodStart = text(parser);
+            } else if ("end".equals(name)) {
+                fields.periodEnd = text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readFirstName(JsonParser parser, Fields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        boolean first = true;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (first && "family".equals(name)) {
+                    fields.family = text(parser);
+                } else if (first && "given".equals(name) && value == JsonToken.START_ARRAY) {
+                    boolean firstGiven = true;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (firstGiven) {
+                            fields.firstGiven = text(parser);
+                            firstGiven = false;
+                        }
+                        parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            first = false;
+        }
+    }
+
+    private static void readIdentifier(JsonParser parser, Fields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                String value = "value".equals(name) ? text(parser) : null;
+                if (value != null && fields.identifier == null) {
+                    fields.identifier = value;
+                }
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readQualification(JsonParser parser, Fields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        boolean first = true;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (first && "code".equals(name) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String codeField = parser.currentName();
+                        parser.nextToken();
+                        if ("text".equals(codeField)) {
+                            fields.qualificationText = text(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            first = false;
+        }
+    }
+
+    /**
+     * String value of the current token; null for JSON null and for structures, which are skipped.
+     * Empty strings are treated as absent, as HAPI does for primitives.
+     */
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        if (token == JsonToken.VALUE_NULL) return null;
+        String text = parser.getText();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual);
+        }
+    }
+
+    // DTO MAPPING — mirrors FhirMapper field for field
+
+    private static ObservationDTO toObservation(Fields fields) {
+        Long id = FhirMapper.extractNumericId(fields.id);
+        Long patientId = fields.subject.present() ? FhirMapper.extractNumericId(fields.subject.reference()) : null;
+
+        Long practitionerId = null;
+        String performer = fields.firstPerformer.reference();
+        if (FhirMapper.isReferenceTo(performer, "Practitioner")) {
+            practitionerId = FhirMapper.extractNumericId(performer);
+        }
+
+        Long encounterId = fields.encounter.present() ? FhirMapper.extractNumericId(fields.encounter.reference()) : null;
+
+        String description = describe(fields, "Unknown observation");
+        if (fields.hasValueQuantity) {
+            description = FhirMapper.withValue(description, fields.quantityValue, fields.quantityUnit);
+        } else if (fields.hasValueString) {
+            description = FhirMapper.withValue(description, fields.valueString);
+        }
+
+        LocalDateTime effectiveDateTime = null;
+        Date effective = dateTime(fields.effectiveDateTime);
+        if (effective != null) {
+            effectiveDateTime = FhirMapper.toLocalDateTime(effective);
+        }
+
+        return new ObservationDTO(id, patientId, practitionerId, encounterId, description, effectiveDateTime);
+    }
+
+    private static ConditionDTO toCondition(Fields fields) {
+        Long id = FhirMapper.extractNumericId(fields.id);
+        Long patientId = fields.subject.present() ? FhirMapper.extractNumericId(fields.subject.reference()) : null;
+
+        Long practitionerId = null;
+        if (fields.asserter.present()) {
+            practitionerId = FhirMapper.extractNumericId(fields.asserter.reference());
+        } else if (fields.recorder.present()) {
+            practitionerId = FhirMapper.extractNumericId(fields.recorder.reference());
+        }
+
+        String description = describe(fields, "Unknown diagnosis");
+
+        LocalDate assertedDate = null;
+        Date recorded = dateTime(fields.recordedDate);
+        if (recorded != null) {
+            assertedDate = FhirMapper.toLocalDate(recorded);
+        }
+
+        return new ConditionDTO(id, patientId, practitionerId, description, assertedDate);
+    }
+
+    private static EncounterDTO toEncounter(Fields fields) {
+        Long id = FhirMapper.extractNumericId(fields.id);
+        Long patientId = fields.subject.present() ? FhirMapper.extractNumericId(fields.subject.reference()) : null;
+
+        Long practitionerId = null;
+        if (fields.participants != null) {
+            for (Ref individual : fields.participants) {
+                if (individual.present() && FhirMapper.isReferenceTo(individual.reference(), "Practitioner")) {
+                    practitionerId = FhirMapper.extractNumericId(individual.reference());
+                    break;
+                }
+            }
+        }
+
+        Long organizationId = fields.serviceProvider.present()
+                ? FhirMapper.extractNumericId(fields.serviceProvider.reference())
+                : null;
+
+        Date start = dateTime(fields.periodStart);
+        Date end = dateTime(fields.periodEnd);
+        LocalDateTime startTime = start != null ? FhirMapper.toLocalDateTime(start) : null;
+        LocalDateTime endTime = end != null ? FhirMapper.toLocalDateTime(end) : null;
+
+        return new EncounterDTO(id, patientId, practitionerId, organizationId, startTime, endTime);
+    }
+
+    private static PatientDTO toPatient(Fields fields) {
+        return new PatientDTO(
+                FhirMapper.extractNumericId(fields.id),
+                fields.firstGiven != null ? fields.firstGiven : "",
+                fields.family != null ? fields.family : "",
+                fields.identifier != null ? fields.identifier : "Unknown",
+                dateOfBirth(fields.birthDate)
+        );
+    }
+
+    private static PractitionerDTO toPractitioner(Fields fields) {
+        return new PractitionerDTO(
+                FhirMapper.extractNumericId(fields.id),
+                fields.firstGiven != null ? fields.firstGiven : "",
+                fields.family != null ? fields.family : "",
+                fields.identifier != null ? fields.identifier : "Unknown",
+                dateOfBirth(fields.birthDate),
+                fields.qualificationText != null ? fields.qualificationText : "Healthcare Professional",
+                null
+        );
+    }
+
+    private static String describe(Fields fields, String fallback) {
+        if (fields.codeText != null) {
+            return fields.codeText;
+        }
+        if (fields.hasCode && fields.hasCoding) {
+            return fields.firstCodingDisplay;
+        }
+        return fallback;
+    }
+
+    private static Date dateTime(String value) {
+        return value != null ? new DateTimeType(value).getValue() : null;
+    }
+
+    private static String dateOfBirth(String value) {
+        Date birthDate = value != null ? new DateType(value).getValue() : null;
+        return birthDate != null ? FhirMapper.toLocalDate(birthDate).toString() : null;
+    }
+}
@@ -3,11 +3,49 @@ package com.journalSystem.clinical_service.mapper;
 import com.journalSystem.clinical_service.dto.*;
 import org.hl7.fhir.r4.model.*;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
 import java.util.Date;
-
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Maps FHIR resources to the service DTOs.
+ * <p>
+ * Mapping runs on every response path, so dates are converted straight from epoch millis using
+ * the cached zone rules, and ids are parsed from the raw reference strings without building
+ * {@link IdType}s or throwing on non-numeric ids.
+ */
 public class FhirMapper {
 
+    private static final ZoneRules ZONE_RULES = ZoneId.systemDefault().getRules();
+    private static final ZoneOffset FIXED_OFFSET = ZONE_RULES.isFixedOffset() ? ZONE_RULES.getOffset(Instant.EPOCH) : null;
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final String HISTORY_SEGMENT = "/_history/";
+
+    /**
+     * Maps a batch of resources, e.g. a search result, and emits it as one {@link FhirMappingEvent}
+     * to Java Flight Recorder.
+     */
+    public static <R extends Resource, D> List<D> toDTOs(List<R> resources, Function<R, D> mapper) {
+        FhirMappingEvent event = new FhirMappingEvent();
+        event.begin();
+        List<D> dtos = resources.stream().map(mapper).toList();
+        event.end();
+        if (event.shouldCommit()) {
+            event.resourceType = resources.isEmpty() ? null : resources.get(0).fhirType();
+            event.entries = resources.size();
+            event.commit();
+        }
+        return dtos;
+    }
+
     public static PatientDTO patientToDTO(org.hl7.fhir.r4.model.Patient fhirPatient) {
         if (fhirPatient == null) return null;
 
@@ -15,9 +53,9 @@ public class FhirMapper {
 
         String firstName = "";
         String lastName = "";
-        if (!fhirPatient.getName().isEmpty()) {
+        if (fhirPatient.hasName()) {
             HumanName name = fhirPatient.getName().get(0);
-            if (!name.getGiven().isEmpty()) {
+            if (name.hasGiven()) {
                 firstName = name.getGiven().get(0).getValue();
             }
             if (name.hasFamily()) {
@@ -28,13 +66,7 @@ public class FhirMapper {
         String socialSecurityNumber = extractIdentifier(fhirPatient.getIdentifier());
 
         Date birthDate = fhirPatient.getBirthDate();
-        String dateOfBirth = null;
-        if (birthDate != null) {
-            dateOfBirth = birthDate.toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDate()
-                    .toString();
-        }
+        String dateOfBirth = birthDate != null ? toLocalDate(birthDate).toString() : null;
 
         return new PatientDTO(id, firstName, lastName, socialSecurityNumber, dateOfBirth);
     }
@@ -46,9 +78,9 @@ public class FhirMapper {
 
         String firstName = "";
         String lastName = "";
-        if (!fhirPractitioner.getName().isEmpty()) {
+        if (fhirPractitioner.hasName()) {
             HumanName name = fhirPractitioner.getName().get(0);
-            if (!name.getGiven().isEmpty()) {
+            if (name.hasGiven()) {
                 firstName = name.getGiven().get(0).getValue();
             }
             if (name.hasFamily()) {
@@ -59,16 +91,10 @@ public class FhirMapper {
         String socialSecurityNumber = extractIdentifier(fhirPractitioner.getIdentifier());
 
         Date birthDate = fhirPractitioner.getBirthDate();
-        String dateOfBirth = null;
-        if (birthDate != null) {
-            dateOfBirth = birthDate.toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDate()
-                    .toString();
-        }
+        String dateOfBirth = birthDate != null ? toLocalDate(birthDate).toString() : null;
 
         String title = "Healthcare Professional";
-        if (!fhirPractitioner.getQualification().isEmpty()) {
+        if (fhirPractitioner.hasQualification()) {
             Practitioner.PractitionerQualificationComponent qual = fhirPractitioner.getQualification().get(0);
             if (qual.hasCode() && qual.getCode().hasText()) {
                 title = qual.getCode().getText();
@@ -85,41 +111,42 @@ public class FhirMapper {
 
         Long patientId = null;
         if (fhirObservation.hasSubject()) {
-            patientId = extractNumericId(fhirObservation.getSubject().getReferenceElement().getIdPart());
+            patientId = referenceId(fhirObservation.getSubject());
         }
 
         Long practitionerId = null;
-        if (!fhirObservation.getPerformer().isEmpty()) {
+        if (fhirObservation.hasPerformer()) {
             Reference performer = fhirObservation.getPerformer().get(0);
-            if (performer.getReferenceElement().getResourceType().equals("Practitioner")) {
-                practitionerId = extractNumericId(performer.getReferenceElement().getIdPart());
+            if (isReferenceTo(performer, "Practitioner")) {
+                practitionerId = referenceId(performer);
             }
         }
 
         Long encounterId = null;
         if (fhirObservation.hasEncounter()) {
-            encounterId = extractNumericId(fhirObservation.getEncounter().getReferenceElement().getIdPart());
+            encounterId = referenceId(fhirObservation.getEncounter());
         }
 
         String description = "Unknown observation";
         if (fhirObservation.hasCode() && fhirObservation.getCode().hasText()) {
             description = fhirObservation.getCode().getText();
-        } else if (fhirObservation.hasCode() && !fhirObservation.getCode().getCoding().isEmpty()) {
+        } else if (fhirObservation.hasCode() && fhirObservation.getCode().hasCoding()) {
             description = fhirObservation.getCode().getCoding().get(0).getDisplay();
         }
 
         if (fhirObservation.hasValueQuantity()) {
             Quantity value = fhirObservation.getValueQuantity();
-            description += ": " + value.getValue() + " " + value.getUnit();
+            description = withValue(description, value.getValue(), value.getUnit());
         } else if (fhirObservation.hasValueStringType()) {
-            description += ": " + fhirObservation.getValueStringType().getValue();
+            description = withValue(description, fhirObservation.getValueStringType().getValue());
         }
 
-        java.time.LocalDateTime effectiveDateTime = null;
+        LocalDateTime effectiveDateTime = null;
         if (fhirObservation.hasEffectiveDateTimeType()) {
-            effectiveDateTime = fhirObservation.getEffectiveDateTimeType().getValue().toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDateTime();
+            Date effective = fhirObservation.getEffectiveDateTimeType().getValue();
+            if (effective != null) {
+                effectiveDateTime = toLocalDateTime(effective);
+            }
         }
 
         return new ObservationDTO(id, patientId, practitionerId, encounterId, description, effectiveDateTime);
@@ -132,28 +159,26 @@ public class FhirMapper {
 
         Long patientId = null;
         if (fhirCondition.hasSubject()) {
-            patientId = extractNumericId(fhirCondition.getSubject().getReferenceElement().getIdPart());
+            patientId = referenceId(fhirCondition.getSubject());
         }
 
         Long practitionerId = null;
         if (fhirCondition.hasAsserter()) {
-            practitionerId = extractNumericId(fhirCondition.getAsserter().getReferenceElement().getIdPart());
+            practitionerId = referenceId(fhirCondition.getAsserter());
         } else if (fhirCondition.hasRecorder()) {
-            practitionerId = extractNumericId(fhirCondition.getRecorder().getReferenceElement().getIdPart());
+            practitionerId = referenceId(fhirCondition.getRecorder());
         }
 
         String description = "Unknown diagnosis";
         if (fhirCondition.hasCode() && fhirCondition.getCode().hasText()) {
             description = fhirCondition.getCode().getText();
-        } else if (fhirCondition.hasCode() && !fhirCondition.getCode().getCoding().isEmpty()) {
+        } else if (fhirCondition.hasCode() && fhirCondition.getCode().hasCoding()) {
             description = fhirCondition.getCode().getCoding().get(0).getDisplay();
         }
 
-        java.time.LocalDate assertedDate = null;
+        LocalDate assertedDate = null;
         if (fhirCondition.hasRecordedDate()) {
-            assertedDate = fhirCondition.getRecordedDate().toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDate();
+            assertedDate = toLocalDate(fhirCondition.getRecordedDate());
         }
 
         return new ConditionDTO(id, patientId, practitionerId, description, assertedDate);
@@ -166,44 +191,55 @@ public class FhirMapper {
 
         Long patientId = null;
         if (fhirEncounter.hasSubject()) {
-            patientId = extractNumericId(fhirEncounter.getSubject().getReferenceElement().getIdPart());
+            patientId = referenceId(fhirEncounter.getSubject());
         }
 
         Long practitionerId = null;
-        if (!fhirEncounter.getParticipant().isEmpty()) {
-            for (Encounter.EncounterParticipantComponent participant : fhirEncounter.getParticipant()) {
-                if (participant.hasIndividual() &&
-                        participant.getIndividual().getReferenceElement().getResourceType().equals("Practitioner")) {
-                    practitionerId = extractNumericId(participant.getIndividual().getReferenceElement().getIdPart());
-                    break;
-                }
+        for (Encounter.EncounterParticipantComponent participant : fhirEncounter.getParticipant()) {
+            if (participant.hasIndividual() && isReferenceTo(participant.getIndividual(), "Practitioner")) {
+                practitionerId = referenceId(participant.getIndividual());
+                break;
             }
         }
 
         Long organizationId = null;
         if (fhirEncounter.hasServiceProvider()) {
-            organizationId = extractNumericId(fhirEncounter.getServiceProvider().getReferenceElement().getIdPart());
+            organizationId = referenceId(fhirEncounter.getServiceProvider());
         }
 
-        java.time.LocalDateTime startTime = null;
-        java.time.LocalDateTime endTime = null;
+        LocalDateTime startTime = null;
+        LocalDateTime endTime = null;
         if (fhirEncounter.hasPeriod()) {
             Period period = fhirEncounter.getPeriod();
             if (period.hasStart()) {
-                startTime = period.getStart().toInstant()
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDateTime();
+                startTime = toLocalDateTime(period.getStart());
             }
             if (period.hasEnd()) {
-                endTime = period.getEnd().toInstant()
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDateTime();
+                endTime = toLocalDateTime(period.getEnd());
             }
         }
 
         return new EncounterDTO(id, patientId, practitionerId, organizationId, startTime, endTime);
     }
 
+    static String withValue(String description, BigDecimal value, String unit) {
+        return new StringBuilder(64)
+                .append(description)
+                .append(": ")
+                .append(value)
+                .append(' ')
+                .append(unit)
+                .toString();
+    }
+
+    static String withValue(String description, String value) {
+        return new StringBuilder(64)
+                .append(description)
+                .append(": ")
+                .append(value)
+                .toString();
+    }
+
     private static String extractIdentifier(java.util.List<Identifier> identifiers) {
         for (Identifier identifier : identifiers) {
             if (identifier.hasValue()) {
@@ -213,16 +249,76 @@ public class FhirMapper {
         return "Unknown";
     }
 
-    private static Long extractNumericId(String fhirId) {
-        try {
-            if (fhirId == null) return 0L;
-            if (fhirId.contains("/")) {
-                fhirId = fhirId.substring(fhirId.lastIndexOf("/") + 1);
+    /**
+     * Numeric id of a reference such as {@code Patient/123}, an absolute URL, or a versioned
+     * {@code Patient/123/_history/2}. Non-numeric ids map to 0.
+     */
+    private static Long referenceId(Reference reference) {
+        return extractNumericId(reference.getReference());
+    }
+
+    private static boolean isReferenceTo(Reference reference, String resourceType) {
+        return isReferenceTo(reference.getReference(), resourceType);
+    }
+
+    /**
+     * True when the reference's type segment equals {@code resourceType}. Local ids
+     * ({@code 123}, {@code #contained}) have no type and never match.
+     */
+    static boolean isReferenceTo(String value, String resourceType) {
+        if (value == null) return false;
+
+        int end = idEnd(value);
+        int idStart = value.lastIndexOf('/', end - 1);
+        if (idStart <= 0) return false;
+
+        int typeStart = value.lastIndexOf('/', idStart - 1) + 1;
+        return idStart - typeStart == resourceType.length()
+                && value.regionMatches(typeStart, resourceType, 0, resourceType.length());
+    }
+
+    /**
+     * Parses the last path segment of {@code fhirId} (ignoring any {@code /_history/} suffix) as a
+     * non-negative long. Returns 0 for null, non-numeric or overflowing ids instead of throwing.
+     */
+    static Long extractNumericId(String fhirId) {
+        if (fhirId == null) return 0L;
+
+        int end = idEnd(fhirId);
+        int start = fhirId.lastIndexOf('/', end - 1) + 1;
+        if (start >= end) return 0L;
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = fhirId.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return 0L;
             }
-            return Long.parseLong(fhirId);
-        } catch (NumberFormatException e) {
-            System.err.println("Could not convert FHIR ID: " + fhirId);
-            return 0L;
+            value = value * 10 + digit;
         }
+        return value;
+    }
+
+    private static int idEnd(String reference) {
+        int history = reference.indexOf(HISTORY_SEGMENT);
+        return history >= 0 ? history : reference.length();
+    }
+
+    private static ZoneOffset offsetAt(long epochMillis) {
+        return FIXED_OFFSET != null ? FIXED_OFFSET : ZONE_RULES.getOffset(Instant.ofEpochMilli(epochMillis));
+    }
+
+    static LocalDateTime toLocalDateTime(Date date) {
+        long epochMillis = date.getTime();
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(epochMillis, 1000),
+                (int) Math.floorMod(epochMillis, 1000) * 1_000_000,
+                offsetAt(epochMillis));
+    }
+
+    static LocalDate toLocalDate(Date date) {
+        long epochMillis = date.getTime();
+        long localSeconds = Math.floorDiv(epochMillis, 1000) + offsetAt(epochMillis).getTotalSeconds();
+        return LocalDate.ofEpochDay(Math.floorDiv(localSeconds, SECONDS_PER_DAY));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package com.journalSystem.clinical_service.mapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one batch of resources mapped by {@link FhirMapper#toDTOs}.
+ * Recorded only while a JFR recording with {@code clinical.FhirMapping} enabled is running.
+ */
+@Name("clinical.FhirMapping")
+@Label("FHIR Mapping")
+@Description("A batch of FHIR resources mapped to DTOs")
+@Category({"Clinical Service", "FHIR"})
+@StackTrace(false)
+class FhirMappingEvent extends Event {
+
+    @Label("Resource Type")
+    String resourceType;
+
+    @Label("Entries")
+    int entries;
+}
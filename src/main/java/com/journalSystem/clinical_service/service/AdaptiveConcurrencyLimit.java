@@ -0,0 +1,49 @@
+package com.journalSystem.clinical_service.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMD limit on concurrent upstream calls: the limit grows by one after each call that finishes
+ * within the target latency and is halved after a slow or failed call. {@link #acquire()} blocks
+ * while the limit is reached, which pushes back on whoever is producing the work.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+
+    private int limit = 1;
+    private int inFlight;
+
+    AdaptiveConcurrencyLimit(int maxLimit, long targetLatencyMillis) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    }
+
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    synchronized void release(long latencyNanos, boolean success) {
+        inFlight--;
+        if (success && latencyNanos <= targetLatencyNanos) {
+            limit = Math.min(maxLimit, limit + 1);
+        } else {
+            limit = Math.max(1, limit / 2);
+        }
+        notifyAll();
+    }
+
+    synchronized void awaitIdle() throws InterruptedException {
+        while (inFlight > 0) {
+            wait();
+        }
+    }
+
+    synchronized int limit() {
+        return limit;
+    }
+}
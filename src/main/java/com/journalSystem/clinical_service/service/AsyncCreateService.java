@@ -0,0 +1,111 @@
+package com.journalSystem.clinical_service.service;
+
+import com.journalSystem.clinical_service.dto.OperationStatusDTO;
+import jakarta.annotation.PreDestroy;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs clinical creates in the background and tracks their outcome as pollable operations.
+ * <p>
+ * Work is queued on a bounded executor: a burst fills the queue instead of tying up request threads,
+ * and once the queue is full new submissions are rejected so callers can back off.
+ * Finished operations are kept for {@code clinical.async-create.retention-ms}.
+ */
+@Service
+public class AsyncCreateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncCreateService.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final ThreadPoolExecutor executor;
+    private final long retentionMillis;
+    private final Map<String, OperationStatusDTO> operations = new ConcurrentHashMap<>();
+
+    public AsyncCreateService(
+            @Value("${clinical.async-create.threads:4}") int threads,
+            @Value("${clinical.async-create.queue-capacity:500}") int queueCapacity,
+            @Value("${clinical.async-create.retention-ms:3600000}") long retentionMillis
+    ) {
+        this.retentionMillis = retentionMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "async-create-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues {@code create} and returns the id of the operation tracking it.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public String submit(String resourceType, Supplier<? extends Resource> create) {
+        String id = UUID.randomUUID().toString();
+        Instant submittedAt = Instant.now();
+        operations.put(id, new OperationStatusDTO(id, PENDING, resourceType, null, null, submittedAt, null));
+
+        try {
+            executor.execute(() -> run(id, resourceType, submittedAt, create));
+        } catch (RejectedExecutionException e) {
+            operations.remove(id);
+            throw e;
+        }
+        return id;
+    }
+
+    public Optional<OperationStatusDTO> getOperation(String id) {
+        return Optional.ofNullable(operations.get(id));
+    }
+
+    private void run(String id, String resourceType, Instant submittedAt, Supplier<? extends Resource> create) {
+        operations.put(id, new OperationStatusDTO(id, RUNNING, resourceType, null, null, submittedAt, null));
+        try {
+            Resource created = create.get();
+            operations.put(id, new OperationStatusDTO(id, COMPLETED, resourceType,
+                    created.getIdElement().getIdPart(), null, submittedAt, Instant.now()));
+        } catch (Exception e) {
+            logger.warn("Async {} create {} failed: {}", resourceType, id, e.getMessage());
+            operations.put(id, new OperationStatusDTO(id, FAILED, resourceType,
+                    null, e.getMessage(), submittedAt, Instant.now()));
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeFinished() {
+        Instant cutoff = Instant.now().minusMillis(retentionMillis);
+        operations.values().removeIf(operation ->
+                operation.completedAt() != null && operation.completedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,84 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.IQuery;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.InstantType;
+import org.hl7.fhir.r4.model.Resource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Resources created or updated after a watermark, plus the watermark to use for the next poll.
+ *
+ * @param resources changed resources, oldest change first
+ * @param watermark newest {@code meta.lastUpdated} seen, or the requested watermark when nothing changed
+ * @param hasMore   the server has more changes than fit in one page; poll again with {@code watermark}.
+ *                  Never set by {@link #collect}, which reads every page.
+ */
+public record ChangeSet<T extends Resource>(List<T> resources, Instant watermark, boolean hasMore) {
+
+    public static <T extends Resource> ChangeSet<T> empty(Instant since) {
+        return new ChangeSet<>(List.of(), since, false);
+    }
+
+    /**
+     * Restricts a search to resources changed after {@code since} (all resources when null),
+     * ordered by {@code _lastUpdated} so a truncated page still yields a gap-free watermark.
+     */
+    static IQuery<IBaseBundle> changedSince(IQuery<IBaseBundle> query, Instant since) {
+        if (since != null) {
+            DateParam lowerBound = new DateParam(ParamPrefixEnum.GREATERTHAN, new InstantType(Date.from(since)));
+            query = query.lastUpdated(new DateRangeParam(lowerBound));
+        }
+        return query.sort().ascending(Constants.PARAM_LASTUPDATED);
+    }
+
+    /**
+     * Reads {@code firstPage} and every page after it. The watermark must come from the complete
+     * result: resources written in one transaction share their {@code lastUpdated}, and those
+     * spilling onto a page after the one that set the watermark would never match {@code gt} again.
+     */
+    static <T extends Resource> ChangeSet<T> collect(IGenericClient client, Bundle firstPage, Class<T> type, Instant since) {
+        List<T> resources = new ArrayList<>();
+        Instant watermark = since;
+        Bundle page = firstPage;
+        while (true) {
+            ChangeSet<T> changes = fromBundle(page, type, watermark);
+            resources.addAll(changes.resources());
+            watermark = changes.watermark();
+
+            if (!changes.hasMore()) break;
+            Bundle current = page;
+            page = RequestTimings.fhirCall(() -> client.loadPage().next(current).execute());
+        }
+        return new ChangeSet<>(List.copyOf(resources), watermark, false);
+    }
+
+    static <T extends Resource> ChangeSet<T> fromBundle(Bundle bundle, Class<T> type, Instant since) {
+        List<T> resources = bundle.getEntry()
+                .stream()
+                .map(Bundle.BundleEntryComponent::getResource)
+                .filter(type::isInstance)
+                .map(type::cast)
+                .toList();
+
+        Instant watermark = since;
+        for (T resource : resources) {
+            Date lastUpdated = resource.getMeta().getLastUpdated();
+            if (lastUpdated != null && (watermark == null || lastUpdated.toInstant().isAfter(watermark))) {
+                watermark = lastUpdated.toInstant();
+            }
+        }
+
+        return new ChangeSet<>(resources, watermark, bundle.getLink(Bundle.LINK_NEXT) != null);
+    }
+}
@@ -0,0 +1,214 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.client.exceptions.FhirClientConnectionException;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional micro-batching of concurrent creates.
+ * <p>
+ * Creates arriving within {@code clinical.create-batching.window-ms} of each other, up to
+ * {@code clinical.create-batching.max-batch-size}, are sent to FHIR as one {@code transaction} Bundle.
+ * Each caller blocks until its own entry has been stored, at most {@code clinical.create-batching.timeout-ms}.
+ * A transaction is all-or-nothing, so when the server rejects it (an HTTP error status) every entry is
+ * retried as an individual create and each caller gets its own outcome. Failures without a status, such
+ * as a read timeout, may follow a committed transaction; retrying would duplicate entries without an
+ * idempotency key, so those fail every caller instead.
+ * When batching is disabled, creates go straight to {@link HapiClientService}.
+ */
+@Component
+public class CreateBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreateBatcher.class);
+
+    private static final int SUBMIT_THREADS = 4;
+
+    private record PendingCreate(Resource resource, String idempotencyKey, CompletableFuture<Resource> result) {}
+
+    private static final class Batch {
+        private final List<PendingCreate> creates = new ArrayList<>();
+        private ScheduledFuture<?> flushTask;
+    }
+
+    private final HapiClientService hapiClient;
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final long timeoutMillis;
+
+    private ScheduledThreadPoolExecutor submitter;
+    private Batch current;
+
+    public CreateBatcher(
+            HapiClientService hapiClient,
+            MeterRegistry meterRegistry,
+            @Value("${clinical.create-batching.enabled:false}") boolean enabled,
+            @Value("${clinical.create-batching.window-ms:10}") long windowMillis,
+            @Value("${clinical.create-batching.max-batch-size:50}") int maxBatchSize,
+            @Value("${clinical.create-batching.timeout-ms:30000}") long timeoutMillis
+    ) {
+        this.hapiClient = hapiClient;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.batchSizes = DistributionSummary.builder("clinical.create.batch.size")
+                .description("Number of creates submitted per FHIR transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("clinical.create.batch.fallbacks")
+                .description("Batches retried as individual creates after the transaction failed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        submitter = new ScheduledThreadPoolExecutor(SUBMIT_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "create-batcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        submitter.setRemoveOnCancelPolicy(true);
+        submitter.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (submitter == null) return;
+
+        Batch remaining;
+        synchronized (this) {
+            remaining = current;
+            current = null;
+        }
+        if (remaining != null) {
+            remaining.flushTask.cancel(false);
+            submit(remaining.creates);
+        }
+        submitter.shutdown();
+        submitter.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates {@code resource}, possibly together with other concurrent creates, and returns it as
+     * stored by the server. Semantics match {@link HapiClientService#create(Resource, String)}.
+     */
+    public <T extends Resource> T create(T resource, String idempotencyKey) {
+        if (submitter == null) {
+            return hapiClient.create(resource, idempotencyKey);
+        }
+
+        PendingCreate create = new PendingCreate(resource, idempotencyKey, new CompletableFuture<>());
+        List<PendingCreate> full = null;
+        synchronized (this) {
+            if (current == null) {
+                Batch batch = new Batch();
+                current = batch;
+                batch.flushTask = submitter.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            current.creates.add(create);
+            if (current.creates.size() >= maxBatchSize) {
+                current.flushTask.cancel(false);
+                full = current.creates;
+                current = null;
+            }
+        }
+        if (full != null) {
+            submit(full);
+        }
+
+        try {
+            @SuppressWarnings("unchecked")
+            Class<T> type = (Class<T>) resource.getClass();
+            return type.cast(create.result().get(timeoutMillis, TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Batched create failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out waiting for batched create of " + resource.fhirType(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for batched create", e);
+        }
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            // Already submitted by the caller that filled it
+            if (current != batch) return;
+            current = null;
+        }
+        submit(batch.creates);
+    }
+
+    private void submit(List<PendingCreate> creates) {
+        batchSizes.record(creates.size());
+
+        if (creates.size() > 1) {
+            try {
+                List<Resource> created = hapiClient.createInTransaction(
+                        creates.stream().map(PendingCreate::resource).toList(),
+                        creates.stream().map(PendingCreate::idempotencyKey).toList());
+                for (int i = 0; i < creates.size(); i++) {
+                    creates.get(i).result().complete(created.get(i));
+                }
+                return;
+            } catch (Exception e) {
+                if (!isRejected(e)) {
+                    logger.warn("Batched create of {} resources failed with unknown outcome, not retrying: {}",
+                            creates.size(), e.getMessage());
+                    creates.forEach(create -> create.result().completeExceptionally(e));
+                    return;
+                }
+                fallbacks.increment();
+                logger.warn("Batched create of {} resources failed, retrying individually: {}",
+                        creates.size(), e.getMessage());
+            }
+        }
+
+        for (PendingCreate create : creates) {
+            try {
+                create.result().complete(hapiClient.create(create.resource(), create.idempotencyKey()));
+            } catch (Exception e) {
+                create.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Whether the server answered the transaction with an error status, so nothing was stored.
+     * HAPI reports connection failures and timeouts as {@link FhirClientConnectionException} with
+     * status 500 although no response arrived, so those do not count.
+     */
+    private static boolean isRejected(Exception e) {
+        return e instanceof BaseServerResponseException response
+                && !(e instanceof FhirClientConnectionException)
+                && response.getStatusCode() >= 400;
+    }
+}
@@ -0,0 +1,274 @@
+package com.journalSystem.clinical_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of final JSON response bodies, in identity and gzip variants, for hot reads: single
+ * resources by id and a patient's chart lists.
+ * <p>
+ * Entries are validated against FHIR on every request, so a hit is never stale:
+ * <ul>
+ *   <li>single resources by a conditional read on the cached {@code meta.versionId}; a
+ *       {@code 304 Not Modified} serves the cached bytes</li>
+ *   <li>patient lists by {@link HapiClientService#patientWatermark}, a one-entry probe that changes
+ *       with any create, update or delete of the patient's resources of that type</li>
+ * </ul>
+ * A hit skips the full fetch, parsing, {@code FhirMapper} and Jackson. Memory is bounded by
+ * {@code clinical.response-cache.max-bytes}, least recently used entries first.
+ */
+@Component
+public class EncodedResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EncodedResponseCache.class);
+
+    /**
+     * A response body ready to be written as-is.
+     *
+     * @param gzipped {@code body} is gzip-compressed and needs {@code Content-Encoding: gzip}
+     */
+    public record Encoded(byte[] body, boolean gzipped) {}
+
+    private static final class Entry {
+        private final String version;
+        private final byte[] identity;
+        private byte[] gzip;
+
+        private Entry(String version, byte[] identity) {
+            this.version = version;
+            this.identity = identity;
+        }
+
+        private long size() {
+            return identity.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+
+    private final HapiClientService hapiClient;
+    private final FhirLookupService fhirLookupService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Counter hits;
+    private final Counter misses;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public EncodedResponseCache(
+            HapiClientService hapiClient,
+            FhirLookupService fhirLookupService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${clinical.response-cache.enabled:false}") boolean enabled,
+            @Value("${clinical.response-cache.max-bytes:67108864}") long maxBytes
+    ) {
+        this.hapiClient = hapiClient;
+        this.fhirLookupService = fhirLookupService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("clinical.response.cache.requests")
+                .description("Cached response bodies served after revalidation")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("clinical.response.cache.requests")
+                .description("Responses encoded because no current cached body existed")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Encoded DTO of the resource {@code type/id}, or empty when it cannot be read.
+     *
+     * @param toDto applied only when the resource changed since it was cached
+     */
+    public <T extends Resource> Optional<Encoded> getResource(Class<T> type, String id, Function<T, ?> toDto, boolean gzip) {
+        String key = type.getSimpleName() + "/" + id;
+        Entry cached = lookup(key);
+
+        T resource;
+        try {
+            resource = hapiClient.readIfModified(type, id, cached != null ? cached.version : null);
+        } catch (Exception e) {
+            logger.info("Could not find {} with ID {}: {}", type.getSimpleName(), id, e.getMessage());
+            remove(key);
+            return Optional.empty();
+        }
+
+        if (resource == null && cached != null) {
+            hits.increment();
+            return Optional.of(encoded(key, cached, gzip));
+        }
+        if (resource == null) {
+            return Optional.empty();
+        }
+
+        misses.increment();
+        String version = resource.getIdElement().getVersionIdPart();
+        if (version == null) {
+            version = resource.getMeta().getVersionId();
+        }
+        return Optional.of(encoded(key, store(key, version, serialize(toDto.apply(resource))), gzip));
+    }
+
+    /**
+     * Encoded list of a patient's resources of {@code type}.
+     *
+     * @param variant distinguishes differently filtered lists of the same type, e.g. query parameters
+     * @param body    produces the DTO list; called only when the patient's resources changed. The list
+     *                methods answer a failed search with an empty list, so an empty list is not cached
+     *                while the watermark counts resources
+     */
+    public Encoded getPatientList(Class<? extends Resource> type, String patientPersonnummer, String variant,
+                                  boolean gzip, Supplier<?> body) {
+        String key = Patient.class.getSimpleName() + "/" + patientPersonnummer + "/" + type.getSimpleName() + "?" + variant;
+
+        String watermark;
+        try {
+            String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
+            watermark = hapiClient.patientWatermark(type, patientFhirId);
+        } catch (Exception e) {
+            // The regular path reports the failure in its own way
+            watermark = null;
+        }
+
+        Entry cached = lookup(key);
+        if (watermark != null && cached != null && watermark.equals(cached.version)) {
+            hits.increment();
+            return encoded(key, cached, gzip);
+        }
+
+        misses.increment();
+        Object dtos = body.get();
+        byte[] identity = serialize(dtos);
+        if (watermark == null || (dtos instanceof Collection<?> list && list.isEmpty() && watermarkTotal(watermark) != 0)) {
+            remove(key);
+            return new Encoded(identity, false);
+        }
+        return encoded(key, store(key, watermark, identity), gzip);
+    }
+
+    /**
+     * Resource count leading a {@link HapiClientService#patientWatermark} value, or -1 when unreadable.
+     */
+    static long watermarkTotal(String watermark) {
+        int end = watermark.indexOf(':');
+        try {
+            return Long.parseLong(end < 0 ? watermark : watermark.substring(0, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Encoded encoded(String key, Entry entry, boolean gzip) {
+        if (!gzip) {
+            return new Encoded(entry.identity, false);
+        }
+
+        byte[] compressed;
+        synchronized (entries) {
+            compressed = entry.gzip;
+        }
+        if (compressed == null) {
+            compressed = gzip(entry.identity);
+            synchronized (entries) {
+                if (entry.gzip == null && entries.get(key) == entry) {
+                    entry.gzip = compressed;
+                    totalBytes += compressed.length;
+                    evict();
+                }
+            }
+        }
+        return new Encoded(compressed, true);
+    }
+
+    private Entry lookup(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private Entry store(String key, String version, byte[] identity) {
+        Entry entry = new Entry(version, identity);
+        if (version == null) {
+            return entry;
+        }
+
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                totalBytes -= previous.size();
+            }
+            totalBytes += entry.size();
+            evict();
+        }
+        return entry;
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                totalBytes -= previous.size();
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode response: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] identity) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, identity.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(identity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    long sizeInBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.client.api.IHttpRequest;
+import ca.uhn.fhir.rest.client.api.IHttpResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call to the FHIR server as {@code fhir.client.requests}, with percentile histograms,
+ * tagged by HTTP method, FHIR interaction (read, vread, search, page, create, update, transaction,
+ * ...), resource type, status and outcome.
+ * <p>
+ * Registered as a client interceptor on {@link HapiClientService}'s client, where the time is
+ * measured up to the response headers; {@link FhirJsonSearchService} records its searches too.
+ * Calls failing before a response arrives (connection errors, timeouts) are recorded with status
+ * {@code none} and outcome {@code ERROR} or {@code TIMEOUT}; for HAPI calls this needs the HTTP
+ * client wrapped with {@link #recordingFailures}. The time also counts towards the current request's
+ * {@link RequestTimings.Phase#FHIR} phase.
+ * <p>
+ * Each call is also emitted as a {@link FhirRequestEvent} to Java Flight Recorder, e.g. after
+ * {@code jcmd <pid> JFR.start}, so FHIR latency can be correlated with GC and thread events.
+ */
+@Component
+@Interceptor
+public class FhirClientMetrics {
+
+    public static final String TIMER = "fhir.client.requests";
+
+    private static final String NONE = "none";
+
+    /**
+     * Interaction and resource type of a FHIR REST call.
+     */
+    record Call(String interaction, String resourceType) {}
+
+    private final MeterRegistry meterRegistry;
+    private final String basePath;
+    private final ThreadLocal<FhirRequestEvent> pendingEvent = new ThreadLocal<>();
+
+    public FhirClientMetrics(MeterRegistry meterRegistry, @Value("${fhir.server.url}") String fhirServerUrl) {
+        this.meterRegistry = meterRegistry;
+        String path = URI.create(fhirServerUrl).getPath();
+        this.basePath = path == null ? "" : path.replaceAll("/+$", "");
+    }
+
+    @Hook(Pointcut.CLIENT_REQUEST)
+    public void clientRequest(IHttpRequest request) {
+        pendingEvent.set(beginEvent());
+    }
+
+    @Hook(Pointcut.CLIENT_RESPONSE)
+    public void clientResponse(IHttpRequest request, IHttpResponse response) {
+        FhirRequestEvent event = pendingEvent.get();
+        pendingEvent.remove();
+        List<String> contentLength = response.getHeaders("Content-Length");
+        record(request.getHttpVerbName(), request.getUri(), response.getStatus(),
+                TimeUnit.MILLISECONDS.toNanos(response.getRequestStopWatch().getMillis()),
+                event, contentLength == null || contentLength.isEmpty() ? -1 : parseLength(contentLength.get(0)));
+    }
+
+    public void record(String method, String uri, int status, long nanos) {
+        record(method, uri, status, nanos, null, -1);
+    }
+
+    /**
+     * Records a call that failed before a response arrived.
+     *
+     * @param event started with {@link #beginEvent()} when the call was sent, or null
+     */
+    void recordFailure(String method, String uri, long nanos, FhirRequestEvent event, IOException failure) {
+        boolean timedOut = failure instanceof InterruptedIOException || failure instanceof HttpTimeoutException;
+        String outcome = timedOut ? "TIMEOUT" : "ERROR";
+        record(method, uri, NONE, outcome, 0, nanos, event, -1);
+    }
+
+    /**
+     * Wraps HAPI's HTTP client so calls failing before a response, which never reach the
+     * {@link Pointcut#CLIENT_RESPONSE} hook, are recorded too.
+     */
+    public CloseableHttpClient recordingFailures(CloseableHttpClient httpClient) {
+        return new FailureRecordingHttpClient(httpClient);
+    }
+
+    static FhirRequestEvent beginEvent() {
+        FhirRequestEvent event = new FhirRequestEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event started with {@link #beginEvent()} when the call was sent, or null
+     * @param bytes response size, or -1 when unknown
+     */
+    void record(String method, String uri, int status, long nanos, FhirRequestEvent event, long bytes) {
+        record(method, uri, String.valueOf(status), Outcome.forStatus(status).name(), status, nanos, event, bytes);
+    }
+
+    private void record(String method, String uri, String statusTag, String outcome, int status, long nanos,
+                        FhirRequestEvent event, long bytes) {
+        if (event != null) {
+            event.end();
+        }
+        URI parsed = URI.create(uri);
+        Call call = classify(method, relativePath(parsed.getPath()), parsed.getQuery());
+        Timer.builder(TIMER)
+                .description("Calls to the FHIR server")
+                .tag("method", method)
+                .tag("interaction", call.interaction())
+                .tag("resource", call.resourceType())
+                .tag("status", statusTag)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        RequestTimings.recordNanos(RequestTimings.Phase.FHIR, nanos);
+
+        if (event != null && event.shouldCommit()) {
+            event.method = method;
+            event.interaction = call.interaction();
+            event.resourceType = call.resourceType();
+            event.status = status;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Delegates to HAPI's client, recording calls that throw before there is a response. The pending
+     * Flight Recorder event of such a call is ended and cleared here, since the response hook that
+     * normally does so is never invoked.
+     */
+    @SuppressWarnings("deprecation")
+    private class FailureRecordingHttpClient extends CloseableHttpClient {
+
+        private final CloseableHttpClient delegate;
+
+        FailureRecordingHttpClient(CloseableHttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+                throws IOException {
+            long start = System.nanoTime();
+            try {
+                return delegate.execute(target, request, context);
+            } catch (IOException e) {
+                FhirRequestEvent event = pendingEvent.get();
+                pendingEvent.remove();
+                String uri = request.getRequestLine().getUri();
+                if (target != null && !URI.create(uri).isAbsolute()) {
+                    uri = target.toURI() + uri;
+                }
+                recordFailure(request.getRequestLine().getMethod(), uri, System.nanoTime() - start, event, e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public HttpParams getParams() {
+            return delegate.getParams();
+        }
+
+        @Override
+        public ClientConnectionManager getConnectionManager() {
+            return delegate.getConnectionManager();
+        }
+    }
+
+    private static long parseLength(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private List<String> relativePath(String path) {
+        if (path == null) {
+            return List.of();
+        }
+        if (!basePath.isEmpty() && path.startsWith(basePath)) {
+            path = path.substring(basePath.length());
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) segments.add(segment);
+        }
+        return segments;
+    }
+
+    static Call classify(String method, List<String> segments, String query) {
+        if (segments.isEmpty()) {
+            if ("POST".equals(method)) return new Call("transaction", NONE);
+            if (query != null && query.contains("_getpages")) return new Call("page", NONE);
+            return new Call("other", NONE);
+        }
+
+        String first = segments.get(0);
+        if (first.startsWith("$")) return new Call("operation", NONE);
+        if ("metadata".equals(first)) return new Call("capabilities", NONE);
+        if ("_history".equals(first)) return new Call("history", NONE);
+        if (!Character.isUpperCase(first.charAt(0))) return new Call("other", NONE);
+
+        String second = segments.size() > 1 ? segments.get(1) : null;
+        String third = segments.size() > 2 ? segments.get(2) : null;
+        String interaction = switch (segments.size()) {
+            case 1 -> switch (method) {
+                case "GET" -> "search";
+                case "POST" -> "create";
+                default -> byMethod(method);
+            };
+            case 2 -> {
+                if ("_search".equals(second)) yield "search";
+                if ("_history".equals(second)) yield "history";
+                if (second.startsWith("$")) yield "operation";
+                yield "GET".equals(method) ? "read" : byMethod(method);
+            }
+            case 3 -> {
+                if ("_history".equals(third)) yield "history";
+                if (third.startsWith("$")) yield "operation";
+                yield "other";
+            }
+            case 4 -> "_history".equals(third) ? "vread" : "other";
+            default -> "other";
+        };
+        return new Call(interaction, first);
+    }
+
+    private static String byMethod(String method) {
+        return switch (method) {
+            case "PUT" -> "update";
+            case "PATCH" -> "patch";
+            case "DELETE" -> "delete";
+            default -> "other";
+        };
+    }
+}
@@ -0,0 +1,219 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import com.journalSystem.clinical_service.dto.*;
+import com.journalSystem.clinical_service.mapper.FhirJsonDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional fast path for the list endpoints.
+ * <p>
+ * Runs the same searches as the {@code Hapi*Service} list methods, but requests the Bundle as JSON
+ * over a plain HTTP client and decodes it with {@link FhirJsonDecoder} straight into DTOs, without
+ * building HAPI resource models. Results are identical to mapping the HAPI path's resources with
+ * {@code FhirMapper}. Enabled with {@code clinical.fast-json.enabled}; otherwise callers use the
+ * HAPI services.
+ */
+@Service
+public class FhirJsonSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FhirJsonSearchService.class);
+
+    private static final String FHIR_JSON = "application/fhir+json";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @FunctionalInterface
+    private interface BundleDecoder<D> {
+        List<D> decode(InputStream bundle) throws IOException;
+    }
+
+    private final FhirLookupService fhirLookupService;
+    private final FhirClientMetrics fhirClientMetrics;
+    private final SlowFhirQueryLog slowFhirQueryLog;
+    private final String baseUrl;
+    private final boolean enabled;
+    private final HttpClient httpClient;
+
+    public FhirJsonSearchService(
+            FhirLookupService fhirLookupService,
+            FhirClientMetrics fhirClientMetrics,
+            SlowFhirQueryLog slowFhirQueryLog,
+            @Value("${fhir.server.url}") String fhirServerUrl,
+            @Value("${clinical.fast-json.enabled:false}") boolean enabled
+    ) {
+        this.fhirLookupService = fhirLookupService;
+        this.fhirClientMetrics = fhirClientMetrics;
+        this.slowFhirQueryLog = slowFhirQueryLog;
+        this.baseUrl = fhirServerUrl.endsWith("/") ? fhirServerUrl : fhirServerUrl + "/";
+        this.enabled = enabled;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Same search as {@link HapiObservationService#getObservationsForPatient(String, LocalDate, LocalDate, SortSpec, Integer)}.
+     */
+    public List<ObservationDTO> getObservationsForPatient(
+            String patientPersonnummer,
+            LocalDate from,
+            LocalDate to,
+            SortSpec sort,
+            Integer limit
+    ) {
+        try {
+            String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
+
+            StringBuilder query = new StringBuilder("Observation?patient=").append(encode(patientFhirId));
+            if (from != null) {
+                query.append("&date=ge").append(from);
+            }
+            if (to != null) {
+                query.append("&date=le").append(to);
+            }
+            if (sort != null) {
+                query.append("&_sort=")
+                        .append(sort.getOrder() == SortOrderEnum.DESC ? "-" : "")
+                        .append(encode(sort.getParamName()));
+            }
+            if (limit != null) {
+                query.append("&_count=").append(limit);
+            }
+
+            return search(query.toString(), FhirJsonDecoder::decodeObservations);
+        } catch (Exception e) {
+            logger.warn("Could not fetch observations for patient {}", patientPersonnummer, e);
+            return List.of();
+        }
+    }
+
+    public List<ConditionDTO> getConditionsForPatient(String patientPersonnummer) {
+        try {
+            String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
+            return search("Condition?patient=" + encode(patientFhirId), FhirJsonDecoder::decodeConditions);
+        } catch (Exception e) {
+            logger.warn("Could not fetch conditions for patient {}", patientPersonnummer, e);
+            return List.of();
+        }
+    }
+
+    public List<EncounterDTO> getEncountersForPatient(String patientPersonnummer) {
+        try {
+            String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
+            return search("Encounter?patient=" + encode(patientFhirId), FhirJsonDecoder::decodeEncounters);
+        } catch (Exception e) {
+            logger.warn("Could not fetch encounters for patient {}", patientPersonnummer, e);
+            return List.of();
+        }
+    }
+
+    public List<PatientDTO> getAllPatients() {
+        return search("Patient", FhirJsonDecoder::decodePatients);
+    }
+
+    public List<PractitionerDTO> getAllPractitioners() {
+        return search("Practitioner", FhirJsonDecoder::decodePractitioners);
+    }
+
+    private <D> List<D> search(String query, BundleDecoder<D> decoder) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + query))
+                .timeout(TIMEOUT)
+                .header("Accept", FHIR_JSON)
+                .GET()
+                .build();
+
+        try {
+            FhirRequestEvent event = FhirClientMetrics.beginEvent();
+            long start = System.nanoTime();
+            HttpResponse<InputStream> response;
+            try {
+                response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (IOException e) {
+                fhirClientMetrics.recordFailure("GET", request.uri().toString(), System.nanoTime() - start, event, e);
+                throw e;
+            }
+            long headersNanos = System.nanoTime() - start;
+            String uri = request.uri().toString();
+            fhirClientMetrics.record("GET", uri, response.statusCode(), headersNanos,
+                    event, response.headers().firstValueAsLong("Content-Length").orElse(-1));
+            long headersMillis = TimeUnit.NANOSECONDS.toMillis(headersNanos);
+            try (CountingInputStream body = new CountingInputStream(response.body())) {
+                if (response.statusCode() != 200) {
+                    slowFhirQueryLog.record("GET", uri, response.statusCode(), headersMillis, -1, -1);
+                    throw new IllegalStateException("FHIR search " + query + " failed with HTTP " + response.statusCode());
+                }
+                long decodeStart = System.nanoTime();
+                List<D> decoded = decoder.decode(body);
+                RequestTimings.record(RequestTimings.Phase.PARSE, decodeStart);
+                slowFhirQueryLog.record("GET", uri, 200, headersMillis, body.count, decoded.size());
+                return decoded;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("FHIR search " + query + " failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during FHIR search " + query, e);
+        }
+    }
+
+    /**
+     * Counts the bytes the decoder reads, for the slow query log.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
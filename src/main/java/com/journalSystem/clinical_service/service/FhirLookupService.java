@@ -1,39 +1,164 @@
 package com.journalSystem.clinical_service.service;
 
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.TokenClientParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.util.BundleUtil;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.instance.model.api.IAnyResource;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.DomainResource;
+import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Practitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Service for looking up FHIR resources by identifier (personnummer).
+ * <p>
+ * An unknown personnummer fails with {@link ResourceNotFoundException}; other failures, such as an
+ * unreachable FHIR server, propagate as they are so callers can tell the two apart.
  */
 @Service
 @RequiredArgsConstructor
 public class FhirLookupService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FhirLookupService.class);
+
+    private static final int LOOKUP_BATCH_SIZE = 100;
+    private static final int LOOKUP_THREADS = 16;
+    private static final int LOOKUP_QUEUE_CAPACITY = 64;
+
+    /**
+     * FHIR ids of the patient and (optional) practitioner referenced by a new clinical resource.
+     */
+    public record Participants(String patientFhirId, String practitionerFhirId) {}
+
     private final HapiClientService hapiClient;
 
+    // Lookups never run on the caller: a full queue fails the create instead of escaping the deadline.
+    private final ThreadPoolExecutor lookupExecutor = lookupPool();
+
+    @Value("${clinical.lookup.deadline-ms:10000}")
+    private long deadlineMillis = 10_000;
+
+    @PreDestroy
+    void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    /**
+     * Resolves the patient and the practitioner concurrently, so a create waits for the slower of the
+     * two lookups rather than their sum. Both must finish within {@code clinical.lookup.deadline-ms};
+     * lookups still running at the deadline are interrupted.
+     *
+     * @param practitionerPersonnummer may be null or empty, in which case only the patient is resolved
+     * @throws RejectedExecutionException when too many lookups are already waiting
+     */
+    public Participants resolveParticipants(String patientPersonnummer, String practitionerPersonnummer) {
+        boolean withPractitioner = practitionerPersonnummer != null && !practitionerPersonnummer.isEmpty();
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        Future<String> practitioner = null;
+        Future<String> patient = null;
+        try {
+            if (withPractitioner) {
+                practitioner = lookupExecutor.submit(() -> findPractitionerIdByPersonnummer(practitionerPersonnummer));
+            }
+            patient = lookupExecutor.submit(() -> findPatientIdByPersonnummer(patientPersonnummer));
+
+            String patientFhirId = await(patient, deadline, "patient " + patientPersonnummer);
+            String practitionerFhirId = withPractitioner
+                    ? await(practitioner, deadline, "practitioner " + practitionerPersonnummer)
+                    : null;
+            return new Participants(patientFhirId, practitionerFhirId);
+        } catch (RejectedExecutionException e) {
+            throw new RejectedExecutionException("Too many concurrent FHIR lookups, try again later", e);
+        } finally {
+            cancel(patient);
+            cancel(practitioner);
+            RequestTimings.record(RequestTimings.Phase.LOOKUP, start);
+        }
+    }
+
+    private static String await(Future<String> lookup, long deadline, String description) {
+        try {
+            return lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Error looking up " + description, e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out looking up " + description, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while looking up " + description, e);
+        }
+    }
+
+    private void cancel(Future<String> lookup) {
+        if (lookup != null && lookup.cancel(true) && lookup instanceof Runnable queued) {
+            // Frees the queue slot now rather than when a thread gets to the cancelled task
+            lookupExecutor.remove(queued);
+        }
+    }
+
+    private static ThreadPoolExecutor lookupPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                LOOKUP_THREADS, LOOKUP_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(LOOKUP_QUEUE_CAPACITY), daemonThreads(), new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "fhir-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     public String findPatientIdByPersonnummer(String personnummer) {
         if (personnummer == null || personnummer.isEmpty()) {
             throw new IllegalArgumentException("Personnummer cannot be null or empty");
         }
 
         IGenericClient client = hapiClient.getClient();
+        long start = System.nanoTime();
 
         try {
-            Bundle bundle = client
+            Bundle bundle = RequestTimings.fhirCall(() -> client
                     .search()
                     .forResource(Patient.class)
                     .where(Patient.IDENTIFIER.exactly().identifier(personnummer))
                     .returnBundle(Bundle.class)
-                    .execute();
+                    .execute());
 
             List<Patient> patients = BundleUtil.toListOfEntries(hapiClient.getContext(), bundle)
                     .stream()
@@ -42,7 +167,7 @@ public class FhirLookupService {
 
             if (!patients.isEmpty()) {
                 String fhirId = patients.get(0).getIdElement().getIdPart();
-                System.out.println("✓ Found Patient by identifier: " + personnummer + " -> FHIR ID: " + fhirId);
+                logger.debug("Found Patient by identifier {} -> FHIR ID {}", personnummer, fhirId);
                 return fhirId;
             }
 
@@ -55,20 +180,22 @@ public class FhirLookupService {
 
                 if (patient != null) {
                     String fhirId = patient.getIdElement().getIdPart();
-                    System.out.println("✓ Found Patient by direct ID: " + personnummer);
+                    logger.debug("Found Patient by direct ID {}", personnummer);
                     return fhirId;
                 }
-            } catch (Exception e) {
+            } catch (ResourceNotFoundException | ResourceGoneException | InvalidRequestException e) {
+                // Not stored under that id either
             }
 
-            throw new RuntimeException("Patient not found with identifier or ID: " + personnummer);
+            throw new ResourceNotFoundException("Patient not found with identifier or ID: " + personnummer);
 
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
-            System.err.println("Error looking up patient: " + personnummer);
-            e.printStackTrace();
+            logger.warn("Error looking up patient {}", personnummer, e);
             throw new RuntimeException("Error looking up patient: " + personnummer, e);
+        } finally {
+            RequestTimings.record(RequestTimings.Phase.LOOKUP, start);
         }
     }
 
@@ -79,14 +206,15 @@ public class FhirLookupService {
         }
 
         IGenericClient client = hapiClient.getClient();
+        long start = System.nanoTime();
 
         try {
-            Bundle bundle = client
+            Bundle bundle = RequestTimings.fhirCall(() -> client
                     .search()
                     .forResource(Practitioner.class)
                     .where(Practitioner.IDENTIFIER.exactly().identifier(personnummer))
                     .returnBundle(Bundle.class)
-                    .execute();
+                    .execute());
 
             List<Practitioner> practitioners = BundleUtil.toListOfEntries(hapiClient.getContext(), bundle)
                     .stream()
@@ -95,7 +223,7 @@ public class FhirLookupService {
 
             if (!practitioners.isEmpty()) {
                 String fhirId = practitioners.get(0).getIdElement().getIdPart();
-                System.out.println("✓ Found Practitioner by identifier: " + personnummer + " -> FHIR ID: " + fhirId);
+                logger.debug("Found Practitioner by identifier {} -> FHIR ID {}", personnummer, fhirId);
                 return fhirId;
             }
 
@@ -108,23 +236,111 @@ public class FhirLookupService {
 
                 if (practitioner != null) {
                     String fhirId = practitioner.getIdElement().getIdPart();
-                    System.out.println("✓ Found Practitioner by direct ID: " + personnummer);
+                    logger.debug("Found Practitioner by direct ID {}", personnummer);
                     return fhirId;
                 }
-            } catch (Exception e) {
+            } catch (ResourceNotFoundException | ResourceGoneException | InvalidRequestException e) {
+                // Not stored under that id either
             }
 
-            throw new RuntimeException("Practitioner not found with identifier or ID: " + personnummer);
+            throw new ResourceNotFoundException("Practitioner not found with identifier or ID: " + personnummer);
 
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
-            System.err.println("Error looking up practitioner: " + personnummer);
-            e.printStackTrace();
+            logger.warn("Error looking up practitioner {}", personnummer, e);
             throw new RuntimeException("Error looking up practitioner: " + personnummer, e);
+        } finally {
+            RequestTimings.record(RequestTimings.Phase.LOOKUP, start);
         }
     }
 
+    /**
+     * Resolves many personnummer with one identifier search per {@value #LOOKUP_BATCH_SIZE} values.
+     * Values not found by identifier are tried as FHIR ids, again with one {@code _id} search per
+     * {@value #LOOKUP_BATCH_SIZE} values; unresolved values are left out of the map. Failing searches
+     * propagate, so an unreachable server is not mistaken for unknown personnummer.
+     */
+    public Map<String, String> findPatientIdsByPersonnummer(Collection<String> personnummers) {
+        return findIdsByIdentifier(Patient.class, Patient.IDENTIFIER, Patient::getIdentifier, personnummers);
+    }
+
+    /**
+     * Practitioner counterpart of {@link #findPatientIdsByPersonnummer(Collection)}.
+     */
+    public Map<String, String> findPractitionerIdsByPersonnummer(Collection<String> personnummers) {
+        return findIdsByIdentifier(Practitioner.class, Practitioner.IDENTIFIER, Practitioner::getIdentifier, personnummers);
+    }
+
+    private <T extends DomainResource> Map<String, String> findIdsByIdentifier(
+            Class<T> type,
+            TokenClientParam identifierParam,
+            Function<T, List<Identifier>> identifiersOf,
+            Collection<String> personnummers
+    ) {
+        IGenericClient client = hapiClient.getClient();
+
+        List<String> distinct = personnummers.stream()
+                .filter(personnummer -> personnummer != null && !personnummer.isEmpty())
+                .distinct()
+                .toList();
+
+        Map<String, String> ids = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += LOOKUP_BATCH_SIZE) {
+            List<String> chunk = distinct.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, distinct.size()));
+
+            for (T resource : search(client, type, identifierParam, chunk)) {
+                for (Identifier identifier : identifiersOf.apply(resource)) {
+                    if (identifier.hasValue() && chunk.contains(identifier.getValue())) {
+                        ids.putIfAbsent(identifier.getValue(), resource.getIdElement().getIdPart());
+                    }
+                }
+            }
+        }
+
+        List<String> misses = distinct.stream().filter(personnummer -> !ids.containsKey(personnummer)).toList();
+        for (int from = 0; from < misses.size(); from += LOOKUP_BATCH_SIZE) {
+            List<String> chunk = misses.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, misses.size()));
+
+            for (T resource : search(client, type, IAnyResource.RES_ID, chunk)) {
+                String fhirId = resource.getIdElement().getIdPart();
+                if (chunk.contains(fhirId)) {
+                    ids.putIfAbsent(fhirId, fhirId);
+                }
+            }
+        }
+
+        for (String personnummer : misses) {
+            if (!ids.containsKey(personnummer)) {
+                logger.info("{} not found with identifier or ID {}", type.getSimpleName(), personnummer);
+            }
+        }
+
+        return ids;
+    }
+
+    private static <T extends DomainResource> List<T> search(
+            IGenericClient client,
+            Class<T> type,
+            TokenClientParam param,
+            List<String> values
+    ) {
+        Bundle bundle = client
+                .search()
+                .forResource(type)
+                .where(param.exactly().codes(values))
+                .count(values.size())
+                .returnBundle(Bundle.class)
+                .execute();
+
+        return bundle.getEntry()
+                .stream()
+                .map(Bundle.BundleEntryComponent::getResource)
+                .filter(type::isInstance)
+                .map(type::cast)
+                .toList();
+    }
+
     public Optional<String> findPatientIdOptional(String personnummer) {
         try {
             return Optional.of(findPatientIdByPersonnummer(personnummer));
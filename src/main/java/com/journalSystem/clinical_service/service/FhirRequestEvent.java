@@ -0,0 +1,39 @@
+package com.journalSystem.clinical_service.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one call to the FHIR server, lasting up to the response headers.
+ * Recorded only while a JFR recording with {@code clinical.FhirRequest} enabled is running.
+ */
+@Name("clinical.FhirRequest")
+@Label("FHIR Request")
+@Description("A call to the FHIR server")
+@Category({"Clinical Service", "FHIR"})
+@StackTrace(false)
+class FhirRequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Interaction")
+    String interaction;
+
+    @Label("Resource Type")
+    String resourceType;
+
+    @Label("Status")
+    @Description("HTTP status, or 0 when the call failed before a response arrived")
+    int status;
+
+    @Label("Response Size")
+    @Description("Content-Length of the response, or -1 when not known up front")
+    @DataAmount
+    long bytes;
+}
@@ -1,20 +1,95 @@
 package com.journalSystem.clinical_service.service;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
+import ca.uhn.fhir.rest.client.apache.ApacheRestfulClientFactory;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.IReadExecutable;
+import ca.uhn.fhir.rest.gclient.ReferenceClientParam;
+import ca.uhn.fhir.rest.gclient.TokenClientParam;
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Property;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 @Service
 public class HapiClientService {
 
+    private static final Logger logger = LoggerFactory.getLogger(HapiClientService.class);
+
+    /**
+     * Identifier system under which client-supplied {@code Idempotency-Key} values are stored.
+     */
+    public static final String IDEMPOTENCY_KEY_SYSTEM = "urn:journal-system:idempotency-key";
+
+    /**
+     * Identifier system under which the {@link IdempotencyCache#payloadHash(Object...) hash} of the
+     * request that used an {@code Idempotency-Key} is stored, so reuse for another request is detected.
+     */
+    public static final String IDEMPOTENCY_PAYLOAD_SYSTEM = "urn:journal-system:idempotency-payload";
+
+    /**
+     * Sent as a plain header rather than with {@code prefer(REPRESENTATION)}: for the latter, HAPI reads
+     * the {@code Location} itself when the server sends no body, and a failure of that read would fail
+     * a create that has already been stored. {@link #createdResource} does the read-back instead.
+     */
+    private static final String PREFER_REPRESENTATION = Constants.HEADER_PREFER_RETURN + "=" + Constants.HEADER_PREFER_RETURN_REPRESENTATION;
+
+    private static final TokenClientParam IDENTIFIER = new TokenClientParam("identifier");
+    private static final ReferenceClientParam PATIENT = new ReferenceClientParam("patient");
+
     private final IGenericClient client;
     private final FhirContext context;
+    private final IdempotencyCache idempotencyCache;
 
-    public HapiClientService(@Value("${fhir.server.url}") String fhirServerUrl) {
+    public HapiClientService(
+            @Value("${fhir.server.url}") String fhirServerUrl,
+            IdempotencyCache idempotencyCache,
+            FhirClientMetrics fhirClientMetrics,
+            SlowFhirQueryLog slowFhirQueryLog
+    ) {
+        this.idempotencyCache = idempotencyCache;
         this.context = FhirContext.forR4();
+        this.context.setRestfulClientFactory(clientFactory(context, fhirClientMetrics));
         this.client = context.newRestfulGenericClient(fhirServerUrl);
-        System.out.println("✓ HAPI FHIR Client initialized: " + fhirServerUrl);
+        this.client.registerInterceptor(fhirClientMetrics);
+        this.client.registerInterceptor(slowFhirQueryLog);
+        logger.info("HAPI FHIR client initialized for {}", fhirServerUrl);
+    }
+
+    /**
+     * HAPI's default client factory, with every HTTP client it builds (again after timeout or pool
+     * settings change) wrapped by {@link FhirClientMetrics#recordingFailures}.
+     */
+    private static ApacheRestfulClientFactory clientFactory(FhirContext context, FhirClientMetrics fhirClientMetrics) {
+        return new ApacheRestfulClientFactory(context) {
+            @Override
+            protected HttpClientBuilder getHttpClientBuilder() {
+                return new HttpClientBuilder() {
+                    @Override
+                    public CloseableHttpClient build() {
+                        return fhirClientMetrics.recordingFailures(super.build());
+                    }
+                };
+            }
+        };
     }
 
     public IGenericClient getClient() {
@@ -24,4 +99,246 @@ public class HapiClientService {
     public FhirContext getContext() {
         return context;
     }
+
+    /**
+     * Creates a resource and returns it as stored by the server, including its new id.
+     * <p>
+     * The server is asked to echo the stored resource back ({@code Prefer: return=representation}),
+     * so normally this is a single round trip. Servers that ignore the header cost one extra read.
+     */
+    public <T extends Resource> T create(T resource) {
+        MethodOutcome outcome = client
+                .create()
+                .resource(resource)
+                .withAdditionalHeader(Constants.HEADER_PREFER, PREFER_REPRESENTATION)
+                .execute();
+
+        return createdResource(resource, outcome);
+    }
+
+    /**
+     * Idempotent variant of {@link #create(Resource)}. The resource must already carry the key as an
+     * identifier in {@link #IDEMPOTENCY_KEY_SYSTEM}, and may carry the request's payload hash in
+     * {@link #IDEMPOTENCY_PAYLOAD_SYSTEM}; the create is conditional on the key ({@code If-None-Exist}),
+     * so a retry returns the resource stored by the first attempt. Recently used keys are answered
+     * from {@link IdempotencyCache} without contacting the server.
+     *
+     * @throws UnprocessableEntityException if the key was already used with a different payload hash
+     */
+    public <T extends Resource> T create(T resource, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return create(resource);
+        }
+
+        @SuppressWarnings("unchecked")
+        Class<T> type = (Class<T>) resource.getClass();
+        String payloadHash = payloadHash(resource);
+        Optional<T> recent = findRecentlyCreated(type, idempotencyKey, payloadHash);
+        if (recent.isPresent()) {
+            return recent.get();
+        }
+
+        MethodOutcome outcome = client
+                .create()
+                .resource(resource)
+                .conditional()
+                .where(IDENTIFIER.exactly().systemAndIdentifier(IDEMPOTENCY_KEY_SYSTEM, idempotencyKey))
+                .withAdditionalHeader(Constants.HEADER_PREFER, PREFER_REPRESENTATION)
+                .execute();
+
+        T created = createdResource(resource, outcome);
+        IdempotencyCache.checkPayload(idempotencyKey, payloadHash(created), payloadHash);
+        idempotencyCache.put(idempotencyKey, created, payloadHash);
+        return created;
+    }
+
+    /**
+     * Returns the resource recently created under {@code idempotencyKey} by this instance, if any.
+     *
+     * @param payloadHash hash of the current request, or null to skip the comparison
+     * @throws UnprocessableEntityException if the key was used for a request with a different hash
+     */
+    public <T extends Resource> Optional<T> findRecentlyCreated(Class<T> type, String idempotencyKey, String payloadHash) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        return idempotencyCache.get(type, idempotencyKey, payloadHash);
+    }
+
+    /**
+     * The value of the resource's {@link #IDEMPOTENCY_PAYLOAD_SYSTEM} identifier, or null.
+     */
+    static String payloadHash(Resource resource) {
+        Property identifiers = resource.getNamedProperty("identifier");
+        if (identifiers == null) {
+            return null;
+        }
+        for (Base value : identifiers.getValues()) {
+            if (value instanceof Identifier identifier && IDEMPOTENCY_PAYLOAD_SYSTEM.equals(identifier.getSystem())) {
+                return identifier.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates all resources atomically in one FHIR {@code transaction} Bundle.
+     *
+     * @return the new ids, in the same order as {@code resources}
+     */
+    public List<String> createAll(List<? extends Resource> resources) {
+        Bundle transaction = new Bundle();
+        transaction.setType(Bundle.BundleType.TRANSACTION);
+        for (Resource resource : resources) {
+            transaction.addEntry()
+                    .setFullUrl(IdType.newRandomUuid().getValue())
+                    .setResource(resource)
+                    .getRequest()
+                    .setMethod(Bundle.HTTPVerb.POST)
+                    .setUrl(resource.fhirType());
+        }
+
+        Bundle response = client
+                .transaction()
+                .withBundle(transaction)
+                .execute();
+
+        if (response.getEntry().size() != resources.size()) {
+            throw new IllegalStateException("Transaction response has " + response.getEntry().size()
+                    + " entries for " + resources.size() + " resources");
+        }
+
+        return response.getEntry()
+                .stream()
+                .map(entry -> new IdType(entry.getResponse().getLocation()).getIdPart())
+                .toList();
+    }
+
+    /**
+     * Creates independent resources in one FHIR {@code transaction} Bundle and returns each as stored
+     * by the server. Entries whose key is non-null are conditional on it, as in {@link #create(Resource, String)}.
+     *
+     * @param idempotencyKeys one key (or null) per resource, in the same order
+     * @return the created resources, in the same order as {@code resources}
+     */
+    public List<Resource> createInTransaction(List<? extends Resource> resources, List<String> idempotencyKeys) {
+        Bundle transaction = new Bundle();
+        transaction.setType(Bundle.BundleType.TRANSACTION);
+        for (int i = 0; i < resources.size(); i++) {
+            Resource resource = resources.get(i);
+            Bundle.BundleEntryRequestComponent request = transaction.addEntry()
+                    .setFullUrl(IdType.newRandomUuid().getValue())
+                    .setResource(resource)
+                    .getRequest()
+                    .setMethod(Bundle.HTTPVerb.POST)
+                    .setUrl(resource.fhirType());
+            if (idempotencyKeys.get(i) != null) {
+                request.setIfNoneExist("identifier=" + IDEMPOTENCY_KEY_SYSTEM + "|" + idempotencyKeys.get(i));
+            }
+        }
+
+        Bundle response = client
+                .transaction()
+                .withBundle(transaction)
+                .withAdditionalHeader(Constants.HEADER_PREFER, PREFER_REPRESENTATION)
+                .execute();
+
+        if (response.getEntry().size() != resources.size()) {
+            throw new IllegalStateException("Transaction response has " + response.getEntry().size()
+                    + " entries for " + resources.size() + " resources");
+        }
+
+        List<Resource> created = new ArrayList<>(resources.size());
+        for (int i = 0; i < resources.size(); i++) {
+            Resource resource = resources.get(i);
+            Bundle.BundleEntryComponent entry = response.getEntry().get(i);
+            MethodOutcome outcome = new MethodOutcome(new IdType(entry.getResponse().getLocation()));
+            outcome.setResource(entry.getResource());
+
+            Resource stored = createdResource(resource, outcome);
+            String idempotencyKey = idempotencyKeys.get(i);
+            if (idempotencyKey != null) {
+                String payloadHash = payloadHash(resource);
+                IdempotencyCache.checkPayload(idempotencyKey, payloadHash(stored), payloadHash);
+                idempotencyCache.put(idempotencyKey, stored, payloadHash);
+            }
+            created.add(stored);
+        }
+        return created;
+    }
+
+    /**
+     * Reads a resource, unless the server still holds {@code knownVersion} of it: the read is then
+     * conditional ({@code If-None-Match}) and returns null on {@code 304 Not Modified}, without a body.
+     *
+     * @param knownVersion {@code meta.versionId} the caller already has, or null for a plain read
+     */
+    public <T extends Resource> T readIfModified(Class<T> type, String id, String knownVersion) {
+        IReadExecutable<T> read = client
+                .read()
+                .resource(type)
+                .withId(id);
+        if (knownVersion == null) {
+            return read.execute();
+        }
+        return read.ifVersionMatches(knownVersion).returnNull().execute();
+    }
+
+    /**
+     * Fingerprint of a patient's resources of {@code type}, fetched with a one-entry search: the
+     * accurate total plus id, version and {@code meta.lastUpdated} of the most recently changed resource.
+     * A create, update or delete in the compartment changes it.
+     *
+     * @return the fingerprint, or null when the server does not report a total
+     */
+    public String patientWatermark(Class<? extends Resource> type, String patientFhirId) {
+        Bundle probe = client
+                .search()
+                .forResource(type)
+                .where(PATIENT.hasId(patientFhirId))
+                .sort().descending(Constants.PARAM_LASTUPDATED)
+                .count(1)
+                .totalMode(SearchTotalModeEnum.ACCURATE)
+                .elementsSubset("id")
+                .returnBundle(Bundle.class)
+                .execute();
+
+        if (!probe.hasTotal()) {
+            return null;
+        }
+        if (probe.getEntry().isEmpty()) {
+            return String.valueOf(probe.getTotal());
+        }
+
+        Resource newest = probe.getEntry().get(0).getResource();
+        Date lastUpdated = newest.getMeta().getLastUpdated();
+        return probe.getTotal() + ":" + newest.getIdElement().getIdPart()
+                + "/" + newest.getMeta().getVersionId()
+                + "@" + (lastUpdated != null ? lastUpdated.getTime() : 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Resource> T createdResource(T submitted, MethodOutcome outcome) {
+        Class<T> type = (Class<T>) submitted.getClass();
+        if (type.isInstance(outcome.getResource())) {
+            return type.cast(outcome.getResource());
+        }
+
+        IIdType id = outcome.getId();
+        if (id == null || !id.hasIdPart()) {
+            throw new IllegalStateException("FHIR server did not return an id for the created " + type.getSimpleName());
+        }
+
+        try {
+            return client
+                    .read()
+                    .resource(type)
+                    .withId(id.getIdPart())
+                    .execute();
+        } catch (Exception e) {
+            logger.warn("Could not read back created {} with ID {}: {}", type.getSimpleName(), id.getIdPart(), e.getMessage());
+            submitted.setId(id.toUnqualified().getValue());
+            return submitted;
+        }
+    }
 }
\ No newline at end of file
@@ -1,22 +1,30 @@
 package com.journalSystem.clinical_service.service;
 
-import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.IQuery;
 import ca.uhn.fhir.util.BundleUtil;
 import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.r4.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class HapiConditionService {
 
+    private static final Logger logger = LoggerFactory.getLogger(HapiConditionService.class);
+
     private final HapiClientService hapiClient;
     private final FhirLookupService fhirLookupService;
+    private final CreateBatcher createBatcher;
 
     public List<Condition> getAllConditions() {
         IGenericClient client = hapiClient.getClient();
@@ -39,24 +47,49 @@ public class HapiConditionService {
 
             String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
 
-            Bundle bundle = client
+            Bundle bundle = RequestTimings.fhirCall(() -> client
                     .search()
                     .forResource(Condition.class)
                     .where(Condition.PATIENT.hasId(patientFhirId))
                     .returnBundle(Bundle.class)
-                    .execute();
+                    .execute());
 
             return BundleUtil.toListOfEntries(hapiClient.getContext(), bundle)
                     .stream()
                     .map(entry -> (Condition) entry.getResource())
                     .toList();
         } catch (Exception e) {
-            System.err.println("Could not fetch conditions for patient: " + patientPersonnummer);
-            e.printStackTrace();
+            logger.warn("Could not fetch conditions for patient {}", patientPersonnummer, e);
             return List.of();
         }
     }
 
+    /**
+     * Returns the patient's conditions created or updated after {@code since} (all of them when null),
+     * so pollers only transfer what changed since their last watermark.
+     */
+    public ChangeSet<Condition> getConditionsChangedSince(String patientPersonnummer, Instant since) {
+        try {
+            IGenericClient client = hapiClient.getClient();
+
+            String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
+
+            IQuery<IBaseBundle> query = client
+                    .search()
+                    .forResource(Condition.class)
+                    .where(Condition.PATIENT.hasId(patientFhirId));
+
+            Bundle bundle = RequestTimings.fhirCall(() -> ChangeSet.changedSince(query, since)
+                    .returnBundle(Bundle.class)
+                    .execute());
+
+            return ChangeSet.collect(client, bundle, Condition.class, since);
+        } catch (Exception e) {
+            logger.warn("Could not fetch changed conditions for patient {}", patientPersonnummer, e);
+            return ChangeSet.empty(since);
+        }
+    }
+
     public Optional<Condition> getConditionById(String id) {
         try {
             IGenericClient client = hapiClient.getClient();
@@ -69,7 +102,7 @@ public class HapiConditionService {
 
             return Optional.of(condition);
         } catch (Exception e) {
-            System.err.println("Could not find condition with ID: " + id);
+            logger.info("Could not find condition with ID {}: {}", id, e.getMessage());
             return Optional.empty();
         }
     }
@@ -80,11 +113,72 @@ public class HapiConditionService {
             String description,
             Date recordedDate
     ) {
-        IGenericClient client = hapiClient.getClient();
+        return createCondition(patientPersonnummer, practitionerPersonnummer, description, recordedDate, null);
+    }
 
-        String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
-        System.out.println("Creating condition - Patient personnummer: " + patientPersonnummer + " -> FHIR ID: " + patientFhirId);
+    /**
+     * Idempotent variant of {@link #createCondition(String, String, String, Date)}.
+     */
+    public Condition createCondition(
+            String patientPersonnummer,
+            String practitionerPersonnummer,
+            String description,
+            Date recordedDate,
+            String idempotencyKey
+    ) {
+        long start = System.nanoTime();
+        String payloadHash = idempotencyKey != null
+                ? IdempotencyCache.payloadHash(patientPersonnummer, practitionerPersonnummer, description, recordedDate)
+                : null;
+        Optional<Condition> recent = hapiClient.findRecentlyCreated(Condition.class, idempotencyKey, payloadHash);
+        if (recent.isPresent()) {
+            logger.atInfo()
+                    .addKeyValue("resourceType", "Condition")
+                    .addKeyValue("idempotencyKey", idempotencyKey)
+                    .log("Condition already created for idempotency key {}", idempotencyKey);
+            return recent.get();
+        }
+
+        FhirLookupService.Participants participants =
+                fhirLookupService.resolveParticipants(patientPersonnummer, practitionerPersonnummer);
+        String patientFhirId = participants.patientFhirId();
+        logger.debug("Creating condition - patient {} -> FHIR ID {}", patientPersonnummer, patientFhirId);
+
+        String practitionerFhirId = participants.practitionerFhirId();
+        if (practitionerFhirId != null) {
+            logger.debug("Creating condition - practitioner {} -> FHIR ID {}", practitionerPersonnummer, practitionerFhirId);
+        }
+
+        Condition condition = buildCondition(patientFhirId, practitionerFhirId, description, recordedDate);
+
+        try {
+            if (idempotencyKey != null) {
+                condition.addIdentifier()
+                        .setSystem(HapiClientService.IDEMPOTENCY_KEY_SYSTEM)
+                        .setValue(idempotencyKey);
+                condition.addIdentifier()
+                        .setSystem(HapiClientService.IDEMPOTENCY_PAYLOAD_SYSTEM)
+                        .setValue(payloadHash);
+            }
+
+            Condition created = createBatcher.create(condition, idempotencyKey);
+            logger.atInfo()
+                    .addKeyValue("resourceType", "Condition")
+                    .addKeyValue("id", created.getIdElement().getIdPart())
+                    .addKeyValue("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Condition created with ID {}", created.getIdElement().getIdPart());
+            return created;
+        } catch (Exception e) {
+            logger.atError()
+                    .setCause(e)
+                    .addKeyValue("resourceType", "Condition")
+                    .addKeyValue("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Error creating condition: {}", e.getMessage());
+            throw e;
+        }
+    }
 
+    Condition buildCondition(String patientFhirId, String practitionerFhirId, String description, Date recordedDate) {
         Condition condition = new Condition();
 
         condition.getClinicalStatus()
@@ -99,9 +193,7 @@ public class HapiConditionService {
 
         condition.setSubject(new Reference("Patient/" + patientFhirId));
 
-        if (practitionerPersonnummer != null && !practitionerPersonnummer.isEmpty()) {
-            String practitionerFhirId = fhirLookupService.findPractitionerIdByPersonnummer(practitionerPersonnummer);
-            System.out.println("Creating condition - Practitioner personnummer: " + practitionerPersonnummer + " -> FHIR ID: " + practitionerFhirId);
+        if (practitionerFhirId != null) {
             condition.setRecorder(new Reference("Practitioner/" + practitionerFhirId));
         }
 
@@ -115,19 +207,13 @@ public class HapiConditionService {
         condition.setRecordedDate(recordedDate);
         condition.setOnset(new DateTimeType(recordedDate));
 
-        try {
-            MethodOutcome outcome = client
-                    .create()
-                    .resource(condition)
-                    .execute();
-
-            String newId = outcome.getId().getIdPart();
-            System.out.println("✓ Condition created with ID: " + newId);
-            return getConditionById(newId).orElse(condition);
-        } catch (Exception e) {
-            System.err.println("Error creating condition: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
-        }
+        return condition;
     }
-}
\ No newline at end of file
+
+    public record NewCondition(
+            String patientPersonnummer,
+            String practitionerPersonnummer,
+            String description,
+            Date recordedDate
+    ) {}
+}
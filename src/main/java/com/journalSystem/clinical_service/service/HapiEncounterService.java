@@ -1,22 +1,30 @@
 package com.journalSystem.clinical_service.service;
 
-import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.IQuery;
 import ca.uhn.fhir.util.BundleUtil;
 import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.r4.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class HapiEncounterService {
 
+    private static final Logger logger = LoggerFactory.getLogger(HapiEncounterService.class);
+
     private final HapiClientService hapiClient;
     private final FhirLookupService fhirLookupService;
+    private final CreateBatcher createBatcher;
 
     public List<Encounter> getAllEncounters() {
         IGenericClient client = hapiClient.getClient();
@@ -39,24 +47,49 @@ public class HapiEncounterService {
 
             String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
 
-            Bundle bundle = client
+            Bundle bundle = RequestTimings.fhirCall(() -> client
                     .search()
                     .forResource(Encounter.class)
                     .where(Encounter.PATIENT.hasId(patientFhirId))
                     .returnBundle(Bundle.class)
-                    .execute();
+                    .execute());
 
             return BundleUtil.toListOfEntries(hapiClient.getContext(), bundle)
                     .stream()
                     .map(entry -> (Encounter) entry.getResource())
                     .toList();
         } catch (Exception e) {
-            System.err.println("Could not fetch encounters for patient: " + patientPersonnummer);
-            e.printStackTrace();
+            logger.warn("Could not fetch encounters for patient {}", patientPersonnummer, e);
             return List.of();
         }
     }
 
+    /**
+     * Returns the patient's encounters created or updated after {@code since} (all of them when null),
+     * so pollers only transfer what changed since their last watermark.
+     */
+    public ChangeSet<Encounter> getEncountersChangedSince(String patientPersonnummer, Instant since) {
+        try {
+            IGenericClient client = hapiClient.getClient();
+
+            String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
+
+            IQuery<IBaseBundle> query = client
+                    .search()
+                    .forResource(Encounter.class)
+                    .where(Encounter.PATIENT.hasId(patientFhirId));
+
+            Bundle bundle = RequestTimings.fhirCall(() -> ChangeSet.changedSince(query, since)
+                    .returnBundle(Bundle.class)
+                    .execute());
+
+            return ChangeSet.collect(client, bundle, Encounter.class, since);
+        } catch (Exception e) {
+            logger.warn("Could not fetch changed encounters for patient {}", patientPersonnummer, e);
+            return ChangeSet.empty(since);
+        }
+    }
+
     public Optional<Encounter> getEncounterById(String id) {
         try {
             IGenericClient client = hapiClient.getClient();
@@ -69,7 +102,7 @@ public class HapiEncounterService {
 
             return Optional.of(encounter);
         } catch (Exception e) {
-            System.err.println("Could not find encounter with ID: " + id);
+            logger.info("Could not find encounter with ID {}: {}", id, e.getMessage());
             return Optional.empty();
         }
     }
@@ -80,11 +113,73 @@ public class HapiEncounterService {
             Date startTime,
             Date endTime
     ) {
-        IGenericClient client = hapiClient.getClient();
+        return createEncounter(patientPersonnummer, practitionerPersonnummer, startTime, endTime, null);
+    }
+
+    /**
+     * Idempotent variant of {@link #createEncounter(String, String, Date, Date)}; a repeated key
+     * returns the encounter stored by the first request.
+     */
+    public Encounter createEncounter(
+            String patientPersonnummer,
+            String practitionerPersonnummer,
+            Date startTime,
+            Date endTime,
+            String idempotencyKey
+    ) {
+        long start = System.nanoTime();
+        String payloadHash = idempotencyKey != null
+                ? IdempotencyCache.payloadHash(patientPersonnummer, practitionerPersonnummer, startTime, endTime)
+                : null;
+        Optional<Encounter> recent = hapiClient.findRecentlyCreated(Encounter.class, idempotencyKey, payloadHash);
+        if (recent.isPresent()) {
+            logger.atInfo()
+                    .addKeyValue("resourceType", "Encounter")
+                    .addKeyValue("idempotencyKey", idempotencyKey)
+                    .log("Encounter already created for idempotency key {}", idempotencyKey);
+            return recent.get();
+        }
+
+        FhirLookupService.Participants participants =
+                fhirLookupService.resolveParticipants(patientPersonnummer, practitionerPersonnummer);
+        String patientFhirId = participants.patientFhirId();
+        logger.debug("Creating encounter - patient {} -> FHIR ID {}", patientPersonnummer, patientFhirId);
+
+        String practitionerFhirId = participants.practitionerFhirId();
+        if (practitionerFhirId != null) {
+            logger.debug("Creating encounter - practitioner {} -> FHIR ID {}", practitionerPersonnummer, practitionerFhirId);
+        }
+
+        Encounter encounter = buildEncounter(patientFhirId, practitionerFhirId, startTime, endTime);
+
+        try {
+            if (idempotencyKey != null) {
+                encounter.addIdentifier()
+                        .setSystem(HapiClientService.IDEMPOTENCY_KEY_SYSTEM)
+                        .setValue(idempotencyKey);
+                encounter.addIdentifier()
+                        .setSystem(HapiClientService.IDEMPOTENCY_PAYLOAD_SYSTEM)
+                        .setValue(payloadHash);
+            }
 
-        String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
-        System.out.println("Creating encounter - Patient personnummer: " + patientPersonnummer + " -> FHIR ID: " + patientFhirId);
+            Encounter created = createBatcher.create(encounter, idempotencyKey);
+            logger.atInfo()
+                    .addKeyValue("resourceType", "Encounter")
+                    .addKeyValue("id", created.getIdElement().getIdPart())
+                    .addKeyValue("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Encounter created with ID {}", created.getIdElement().getIdPart());
+            return created;
+        } catch (Exception e) {
+            logger.atError()
+                    .setCause(e)
+                    .addKeyValue("resourceType", "Encounter")
+                    .addKeyValue("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Error creating encounter: {}", e.getMessage());
+            throw e;
+        }
+    }
 
+    Encounter buildEncounter(String patientFhirId, String practitionerFhirId, Date startTime, Date endTime) {
         Encounter encounter = new Encounter();
         encounter.setStatus(Encounter.EncounterStatus.FINISHED);
 
@@ -101,10 +196,7 @@ public class HapiEncounterService {
 
         encounter.setSubject(new Reference("Patient/" + patientFhirId));
 
-        if (practitionerPersonnummer != null && !practitionerPersonnummer.isEmpty()) {
-            String practitionerFhirId = fhirLookupService.findPractitionerIdByPersonnummer(practitionerPersonnummer);
-            System.out.println("Creating encounter - Practitioner personnummer: " + practitionerPersonnummer + " -> FHIR ID: " + practitionerFhirId);
-
+        if (practitionerFhirId != null) {
             Encounter.EncounterParticipantComponent participant = encounter.addParticipant();
 
             participant.addType()
@@ -130,19 +222,13 @@ public class HapiEncounterService {
         }
         encounter.setPeriod(period);
 
-        try {
-            MethodOutcome outcome = client
-                    .create()
-                    .resource(encounter)
-                    .execute();
-
-            String newId = outcome.getId().getIdPart();
-            System.out.println("✓ Encounter created with ID: " + newId);
-            return getEncounterById(newId).orElse(encounter);
-        } catch (Exception e) {
-            System.err.println("Error creating encounter: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
-        }
+        return encounter;
     }
-}
\ No newline at end of file
+
+    public record NewEncounter(
+            String patientPersonnummer,
+            String practitionerPersonnummer,
+            Date startTime,
+            Date endTime
+    ) {}
+}
@@ -1,22 +1,37 @@
 package com.journalSystem.clinical_service.service;
 
-import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.IQuery;
 import ca.uhn.fhir.util.BundleUtil;
+import com.journalSystem.clinical_service.dto.BulkItemResultDTO;
 import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.r4.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class HapiObservationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(HapiObservationService.class);
+
     private final HapiClientService hapiClient;
     private final FhirLookupService fhirLookupService;
+    private final CreateBatcher createBatcher;
 
     public List<Observation> getAllObservations() {
         IGenericClient client = hapiClient.getClient();
@@ -34,29 +49,87 @@ public class HapiObservationService {
     }
 
     public List<Observation> getObservationsForPatient(String patientPersonnummer) {
+        return getObservationsForPatient(patientPersonnummer, null, null, null, null);
+    }
+
+    /**
+     * Searches a patient's observations with the date range, ordering and page size
+     * pushed down to the FHIR server, so only the requested slice is transferred.
+     *
+     * @param from        inclusive lower bound on the effective date, or null
+     * @param to          inclusive upper bound on the effective date, or null
+     * @param sort        ordering to request from the server, or null for server order
+     * @param limit       maximum number of observations to return, or null for the server default
+     */
+    public List<Observation> getObservationsForPatient(
+            String patientPersonnummer,
+            LocalDate from,
+            LocalDate to,
+            SortSpec sort,
+            Integer limit
+    ) {
         try {
             IGenericClient client = hapiClient.getClient();
 
             String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
 
-            Bundle bundle = client
+            IQuery<Bundle> query = client
                     .search()
                     .forResource(Observation.class)
                     .where(Observation.PATIENT.hasId(patientFhirId))
-                    .returnBundle(Bundle.class)
-                    .execute();
+                    .returnBundle(Bundle.class);
+
+            if (from != null) {
+                query = query.and(Observation.DATE.afterOrEquals().day(from.toString()));
+            }
+            if (to != null) {
+                query = query.and(Observation.DATE.beforeOrEquals().day(to.toString()));
+            }
+            if (sort != null) {
+                query = query.sort(sort);
+            }
+            if (limit != null) {
+                query = query.count(limit);
+            }
+
+            Bundle bundle = RequestTimings.fhirCall(query::execute);
 
             return BundleUtil.toListOfEntries(hapiClient.getContext(), bundle)
                     .stream()
                     .map(entry -> (Observation) entry.getResource())
                     .toList();
         } catch (Exception e) {
-            System.err.println("Could not fetch observations for patient: " + patientPersonnummer);
-            e.printStackTrace();
+            logger.warn("Could not fetch observations for patient {}", patientPersonnummer, e);
             return List.of();
         }
     }
 
+    /**
+     * Returns the patient's observations created or updated after {@code since} (all of them when null),
+     * so pollers only transfer what changed since their last watermark.
+     */
+    public ChangeSet<Observation> getObservationsChangedSince(String patientPersonnummer, Instant since) {
+        try {
+            IGenericClient client = hapiClient.getClient();
+
+            String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
+
+            IQuery<IBaseBundle> query = client
+                    .search()
+                    .forResource(Observation.class)
+                    .where(Observation.PATIENT.hasId(patientFhirId));
+
+            Bundle bundle = RequestTimings.fhirCall(() -> ChangeSet.changedSince(query, since)
+                    .returnBundle(Bundle.class)
+                    .execute());
+
+            return ChangeSet.collect(client, bundle, Observation.class, since);
+        } catch (Exception e) {
+            logger.warn("Could not fetch changed observations for patient {}", patientPersonnummer, e);
+            return ChangeSet.empty(since);
+        }
+    }
+
     public Optional<Observation> getObservationById(String id) {
         try {
             IGenericClient client = hapiClient.getClient();
@@ -69,7 +142,7 @@ public class HapiObservationService {
 
             return Optional.of(observation);
         } catch (Exception e) {
-            System.err.println("Could not find observation with ID: " + id);
+            logger.info("Could not find observation with ID {}: {}", id, e.getMessage());
             return Optional.empty();
         }
     }
@@ -82,11 +155,151 @@ public class HapiObservationService {
             String unit,
             Date effectiveDateTime
     ) {
-        IGenericClient client = hapiClient.getClient();
+        return createObservation(patientPersonnummer, performerPersonnummer, description, value, unit, effectiveDateTime, null);
+    }
+
+    /**
+     * Creates an observation. When {@code idempotencyKey} is given, retries with the same key return the
+     * observation created by the first attempt instead of creating a duplicate; reusing the key for a
+     * different observation fails with {@code UnprocessableEntityException} (422).
+     */
+    public Observation createObservation(
+            String patientPersonnummer,
+            String performerPersonnummer,
+            String description,
+            String value,
+            String unit,
+            Date effectiveDateTime,
+            String idempotencyKey
+    ) {
+        long start = System.nanoTime();
+        String payloadHash = idempotencyKey != null
+                ? IdempotencyCache.payloadHash(patientPersonnummer, performerPersonnummer, description, value, unit, effectiveDateTime)
+                : null;
+        Optional<Observation> recent = hapiClient.findRecentlyCreated(Observation.class, idempotencyKey, payloadHash);
+        if (recent.isPresent()) {
+            logger.atInfo()
+                    .addKeyValue("resourceType", "Observation")
+                    .addKeyValue("idempotencyKey", idempotencyKey)
+                    .log("Observation already created for idempotency key {}", idempotencyKey);
+            return recent.get();
+        }
+
+        FhirLookupService.Participants participants =
+                fhirLookupService.resolveParticipants(patientPersonnummer, performerPersonnummer);
+        String patientFhirId = participants.patientFhirId();
+        logger.debug("Creating observation - patient {} -> FHIR ID {}", patientPersonnummer, patientFhirId);
+
+        String practitionerFhirId = participants.practitionerFhirId();
+        if (practitionerFhirId != null) {
+            logger.debug("Creating observation - practitioner {} -> FHIR ID {}", performerPersonnummer, practitionerFhirId);
+        }
+
+        Observation observation = buildObservation(patientFhirId, practitionerFhirId, description, value, unit, effectiveDateTime);
+
+        try {
+            if (idempotencyKey != null) {
+                observation.addIdentifier()
+                        .setSystem(HapiClientService.IDEMPOTENCY_KEY_SYSTEM)
+                        .setValue(idempotencyKey);
+                observation.addIdentifier()
+                        .setSystem(HapiClientService.IDEMPOTENCY_PAYLOAD_SYSTEM)
+                        .setValue(payloadHash);
+            }
+
+            Observation created = createBatcher.create(observation, idempotencyKey);
+            logger.atInfo()
+                    .addKeyValue("resourceType", "Observation")
+                    .addKeyValue("id", created.getIdElement().getIdPart())
+                    .addKeyValue("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Observation created with ID {}", created.getIdElement().getIdPart());
+            return created;
+        } catch (Exception e) {
+            logger.atError()
+                    .setCause(e)
+                    .addKeyValue("resourceType", "Observation")
+                    .addKeyValue("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Error creating observation: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Creates many observations in one FHIR transaction. Each distinct personnummer is resolved once.
+     * Items whose patient or performer cannot be resolved are rejected individually; the rest are
+     * created together, so they either all succeed or all fail. If the lookups themselves fail,
+     * every item fails.
+     *
+     * @return one result per item, in input order
+     */
+    public List<BulkItemResultDTO> createObservations(List<NewObservation> items) {
+        BulkItemResultDTO[] results = new BulkItemResultDTO[items.size()];
+
+        Map<String, String> patientIds;
+        Map<String, String> practitionerIds;
+        try {
+            patientIds = fhirLookupService.findPatientIdsByPersonnummer(
+                    items.stream().map(NewObservation::patientPersonnummer).toList());
+            practitionerIds = fhirLookupService.findPractitionerIdsByPersonnummer(
+                    items.stream().map(NewObservation::performerPersonnummer).filter(Objects::nonNull).toList());
+        } catch (Exception e) {
+            logger.error("Error resolving participants for observation batch: {}", e.getMessage(), e);
+            Arrays.fill(results, BulkItemResultDTO.failed("Could not resolve participants: " + e.getMessage()));
+            return Arrays.asList(results);
+        }
+
+        List<Observation> observations = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            NewObservation item = items.get(i);
 
-        String patientFhirId = fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer);
-        System.out.println("Creating observation - Patient personnummer: " + patientPersonnummer + " -> FHIR ID: " + patientFhirId);
+            String patientFhirId = patientIds.get(item.patientPersonnummer());
+            if (patientFhirId == null) {
+                results[i] = BulkItemResultDTO.rejected("Patient not found with identifier or ID: " + item.patientPersonnummer());
+                continue;
+            }
+
+            String practitionerFhirId = null;
+            if (item.performerPersonnummer() != null && !item.performerPersonnummer().isEmpty()) {
+                practitionerFhirId = practitionerIds.get(item.performerPersonnummer());
+                if (practitionerFhirId == null) {
+                    results[i] = BulkItemResultDTO.rejected("Practitioner not found with identifier or ID: " + item.performerPersonnummer());
+                    continue;
+                }
+            }
 
+            observations.add(buildObservation(patientFhirId, practitionerFhirId, item.description(),
+                    item.value(), item.unit(), item.effectiveDateTime()));
+            positions.add(i);
+        }
+
+        if (!observations.isEmpty()) {
+            try {
+                List<String> ids = hapiClient.createAll(observations);
+                for (int j = 0; j < ids.size(); j++) {
+                    results[positions.get(j)] = BulkItemResultDTO.created(ids.get(j));
+                }
+                logger.info("Created {} observations in one transaction", ids.size());
+            } catch (Exception e) {
+                logger.error("Error creating observation batch: {}", e.getMessage(), e);
+                for (int position : positions) {
+                    results[position] = BulkItemResultDTO.failed(e.getMessage());
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    Observation buildObservation(
+            String patientFhirId,
+            String practitionerFhirId,
+            String description,
+            String value,
+            String unit,
+            Date effectiveDateTime
+    ) {
         Observation observation = new Observation();
         observation.setStatus(Observation.ObservationStatus.FINAL);
 
@@ -105,9 +318,7 @@ public class HapiObservationService {
 
         observation.setSubject(new Reference("Patient/" + patientFhirId));
 
-        if (performerPersonnummer != null && !performerPersonnummer.isEmpty()) {
-            String practitionerFhirId = fhirLookupService.findPractitionerIdByPersonnummer(performerPersonnummer);
-            System.out.println("Creating observation - Practitioner personnummer: " + performerPersonnummer + " -> FHIR ID: " + practitionerFhirId);
+        if (practitionerFhirId != null) {
             observation.addPerformer(new Reference("Practitioner/" + practitionerFhirId));
         }
 
@@ -128,19 +339,15 @@ public class HapiObservationService {
         observation.setEffective(new DateTimeType(effectiveDateTime));
         observation.setIssued(effectiveDateTime);
 
-        try {
-            MethodOutcome outcome = client
-                    .create()
-                    .resource(observation)
-                    .execute();
-
-            String newId = outcome.getId().getIdPart();
-            System.out.println("✓ Observation created with ID: " + newId);
-            return getObservationById(newId).orElse(observation);
-        } catch (Exception e) {
-            System.err.println("Error creating observation: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
-        }
+        return observation;
     }
-}
\ No newline at end of file
+
+    public record NewObservation(
+            String patientPersonnummer,
+            String performerPersonnummer,
+            String description,
+            String value,
+            String unit,
+            Date effectiveDateTime
+    ) {}
+}
@@ -1,10 +1,13 @@
 package com.journalSystem.clinical_service.service;
 
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.ICriterion;
 import ca.uhn.fhir.util.BundleUtil;
 import lombok.RequiredArgsConstructor;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Patient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,6 +17,8 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class HapiPatientService {
 
+    private static final Logger logger = LoggerFactory.getLogger(HapiPatientService.class);
+
     private final HapiClientService hapiClient;
 
     public List<Patient> getAllPatients() {
@@ -31,6 +36,35 @@ public class HapiPatientService {
                 .toList();
     }
 
+    /**
+     * Upstream search by exact personnummer or name prefix, used until the local index has loaded.
+     */
+    public List<Patient> searchPatients(String query) {
+        try {
+            IGenericClient client = hapiClient.getClient();
+
+            String digits = query.replaceAll("[\\s-]", "");
+            ICriterion<?> criterion = !digits.isEmpty() && digits.chars().allMatch(Character::isDigit)
+                    ? Patient.IDENTIFIER.exactly().code(digits)
+                    : Patient.NAME.matches().value(query);
+
+            Bundle bundle = client
+                    .search()
+                    .forResource(Patient.class)
+                    .where(criterion)
+                    .returnBundle(Bundle.class)
+                    .execute();
+
+            return BundleUtil.toListOfEntries(hapiClient.getContext(), bundle)
+                    .stream()
+                    .map(entry -> (Patient) entry.getResource())
+                    .toList();
+        } catch (Exception e) {
+            logger.warn("Could not search patients with query {}", query, e);
+            return List.of();
+        }
+    }
+
     public Optional<Patient> getPatientById(String id) {
         try {
             IGenericClient client = hapiClient.getClient();
@@ -5,6 +5,8 @@ import ca.uhn.fhir.util.BundleUtil;
 import lombok.RequiredArgsConstructor;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Practitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,6 +16,8 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class HapiPractitionerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(HapiPractitionerService.class);
+
     private final HapiClientService hapiClient;
 
     public List<Practitioner> getAllPractitioners() {
@@ -41,7 +45,7 @@ public class HapiPractitionerService {
                     .execute();
             return Optional.of(practitioner);
         } catch (Exception e) {
-            System.err.println("Could not find practitioner with ID: " + id);
+            logger.info("Could not find practitioner with ID {}: {}", id, e.getMessage());
             return Optional.empty();
         }
     }
@@ -62,8 +66,7 @@ public class HapiPractitionerService {
                     .map(entry -> (Practitioner) entry.getResource())
                     .toList();
         } catch (Exception e) {
-            System.err.println("Could not search practitioner with name: " + name);
-            e.printStackTrace();
+            logger.warn("Could not search practitioner with name {}", name, e);
             return List.of();
         }
     }
@@ -0,0 +1,124 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import org.hl7.fhir.r4.model.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Bounded, time-limited memory of resources recently created under an {@code Idempotency-Key},
+ * so a retried create can be answered without contacting the FHIR server.
+ * <p>
+ * This is only a shortcut: the key is also stored as a FHIR identifier and creates are conditional
+ * on it, so duplicates are prevented even after an entry is evicted or on another instance.
+ * <p>
+ * Keys are scoped to the caller with {@link #scope(Principal, String)}, so two users cannot collide
+ * on (or probe) each other's keys. Each entry remembers the {@link #payloadHash(Object...) hash} of
+ * the request that created it; reusing a key for a different request fails with
+ * {@link UnprocessableEntityException} (422) instead of returning the unrelated resource.
+ */
+@Component
+public class IdempotencyCache {
+
+    private record Entry(Resource resource, String payloadHash, long expiresAtMillis) {}
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    public IdempotencyCache(
+            @Value("${clinical.idempotency.cache-size:10000}") int maxEntries,
+            @Value("${clinical.idempotency.ttl-ms:86400000}") long ttlMillis
+    ) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the resource created under {@code idempotencyKey}, if still remembered.
+     *
+     * @param payloadHash hash of the current request, or null to skip the comparison
+     * @throws UnprocessableEntityException if the key was used for a request with a different hash
+     */
+    public <T extends Resource> Optional<T> get(Class<T> type, String idempotencyKey, String payloadHash) {
+        String key = key(type, idempotencyKey);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) return Optional.empty();
+            if (entry.expiresAtMillis() < System.currentTimeMillis()) {
+                entries.remove(key);
+                return Optional.empty();
+            }
+            checkPayload(idempotencyKey, entry.payloadHash(), payloadHash);
+            return Optional.of(type.cast(entry.resource().copy()));
+        }
+    }
+
+    public void put(String idempotencyKey, Resource resource, String payloadHash) {
+        Entry entry = new Entry(resource.copy(), payloadHash, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key(resource.getClass(), idempotencyKey), entry);
+        }
+    }
+
+    /**
+     * Fails when both hashes are known and differ.
+     *
+     * @throws UnprocessableEntityException if {@code idempotencyKey} was used for a different request
+     */
+    public static void checkPayload(String idempotencyKey, String storedHash, String payloadHash) {
+        if (storedHash != null && payloadHash != null && !storedHash.equals(payloadHash)) {
+            throw new UnprocessableEntityException(
+                    "Idempotency-Key " + idempotencyKey + " was already used for a different request");
+        }
+    }
+
+    /**
+     * The key under which a caller's {@code Idempotency-Key} is stored: prefixed with the
+     * authenticated subject, or unchanged for unauthenticated calls. Returns null for a null key.
+     */
+    public static String scope(Principal principal, String idempotencyKey) {
+        if (idempotencyKey == null || principal == null || principal.getName() == null) {
+            return idempotencyKey;
+        }
+        return principal.getName() + ':' + idempotencyKey;
+    }
+
+    /**
+     * SHA-256 over the fields of a create request, in order. Dates are hashed by their instant,
+     * so a request replayed from its JSON form hashes the same.
+     */
+    public static String payloadHash(Object... fields) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        for (Object field : fields) {
+            String value = field instanceof Date date ? String.valueOf(date.getTime()) : Objects.toString(field, "");
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String key(Class<?> type, String idempotencyKey) {
+        return type.getSimpleName() + '|' + idempotencyKey;
+    }
+}
@@ -0,0 +1,380 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.journalSystem.clinical_service.dto.ImportStatusDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Streams newline-delimited JSON into FHIR for bulk migration.
+ * <p>
+ * Each line is one observation, condition or encounter, tagged with {@code resourceType} and otherwise
+ * shaped like the service {@code New*} records. Lines are read incrementally and grouped into chunks of
+ * {@code clinical.import.batch-size}; each chunk resolves its personnummer with one batched lookup and is
+ * written as one transaction Bundle. Chunks run concurrently under an {@link AdaptiveConcurrencyLimit},
+ * so when FHIR slows down the reader stops consuming the upload.
+ * <p>
+ * Every line is written conditionally on an idempotency key: the line's {@code idempotencyKey} when it
+ * has one, otherwise a hash of the line. Re-running an import after a timeout or a partial failure
+ * therefore skips the lines already stored, and identical lines are stored once. Chunks failing with
+ * a server or connection error are retried up to {@code clinical.import.max-attempts} times with
+ * exponential backoff before they are counted as failed.
+ */
+@Service
+public class ImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final String IMPORT_KEY_PREFIX = "import:";
+
+    private record ImportLine(
+            long lineNumber,
+            String idempotencyKey,
+            String payloadHash,
+            String patientPersonnummer,
+            String practitionerPersonnummer,
+            BiFunction<String, String, Resource> builder
+    ) {}
+
+    private final HapiClientService hapiClient;
+    private final FhirLookupService fhirLookupService;
+    private final HapiObservationService hapiObservationService;
+    private final HapiConditionService hapiConditionService;
+    private final HapiEncounterService hapiEncounterService;
+
+    private final Counter importedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Map<String, ImportProgress> active = new ConcurrentHashMap<>();
+
+    private final int batchSize;
+    private final int maxConcurrency;
+    private final long targetLatencyMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+
+    public ImportService(
+            HapiClientService hapiClient,
+            FhirLookupService fhirLookupService,
+            HapiObservationService hapiObservationService,
+            HapiConditionService hapiConditionService,
+            HapiEncounterService hapiEncounterService,
+            MeterRegistry meterRegistry,
+            @Value("${clinical.import.batch-size:200}") int batchSize,
+            @Value("${clinical.import.max-concurrency:4}") int maxConcurrency,
+            @Value("${clinical.import.target-latency-ms:2000}") long targetLatencyMillis,
+            @Value("${clinical.import.max-attempts:3}") int maxAttempts,
+            @Value("${clinical.import.retry-backoff-ms:1000}") long retryBackoffMillis
+    ) {
+        this.batchSize = Math.max(1, batchSize);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.hapiClient = hapiClient;
+        this.fhirLookupService = fhirLookupService;
+        this.hapiObservationService = hapiObservationService;
+        this.hapiConditionService = hapiConditionService;
+        this.hapiEncounterService = hapiEncounterService;
+
+        this.importedCounter = recordsCounter(meterRegistry, "imported");
+        this.rejectedCounter = recordsCounter(meterRegistry, "rejected");
+        this.failedCounter = recordsCounter(meterRegistry, "failed");
+        this.batchTimer = Timer.builder("clinical.import.batch.duration")
+                .description("Time to resolve and write one import chunk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter recordsCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("clinical.import.records")
+                .description("Records processed by NDJSON imports")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Progress of the imports currently running on this instance.
+     */
+    public List<ImportStatusDTO> getActiveImports() {
+        return active.values().stream().map(progress -> progress.toStatus(false)).toList();
+    }
+
+    /**
+     * Imports every line of {@code body} and returns the final counts once all chunks are written.
+     * Rejected lines (unparseable, unknown type, unresolved personnummer) do not stop the import.
+     */
+    public ImportStatusDTO importNdjson(InputStream body) throws IOException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(maxConcurrency, targetLatencyMillis);
+        ImportProgress progress = new ImportProgress(UUID.randomUUID().toString(), Instant.now(), limit);
+        active.put(progress.id, progress);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<ImportLine> chunk = new ArrayList<>(batchSize);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                progress.linesRead.incrementAndGet();
+
+                try {
+                    chunk.add(parse(lineNumber, line));
+                } catch (Exception e) {
+                    progress.reject(lineNumber, e.getMessage());
+                    rejectedCounter.increment();
+                    continue;
+                }
+
+                if (chunk.size() >= batchSize) {
+                    submit(chunk, progress, limit, workers);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(chunk, progress, limit, workers);
+            }
+            limit.awaitIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } finally {
+            workers.shutdown();
+            active.remove(progress.id);
+        }
+
+        ImportStatusDTO result = progress.toStatus(true);
+        logger.info("Import {} finished: {} imported, {} rejected, {} failed",
+                result.id(), result.imported(), result.rejected(), result.failed());
+        return result;
+    }
+
+    private ImportLine parse(long lineNumber, String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        String resourceType = node.path("resourceType").asText();
+        String payloadHash = IdempotencyCache.payloadHash(line);
+        String suppliedKey = node.path("idempotencyKey").asText(null);
+        String idempotencyKey = IMPORT_KEY_PREFIX + (suppliedKey != null ? suppliedKey : payloadHash);
+        switch (resourceType) {
+            case "Observation" -> {
+                HapiObservationService.NewObservation observation =
+                        objectMapper.treeToValue(node, HapiObservationService.NewObservation.class);
+                return new ImportLine(lineNumber, idempotencyKey, payloadHash, observation.patientPersonnummer(), observation.performerPersonnummer(),
+                        (patientFhirId, practitionerFhirId) -> hapiObservationService.buildObservation(
+                                patientFhirId, practitionerFhirId, observation.description(), observation.value(),
+                                observation.unit(), observation.effectiveDateTime()));
+            }
+            case "Condition" -> {
+                HapiConditionService.NewCondition condition =
+                        objectMapper.treeToValue(node, HapiConditionService.NewCondition.class);
+                return new ImportLine(lineNumber, idempotencyKey, payloadHash, condition.patientPersonnummer(), condition.practitionerPersonnummer(),
+                        (patientFhirId, practitionerFhirId) -> hapiConditionService.buildCondition(
+                                patientFhirId, practitionerFhirId, condition.description(), condition.recordedDate()));
+            }
+            case "Encounter" -> {
+                HapiEncounterService.NewEncounter encounter =
+                        objectMapper.treeToValue(node, HapiEncounterService.NewEncounter.class);
+                return new ImportLine(lineNumber, idempotencyKey, payloadHash, encounter.patientPersonnummer(), encounter.practitionerPersonnummer(),
+                        (patientFhirId, practitionerFhirId) -> hapiEncounterService.buildEncounter(
+                                patientFhirId, practitionerFhirId, encounter.startTime(), encounter.endTime()));
+            }
+            default -> throw new IllegalArgumentException("Unsupported resourceType: " + resourceType);
+        }
+    }
+
+    private void submit(
+            List<ImportLine> chunk,
+            ImportProgress progress,
+            AdaptiveConcurrencyLimit limit,
+            ExecutorService workers
+    ) throws InterruptedException {
+        limit.acquire();
+        workers.execute(() -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                success = importChunk(chunk, progress);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                batchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                limit.release(elapsed, success);
+            }
+        });
+    }
+
+    /**
+     * Resolves and writes one chunk.
+     *
+     * @return false when the upstream calls failed, which shrinks the concurrency limit
+     */
+    private boolean importChunk(List<ImportLine> chunk, ImportProgress progress) {
+        long firstLine = chunk.get(0).lineNumber();
+        long lastLine = chunk.get(chunk.size() - 1).lineNumber();
+
+        long pending = chunk.size();
+        try {
+            Map<String, String> patientIds = withRetries(() -> fhirLookupService.findPatientIdsByPersonnummer(
+                    chunk.stream().map(ImportLine::patientPersonnummer).filter(Objects::nonNull).toList()));
+            Map<String, String> practitionerIds = withRetries(() -> fhirLookupService.findPractitionerIdsByPersonnummer(
+                    chunk.stream().map(ImportLine::practitionerPersonnummer).filter(Objects::nonNull).toList()));
+
+            List<Resource> resources = new ArrayList<>(chunk.size());
+            List<String> idempotencyKeys = new ArrayList<>(chunk.size());
+            for (ImportLine line : chunk) {
+                String patientFhirId = line.patientPersonnummer() == null ? null : patientIds.get(line.patientPersonnummer());
+                if (patientFhirId == null) {
+                    progress.reject(line.lineNumber(), "Patient not found with identifier or ID: " + line.patientPersonnummer());
+                    rejectedCounter.increment();
+                    continue;
+                }
+
+                String practitioner = line.practitionerPersonnummer();
+                String practitionerFhirId = null;
+                if (practitioner != null && !practitioner.isEmpty()) {
+                    practitionerFhirId = practitionerIds.get(practitioner);
+                    if (practitionerFhirId == null) {
+                        progress.reject(line.lineNumber(), "Practitioner not found with identifier or ID: " + practitioner);
+                        rejectedCounter.increment();
+                        continue;
+                    }
+                }
+
+                Resource resource = line.builder().apply(patientFhirId, practitionerFhirId);
+                addIdentifier(resource, HapiClientService.IDEMPOTENCY_KEY_SYSTEM, line.idempotencyKey());
+                addIdentifier(resource, HapiClientService.IDEMPOTENCY_PAYLOAD_SYSTEM, line.payloadHash());
+                resources.add(resource);
+                idempotencyKeys.add(line.idempotencyKey());
+            }
+
+            pending = resources.size();
+            if (!resources.isEmpty()) {
+                withRetries(() -> hapiClient.createInTransaction(resources, idempotencyKeys));
+                progress.imported.addAndGet(resources.size());
+                importedCounter.increment(resources.size());
+            }
+            return true;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.warn("Import {} lines {}-{} failed: {}", progress.id, firstLine, lastLine, e.getMessage());
+            progress.failed.addAndGet(pending);
+            failedCounter.increment(pending);
+            progress.error("Lines " + firstLine + "-" + lastLine + " failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Runs {@code call}, retrying server and connection errors with exponential backoff. The worker
+     * keeps its concurrency permit while it waits, so the reader slows down meanwhile.
+     */
+    private <T> T withRetries(Supplier<T> call) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                long delayMillis = retryBackoffMillis << Math.min(attempt - 1, 20);
+                logger.warn("Import call failed (attempt {}), retrying in {} ms: {}", attempt, delayMillis, e.getMessage());
+                Thread.sleep(delayMillis);
+            }
+        }
+    }
+
+    /**
+     * Server errors, timeouts, throttling and connection failures; other client errors will fail again.
+     */
+    private static boolean isRetryable(RuntimeException e) {
+        if (e instanceof BaseServerResponseException response) {
+            int status = response.getStatusCode();
+            return status >= 500 || status == 408 || status == 429;
+        }
+        return !(e instanceof IllegalArgumentException);
+    }
+
+    private static void addIdentifier(Resource resource, String system, String value) {
+        ((Identifier) resource.addChild("identifier")).setSystem(system).setValue(value);
+    }
+
+    private static final class ImportProgress {
+
+        private final String id;
+        private final Instant startedAt;
+        private final AdaptiveConcurrencyLimit limit;
+        private final AtomicLong linesRead = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<String> errors = new ArrayList<>();
+
+        private ImportProgress(String id, Instant startedAt, AdaptiveConcurrencyLimit limit) {
+            this.id = id;
+            this.startedAt = startedAt;
+            this.limit = limit;
+        }
+
+        private void reject(long lineNumber, String message) {
+            rejected.incrementAndGet();
+            error("Line " + lineNumber + ": " + message);
+        }
+
+        private synchronized void error(String message) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(message);
+            }
+        }
+
+        private synchronized ImportStatusDTO toStatus(boolean finished) {
+            double seconds = Math.max(0.001, Duration.between(startedAt, Instant.now()).toMillis() / 1000.0);
+            long processed = imported.get() + rejected.get() + failed.get();
+            return new ImportStatusDTO(id, finished, linesRead.get(), imported.get(), rejected.get(), failed.get(),
+                    processed / seconds, limit.limit(), startedAt, List.copyOf(errors));
+        }
+    }
+}
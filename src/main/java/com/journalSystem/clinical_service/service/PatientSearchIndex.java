@@ -0,0 +1,73 @@
+package com.journalSystem.clinical_service.service;
+
+import com.journalSystem.clinical_service.dto.PatientDTO;
+import com.journalSystem.clinical_service.mapper.FhirMapper;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.StringType;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Patient lookup index supporting name prefixes and partial personnummer.
+ * <p>
+ * Every suffix of an identifier's digits is indexed, so a prefix lookup finds personnummer
+ * containing the typed digits anywhere ("1234" finds 19700101-1234).
+ */
+@Service
+public class PatientSearchIndex extends ResourceSearchIndex<Patient, PatientDTO> {
+
+    private static final int FAMILY_WEIGHT = 2;
+    private static final int GIVEN_WEIGHT = 1;
+    private static final int IDENTIFIER_WEIGHT = 2;
+    private static final int PARTIAL_IDENTIFIER_WEIGHT = 1;
+
+    private static final Pattern IDENTIFIER_QUERY = Pattern.compile("[\\d\\s+-]*\\d[\\d\\s+-]*");
+    private static final Pattern NON_DIGITS = Pattern.compile("\\D+");
+
+    public PatientSearchIndex(HapiClientService hapiClient) {
+        super(hapiClient, Patient.class);
+    }
+
+    @Override
+    protected Document<PatientDTO> toDocument(Patient patient) {
+        PatientDTO dto = FhirMapper.patientToDTO(patient);
+
+        List<Term> terms = new ArrayList<>();
+        for (HumanName name : patient.getName()) {
+            addTerms(terms, name.getFamily(), FAMILY_WEIGHT);
+            for (StringType given : name.getGiven()) {
+                addTerms(terms, given.getValue(), GIVEN_WEIGHT);
+            }
+        }
+        for (Identifier identifier : patient.getIdentifier()) {
+            if (!identifier.hasValue()) continue;
+            String digits = digitsOf(identifier.getValue());
+            for (int i = 0; i < digits.length(); i++) {
+                terms.add(new Term(digits.substring(i), i == 0 ? IDENTIFIER_WEIGHT : PARTIAL_IDENTIFIER_WEIGHT));
+            }
+        }
+
+        String sortKey = PrefixIndex.normalize(dto.lastName() + " " + dto.firstName());
+        return new Document<>(patient.getIdElement().getIdPart(), dto, sortKey, terms);
+    }
+
+    /**
+     * Treats "19700101-1234" as one identifier token rather than two.
+     */
+    @Override
+    protected List<String> queryTokens(String query) {
+        if (query != null && IDENTIFIER_QUERY.matcher(query).matches()) {
+            return List.of(digitsOf(query));
+        }
+        return super.queryTokens(query);
+    }
+
+    private static String digitsOf(String value) {
+        return NON_DIGITS.matcher(value).replaceAll("");
+    }
+}
@@ -0,0 +1,41 @@
+package com.journalSystem.clinical_service.service;
+
+import com.journalSystem.clinical_service.dto.PractitionerDTO;
+import com.journalSystem.clinical_service.mapper.FhirMapper;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.hl7.fhir.r4.model.StringType;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Name autocomplete index over all practitioners. Family names rank above given names.
+ */
+@Service
+public class PractitionerSearchIndex extends ResourceSearchIndex<Practitioner, PractitionerDTO> {
+
+    private static final int FAMILY_WEIGHT = 2;
+    private static final int GIVEN_WEIGHT = 1;
+
+    public PractitionerSearchIndex(HapiClientService hapiClient) {
+        super(hapiClient, Practitioner.class);
+    }
+
+    @Override
+    protected Document<PractitionerDTO> toDocument(Practitioner practitioner) {
+        PractitionerDTO dto = FhirMapper.practitionerToDTO(practitioner);
+
+        List<Term> terms = new ArrayList<>();
+        for (HumanName name : practitioner.getName()) {
+            addTerms(terms, name.getFamily(), FAMILY_WEIGHT);
+            for (StringType given : name.getGiven()) {
+                addTerms(terms, given.getValue(), GIVEN_WEIGHT);
+            }
+        }
+
+        String sortKey = PrefixIndex.normalize(dto.lastName() + " " + dto.firstName());
+        return new Document<>(practitioner.getIdElement().getIdPart(), dto, sortKey, terms);
+    }
+}
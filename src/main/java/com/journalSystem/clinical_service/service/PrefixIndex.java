@@ -0,0 +1,117 @@
+package com.journalSystem.clinical_service.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable sorted-array index answering "all keys starting with a prefix" by binary search.
+ * Keys are stored normalized (see {@link #normalize(String)}); several values may share a key.
+ */
+public final class PrefixIndex<T> {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final String[] keys;
+    private final Object[] values;
+
+    private PrefixIndex(String[] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Calls {@code consumer} with every key/value pair whose key starts with {@code prefix}, in key order.
+     * The prefix must already be normalized.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachMatch(String prefix, BiConsumer<String, T> consumer) {
+        for (int i = lowerBound(prefix); i < keys.length && keys[i].startsWith(prefix); i++) {
+            consumer.accept(keys[i], (T) values[i]);
+        }
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Lower-cases and strips diacritics, so "Öberg" is found when typing "ob" or "öb".
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalizes {@code text} and splits it into letter/digit tokens.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null) return List.of();
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    public static final class Builder<T> {
+
+        private final List<String> keys = new ArrayList<>();
+        private final List<T> values = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a value under an already normalized key.
+         */
+        public Builder<T> add(String key, T value) {
+            keys.add(key);
+            values.add(value);
+            return this;
+        }
+
+        public PrefixIndex<T> build() {
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(keys::get));
+
+            String[] sortedKeys = new String[order.length];
+            Object[] sortedValues = new Object[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedKeys[i] = keys.get(order[i]);
+                sortedValues[i] = values.get(order[i]);
+            }
+            return new PrefixIndex<>(sortedKeys, sortedValues);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.journalSystem.clinical_service.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-request breakdown of where the time went, collected on the request thread and reported by
+ * {@code ServerTimingFilter} as a {@code Server-Timing} header and per-phase histograms.
+ * <p>
+ * Recording is a thread-local lookup and an add; outside a request (background executors, lookup
+ * threads) there is no collector and the calls do nothing. Phases may overlap: a lookup made on the
+ * request thread includes its own FHIR round trip, which also counts towards {@code fhir} and
+ * {@code parse}. The lookups of {@link FhirLookupService#resolveParticipants} run on its pool
+ * threads instead, so for creates that time appears only in {@code lookup}.
+ */
+public final class RequestTimings {
+
+    public enum Phase {
+        /** Bearer token decoding and signature verification */
+        JWT("jwt"),
+        /** Resolving a personnummer to a FHIR id */
+        LOOKUP("lookup"),
+        /** Waiting for FHIR server responses, up to the response headers */
+        FHIR("fhir"),
+        /** Reading and parsing FHIR response bodies */
+        PARSE("parse"),
+        /** Mapping FHIR resources to DTOs */
+        MAP("map"),
+        /** Writing the response body */
+        WRITE("write");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] nanos = new long[PHASES.length];
+    private final boolean[] recorded = new boolean[PHASES.length];
+
+    private RequestTimings() {
+    }
+
+    /**
+     * Starts collecting for the current thread's request; pair with {@link #end()}.
+     */
+    public static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Adds the time since {@code startNanos} (a {@link System#nanoTime()} value) to the phase.
+     */
+    public static void record(Phase phase, long startNanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    public static void recordNanos(Phase phase, long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(phase, nanos);
+        }
+    }
+
+    public static <T> T time(Phase phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(phase, start);
+        }
+    }
+
+    /**
+     * Runs a HAPI client call. The time spent waiting for the FHIR server is recorded as
+     * {@link Phase#FHIR} by {@link FhirClientMetrics}; the rest of the call, mostly reading and
+     * parsing the response body, is recorded here as {@link Phase#PARSE}.
+     */
+    public static <T> T fhirCall(Supplier<T> call) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        long fhirBefore = timings.nanos[Phase.FHIR.ordinal()];
+        try {
+            return call.get();
+        } finally {
+            long waited = timings.nanos[Phase.FHIR.ordinal()] - fhirBefore;
+            timings.add(Phase.PARSE, Math.max(0, System.nanoTime() - start - waited));
+        }
+    }
+
+    public void add(Phase phase, long elapsed) {
+        nanos[phase.ordinal()] += elapsed;
+        recorded[phase.ordinal()] = true;
+    }
+
+    public boolean isRecorded(Phase phase) {
+        return recorded[phase.ordinal()];
+    }
+
+    public long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * {@code Server-Timing} header value: the recorded phases and the total so far, in milliseconds,
+     * e.g. {@code jwt;dur=0.42, fhir;dur=31.07, total;dur=35.80}.
+     */
+    public String toHeaderValue() {
+        StringBuilder header = new StringBuilder(128);
+        for (Phase phase : PHASES) {
+            if (recorded[phase.ordinal()]) {
+                appendMetric(header, phase.metricName(), nanos[phase.ordinal()]);
+            }
+        }
+        appendMetric(header, "total", System.nanoTime() - startNanos);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        long hundredths = nanos / 10_000;
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=").append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            header.append('0');
+        }
+        header.append(fraction);
+    }
+}
@@ -0,0 +1,190 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.IQuery;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory prefix search over one FHIR resource type.
+ * <p>
+ * The index is built from a paged load of every resource and then kept fresh by polling
+ * {@code _lastUpdated} for changes. A periodic full reload drops resources deleted upstream.
+ * Searches run against an immutable snapshot and never call the FHIR server.
+ */
+public abstract class ResourceSearchIndex<R extends Resource, D> {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int EXACT_MATCH_BONUS = 2;
+
+    /**
+     * A normalized search key and how strongly a match on it should rank.
+     */
+    protected record Term(String key, int weight) {}
+
+    protected record Document<D>(String id, D dto, String sortKey, List<Term> terms) {}
+
+    private record Posting<D>(Document<D> document, int weight) {}
+
+    private record Snapshot<D>(Map<String, Document<D>> documents, PrefixIndex<Posting<D>> index) {}
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final HapiClientService hapiClient;
+    private final Class<R> resourceType;
+
+    @Value("${clinical.search-index.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${clinical.search-index.full-reload-ms:21600000}")
+    private long fullReloadMillis = 21_600_000;
+
+    private volatile Snapshot<D> snapshot;
+    private Instant watermark;
+    private long lastFullLoadMillis;
+
+    protected ResourceSearchIndex(HapiClientService hapiClient, Class<R> resourceType) {
+        this.hapiClient = hapiClient;
+        this.resourceType = resourceType;
+    }
+
+    protected abstract Document<D> toDocument(R resource);
+
+    /**
+     * Splits a user query into normalized tokens; every token must match for a document to be returned.
+     */
+    protected List<String> queryTokens(String query) {
+        return PrefixIndex.tokenize(query);
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    public int size() {
+        Snapshot<D> current = snapshot;
+        return current == null ? 0 : current.documents().size();
+    }
+
+    /**
+     * Returns up to {@code limit} documents where every query token is a prefix of one of the
+     * document's terms, best matches first. Exact term matches outrank prefix matches.
+     */
+    public List<D> search(String query, int limit) {
+        Snapshot<D> current = snapshot;
+        List<String> tokens = queryTokens(query);
+        if (current == null || tokens.isEmpty()) return List.of();
+
+        Map<Document<D>, Integer> scores = null;
+        for (String token : tokens) {
+            Map<Document<D>, Integer> tokenScores = new IdentityHashMap<>();
+            current.index().forEachMatch(token, (key, posting) -> {
+                int score = posting.weight() + (key.length() == token.length() ? EXACT_MATCH_BONUS : 0);
+                tokenScores.merge(posting.document(), score, Math::max);
+            });
+
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((document, score) -> score + tokenScores.get(document));
+            }
+            if (scores.isEmpty()) return List.of();
+        }
+
+        Map<Document<D>, Integer> ranked = scores;
+        return ranked.keySet()
+                .stream()
+                .sorted(Comparator.comparing((Document<D> document) -> ranked.get(document)).reversed()
+                        .thenComparing(Document::sortKey))
+                .limit(limit)
+                .map(Document::dto)
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${clinical.search-index.refresh-ms:60000}")
+    public synchronized void refresh() {
+        if (!enabled) return;
+
+        try {
+            long now = System.currentTimeMillis();
+            if (snapshot == null || now - lastFullLoadMillis >= fullReloadMillis) {
+                load(null, new HashMap<>());
+                lastFullLoadMillis = now;
+                logger.info("Loaded {} {} resources into search index", size(), resourceType.getSimpleName());
+            } else {
+                load(watermark, new HashMap<>(snapshot.documents()));
+            }
+        } catch (Exception e) {
+            logger.warn("Could not refresh {} search index: {}", resourceType.getSimpleName(), e.getMessage());
+        }
+    }
+
+    private void load(Instant since, Map<String, Document<D>> documents) {
+        IGenericClient client = hapiClient.getClient();
+
+        IQuery<IBaseBundle> query = client
+                .search()
+                .forResource(resourceType);
+
+        Bundle page = ChangeSet.changedSince(query, since)
+                .count(PAGE_SIZE)
+                .returnBundle(Bundle.class)
+                .execute();
+
+        ChangeSet<R> changes = ChangeSet.collect(client, page, resourceType, since);
+        for (R resource : changes.resources()) {
+            Document<D> document = toDocument(resource);
+            documents.put(document.id(), document);
+        }
+
+        if (snapshot == null || since == null || !changes.resources().isEmpty()) {
+            snapshot = new Snapshot<>(documents, buildIndex(documents));
+        }
+        watermark = changes.watermark();
+    }
+
+    /**
+     * Adds or replaces the given resources in the current snapshot.
+     */
+    synchronized void index(Collection<R> resources) {
+        Map<String, Document<D>> documents = snapshot == null ? new HashMap<>() : new HashMap<>(snapshot.documents());
+        for (R resource : resources) {
+            Document<D> document = toDocument(resource);
+            documents.put(document.id(), document);
+        }
+        snapshot = new Snapshot<>(documents, buildIndex(documents));
+    }
+
+    private PrefixIndex<Posting<D>> buildIndex(Map<String, Document<D>> documents) {
+        PrefixIndex.Builder<Posting<D>> builder = PrefixIndex.builder();
+        for (Document<D> document : documents.values()) {
+            for (Term term : document.terms()) {
+                builder.add(term.key(), new Posting<>(document, term.weight()));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Tokenizes a name part into weighted terms.
+     */
+    protected static void addTerms(List<Term> terms, String text, int weight) {
+        for (String token : PrefixIndex.tokenize(text)) {
+            terms.add(new Term(token, weight));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.client.api.IHttpRequest;
+import ca.uhn.fhir.rest.client.api.IHttpResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Logs FHIR calls made through {@link HapiClientService}'s client (the {@code Hapi*Service} classes
+ * and {@link FhirLookupService}) or by {@link FhirJsonSearchService} that take at least
+ * {@code threshold-ms} to the response headers, to the dedicated {@code clinical.fhir.slow-queries} logger.
+ * <p>
+ * Each entry carries the full query URL, status, duration, response size, bundle entry count and
+ * the endpoint of the request that made the call. At most {@code max-per-minute} entries are
+ * written; calls beyond that are counted and reported as {@code suppressed} on the next entry.
+ * For HAPI calls only logged calls pay for the extra work: their body is buffered so it can be
+ * measured and scanned for entries before HAPI parses it. {@link FhirJsonSearchService} reports its
+ * own sizes with {@link #record} once it has decoded the body. Enabled with {@code clinical.slow-query-log.enabled}.
+ */
+@Component
+@Interceptor
+public class SlowFhirQueryLog {
+
+    private static final Logger logger = LoggerFactory.getLogger("clinical.fhir.slow-queries");
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private final boolean enabled;
+    private final long thresholdMillis;
+    private final int maxPerMinute;
+
+    private long windowStart;
+    private int loggedInWindow;
+    private long suppressed;
+
+    public SlowFhirQueryLog(
+            @Value("${clinical.slow-query-log.enabled:false}") boolean enabled,
+            @Value("${clinical.slow-query-log.threshold-ms:500}") long thresholdMillis,
+            @Value("${clinical.slow-query-log.max-per-minute:60}") int maxPerMinute
+    ) {
+        this.enabled = enabled;
+        this.thresholdMillis = thresholdMillis;
+        this.maxPerMinute = maxPerMinute;
+    }
+
+    @Hook(Pointcut.CLIENT_RESPONSE)
+    public void clientResponse(IHttpRequest request, IHttpResponse response) {
+        if (!enabled) return;
+
+        long millis = response.getRequestStopWatch().getMillis();
+        if (millis < thresholdMillis) return;
+
+        long suppressedBefore = acquire();
+        if (suppressedBefore < 0) return;
+
+        LoggingEventBuilder entry = entry(request.getHttpVerbName(), request.getUri(), response.getStatus(), millis);
+        try {
+            response.bufferEntity();
+            try (InputStream entity = response.readEntity()) {
+                if (entity != null) {
+                    byte[] body = entity.readAllBytes();
+                    entry = entry.addKeyValue("bytes", body.length);
+                    int entries = isJson(response.getMimeType()) ? countEntries(body) : -1;
+                    if (entries >= 0) {
+                        entry = entry.addKeyValue("entries", entries);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Could not buffer slow FHIR response from {}: {}", request.getUri(), e.getMessage());
+        }
+        log(entry, suppressedBefore, request.getHttpVerbName(), request.getUri(), millis);
+    }
+
+    /**
+     * Logs a call made outside the HAPI client when it took at least {@code threshold-ms}.
+     *
+     * @param millis  time to the response headers
+     * @param bytes   response size, or -1 when unknown
+     * @param entries number of Bundle entries, or -1 when unknown
+     */
+    public void record(String method, String url, int status, long millis, long bytes, int entries) {
+        if (!enabled || millis < thresholdMillis) return;
+
+        long suppressedBefore = acquire();
+        if (suppressedBefore < 0) return;
+
+        LoggingEventBuilder entry = entry(method, url, status, millis);
+        if (bytes >= 0) {
+            entry = entry.addKeyValue("bytes", bytes);
+        }
+        if (entries >= 0) {
+            entry = entry.addKeyValue("entries", entries);
+        }
+        log(entry, suppressedBefore, method, url, millis);
+    }
+
+    private static LoggingEventBuilder entry(String method, String url, int status, long millis) {
+        return logger.atInfo()
+                .addKeyValue("url", url)
+                .addKeyValue("method", method)
+                .addKeyValue("status", status)
+                .addKeyValue("durationMs", millis)
+                .addKeyValue("endpoint", callerEndpoint());
+    }
+
+    private static void log(LoggingEventBuilder entry, long suppressedBefore, String method, String url, long millis) {
+        if (suppressedBefore > 0) {
+            entry = entry.addKeyValue("suppressed", suppressedBefore);
+        }
+        entry.log("Slow FHIR {} {} took {} ms", method, url, millis);
+    }
+
+    /**
+     * Takes one of this minute's entries: returns the number of calls suppressed since the last
+     * entry, or -1 when the limit is reached.
+     */
+    private synchronized long acquire() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= WINDOW_MILLIS) {
+            windowStart = now;
+            loggedInWindow = 0;
+        }
+        if (loggedInWindow >= maxPerMinute) {
+            suppressed++;
+            return -1;
+        }
+        loggedInWindow++;
+        long previouslySuppressed = suppressed;
+        suppressed = 0;
+        return previouslySuppressed;
+    }
+
+    private static String callerEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return "-";
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+    private static boolean isJson(String mimeType) {
+        return mimeType != null && mimeType.contains("json");
+    }
+
+    /**
+     * Number of elements in the top-level {@code entry} array of a JSON Bundle, 0 for a Bundle
+     * without entries, or -1 for any other response.
+     */
+    static int countEntries(byte[] json) {
+        try (JsonParser parser = JSON.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return -1;
+
+            boolean bundle = false;
+            int entries = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("resourceType".equals(field)) {
+                    bundle = "Bundle".equals(parser.getText());
+                } else if ("entry".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        parser.skipChildren();
+                        entries++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return bundle ? entries : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
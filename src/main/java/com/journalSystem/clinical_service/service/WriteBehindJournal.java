@@ -0,0 +1,222 @@
+package com.journalSystem.clinical_service.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Append-only, newline-delimited JSON journal of accepted writes.
+ * <p>
+ * Appends from concurrent callers are group-committed: a single writer thread drains every
+ * record queued so far, writes them and fsyncs once, then completes all of their futures.
+ * A record is durable when its future completes. When the file grows past
+ * {@code compactThresholdBytes} it is rewritten with only the still-open entries.
+ */
+class WriteBehindJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindJournal.class);
+
+    private static final int MAX_GROUP_SIZE = 512;
+
+    static final String ACCEPTED = "ACCEPTED";
+    static final String COMPLETED = "COMPLETED";
+    static final String ABANDONED = "ABANDONED";
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record JournalRecord(
+            String op,
+            String id,
+            String type,
+            JsonNode payload,
+            String idempotencyKey,
+            String resourceId,
+            String error
+    ) {
+        static JournalRecord accepted(String id, String type, JsonNode payload, String idempotencyKey) {
+            return new JournalRecord(ACCEPTED, id, type, payload, idempotencyKey, null, null);
+        }
+
+        static JournalRecord completed(String id, String resourceId) {
+            return new JournalRecord(COMPLETED, id, null, null, null, resourceId, null);
+        }
+
+        static JournalRecord abandoned(String id, String error) {
+            return new JournalRecord(ABANDONED, id, null, null, null, null, error);
+        }
+    }
+
+    private record PendingAppend(JournalRecord record, CompletableFuture<Void> durable) {}
+
+    private static final PendingAppend SHUTDOWN = new PendingAppend(null, null);
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final long compactThresholdBytes;
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Map<String, JournalRecord> open = new LinkedHashMap<>();
+    private final Thread writer;
+
+    private FileChannel channel;
+
+    /**
+     * Opens (or creates) the journal and recovers entries that were accepted but never completed.
+     */
+    WriteBehindJournal(Path path, long compactThresholdBytes, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.objectMapper = objectMapper;
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (Files.exists(path)) {
+            recover();
+        }
+        rewrite();
+
+        this.writer = new Thread(this::writeLoop, "write-behind-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Entries accepted but not yet completed or abandoned, oldest first.
+     */
+    synchronized List<JournalRecord> openEntries() {
+        return new ArrayList<>(open.values());
+    }
+
+    CompletableFuture<Void> append(JournalRecord record) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        if (!writer.isAlive()) {
+            durable.completeExceptionally(new IllegalStateException("Write-behind journal is closed"));
+            return durable;
+        }
+        queue.add(new PendingAppend(record, durable));
+        return durable;
+    }
+
+    @Override
+    public void close() {
+        queue.add(SHUTDOWN);
+        try {
+            writer.join(5_000);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Could not close write-behind journal: {}", e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> group = new ArrayList<>(MAX_GROUP_SIZE);
+        boolean running = true;
+        while (running) {
+            try {
+                group.add(queue.take());
+                queue.drainTo(group, MAX_GROUP_SIZE - 1);
+
+                running = !group.remove(SHUTDOWN);
+                if (!group.isEmpty()) {
+                    commit(group);
+                }
+                if (channel.size() > compactThresholdBytes) {
+                    rewrite();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (Exception e) {
+                logger.error("Write-behind journal write failed: {}", e.getMessage());
+                group.forEach(pending -> pending.durable().completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingAppend> group) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (PendingAppend pending : group) {
+            lines.append(objectMapper.writeValueAsString(pending.record())).append('\n');
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+
+        synchronized (this) {
+            group.forEach(pending -> track(pending.record()));
+        }
+        group.forEach(pending -> pending.durable().complete(null));
+    }
+
+    private void recover() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    track(objectMapper.readValue(line, JournalRecord.class));
+                } catch (IOException e) {
+                    // A torn final line from a crash mid-append; it was never acknowledged.
+                    logger.warn("Skipping unreadable write-behind journal line: {}", e.getMessage());
+                }
+            }
+        }
+        logger.info("Recovered {} open write-behind entries from {}", open.size(), path);
+    }
+
+    private void track(JournalRecord record) {
+        if (ACCEPTED.equals(record.op())) {
+            open.put(record.id(), record);
+        } else {
+            open.remove(record.id());
+        }
+    }
+
+    /**
+     * Atomically replaces the journal with only the open entries and reopens it for appending.
+     */
+    private void rewrite() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder lines = new StringBuilder();
+            for (JournalRecord record : openEntries()) {
+                lines.append(objectMapper.writeValueAsString(record)).append('\n');
+            }
+            out.write(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+            out.force(true);
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,214 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional write-behind mode for clinical creates.
+ * <p>
+ * Accepted creates are appended to a local {@link WriteBehindJournal} and acknowledged once the
+ * journal is fsynced, independent of FHIR latency. Background drainers replay each entry through
+ * the regular create path, retrying with exponential backoff, and record the outcome in the
+ * journal. Entries still open at shutdown are replayed after the next start.
+ * <p>
+ * Every replay is an idempotent create keyed by the client's {@code Idempotency-Key}, or by the
+ * tracking id when none was given, so a retry after a lost response cannot create a duplicate.
+ */
+@Service
+@RequiredArgsConstructor
+public class WriteBehindService {
+
+    public static final String TRACKING_ID_HEADER = "X-Tracking-Id";
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindService.class);
+
+    private static final long ACK_TIMEOUT_MS = 10_000;
+    private static final long MAX_BACKOFF_MS = 300_000;
+
+    public enum WriteType { OBSERVATION, CONDITION, ENCOUNTER }
+
+    private final HapiObservationService hapiObservationService;
+    private final HapiConditionService hapiConditionService;
+    private final HapiEncounterService hapiEncounterService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${clinical.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${clinical.write-behind.journal-path:data/write-behind.journal}")
+    private String journalPath = "data/write-behind.journal";
+
+    @Value("${clinical.write-behind.compact-threshold-bytes:16777216}")
+    private long compactThresholdBytes = 16_777_216;
+
+    @Value("${clinical.write-behind.drainers:2}")
+    private int drainers = 2;
+
+    @Value("${clinical.write-behind.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${clinical.write-behind.retry-backoff-ms:1000}")
+    private long retryBackoffMs = 1000;
+
+    private WriteBehindJournal journal;
+    private ScheduledExecutorService drainer;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) return;
+
+        journal = new WriteBehindJournal(Path.of(journalPath), compactThresholdBytes, objectMapper);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(drainers, runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-drainer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Pending backoff retries are dropped on shutdown; their entries are still open and replay on the next start
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        drainer = executor;
+
+        for (WriteBehindJournal.JournalRecord record : journal.openEntries()) {
+            schedule(record, 1, 0);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (!enabled) return;
+
+        drainer.shutdown();
+        drainer.awaitTermination(10, TimeUnit.SECONDS);
+        journal.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Durably records a create for later delivery to FHIR.
+     *
+     * @param payload        one of the service {@code New*} records matching {@code type}
+     * @param idempotencyKey client-supplied key, or null to key replays by the tracking id
+     * @return tracking id of the journal entry
+     */
+    public String accept(WriteType type, Object payload, String idempotencyKey) {
+        String trackingId = UUID.randomUUID().toString();
+        WriteBehindJournal.JournalRecord record = WriteBehindJournal.JournalRecord.accepted(
+                trackingId, type.name(), objectMapper.valueToTree(payload), idempotencyKey);
+
+        try {
+            journal.append(record).get(ACK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while journaling " + type, e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not journal " + type + ": " + e.getMessage(), e);
+        }
+
+        schedule(record, 1, 0);
+        return trackingId;
+    }
+
+    private void schedule(WriteBehindJournal.JournalRecord record, int attempt, long delayMs) {
+        if (drainer.isShutdown()) return;
+
+        drainer.schedule(() -> replay(record, attempt), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    void replay(WriteBehindJournal.JournalRecord record, int attempt) {
+        try {
+            String resourceId = dispatch(record);
+            journal.append(WriteBehindJournal.JournalRecord.completed(record.id(), resourceId));
+            logger.info("Write-behind {} {} delivered as {}", record.type(), record.id(), resourceId);
+        } catch (Exception e) {
+            if (attempt >= maxAttempts || !isRetryable(e)) {
+                logger.error("Abandoning write-behind {} {} after {} attempt(s): {}",
+                        record.type(), record.id(), attempt, e.getMessage());
+                journal.append(WriteBehindJournal.JournalRecord.abandoned(record.id(), e.getMessage()));
+                return;
+            }
+
+            long delayMs = Math.min(retryBackoffMs << Math.min(attempt - 1, 20), MAX_BACKOFF_MS);
+            logger.warn("Write-behind {} {} failed (attempt {}), retrying in {} ms: {}",
+                    record.type(), record.id(), attempt, delayMs, e.getMessage());
+            schedule(record, attempt + 1, delayMs);
+        }
+    }
+
+    private String dispatch(WriteBehindJournal.JournalRecord record) throws JsonProcessingException {
+        String idempotencyKey = record.idempotencyKey() != null ? record.idempotencyKey() : record.id();
+        return switch (WriteType.valueOf(record.type())) {
+            case OBSERVATION -> {
+                HapiObservationService.NewObservation observation =
+                        objectMapper.treeToValue(record.payload(), HapiObservationService.NewObservation.class);
+                yield hapiObservationService.createObservation(
+                        observation.patientPersonnummer(),
+                        observation.performerPersonnummer(),
+                        observation.description(),
+                        observation.value(),
+                        observation.unit(),
+                        observation.effectiveDateTime(),
+                        idempotencyKey
+                ).getIdElement().getIdPart();
+            }
+            case CONDITION -> {
+                HapiConditionService.NewCondition condition =
+                        objectMapper.treeToValue(record.payload(), HapiConditionService.NewCondition.class);
+                yield hapiConditionService.createCondition(
+                        condition.patientPersonnummer(),
+                        condition.practitionerPersonnummer(),
+                        condition.description(),
+                        condition.recordedDate(),
+                        idempotencyKey
+                ).getIdElement().getIdPart();
+            }
+            case ENCOUNTER -> {
+                HapiEncounterService.NewEncounter encounter =
+                        objectMapper.treeToValue(record.payload(), HapiEncounterService.NewEncounter.class);
+                yield hapiEncounterService.createEncounter(
+                        encounter.patientPersonnummer(),
+                        encounter.practitionerPersonnummer(),
+                        encounter.startTime(),
+                        encounter.endTime(),
+                        idempotencyKey
+                ).getIdElement().getIdPart();
+            }
+        };
+    }
+
+    /**
+     * Client errors from FHIR (other than timeouts and throttling) and invalid input will not succeed on retry.
+     * That includes unknown patients and practitioners, which {@link FhirLookupService} reports as
+     * {@code ResourceNotFoundException} (404), and reused idempotency keys (422).
+     */
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof IllegalArgumentException || e instanceof JsonProcessingException) {
+            return false;
+        }
+        if (e instanceof BaseServerResponseException response) {
+            int status = response.getStatusCode();
+            return status >= 500 || status == 408 || status == 429;
+        }
+        return true;
+    }
+}
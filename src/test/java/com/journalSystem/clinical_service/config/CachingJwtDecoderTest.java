@@ -0,0 +1,108 @@
+package com.journalSystem.clinical_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingJwtDecoderTest {
+
+    @Mock
+    private JwtDecoder delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void decode_shouldVerifyOnce_forRepeatedToken() {
+        // Arrange
+        CachingJwtDecoder decoder = decoder(100);
+        Jwt jwt = jwt("token-a", Instant.now().plusSeconds(300));
+        when(delegate.decode("token-a")).thenReturn(jwt);
+
+        // Act
+        Jwt first = decoder.decode("token-a");
+        Jwt second = decoder.decode("token-a");
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        verify(delegate, times(1)).decode("token-a");
+        assertThat(meterRegistry.get("clinical.jwt.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void decode_shouldNotCache_whenTokenExpiresWithinSkew() {
+        // Arrange
+        CachingJwtDecoder decoder = decoder(100);
+        when(delegate.decode("token-a")).thenReturn(jwt("token-a", Instant.now().plusSeconds(10)));
+
+        // Act
+        decoder.decode("token-a");
+        decoder.decode("token-a");
+
+        // Assert
+        verify(delegate, times(2)).decode("token-a");
+        assertThat(decoder.size()).isZero();
+    }
+
+    @Test
+    void decode_shouldNotCacheFailures() {
+        // Arrange
+        CachingJwtDecoder decoder = decoder(100);
+        when(delegate.decode("bad")).thenThrow(new BadJwtException("invalid signature"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> decoder.decode("bad")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("bad")).isInstanceOf(BadJwtException.class);
+        verify(delegate, times(2)).decode("bad");
+    }
+
+    @Test
+    void decode_shouldEvictLeastRecentlyUsed_whenFull() {
+        // Arrange
+        CachingJwtDecoder decoder = decoder(2);
+        Instant expiresAt = Instant.now().plusSeconds(300);
+        for (String token : new String[] {"a", "b", "c"}) {
+            when(delegate.decode(token)).thenReturn(jwt(token, expiresAt));
+        }
+
+        // Act
+        decoder.decode("a");
+        decoder.decode("b");
+        decoder.decode("a");
+        decoder.decode("c");
+        decoder.decode("a");
+        decoder.decode("b");
+
+        // Assert
+        verify(delegate, times(1)).decode("a");
+        verify(delegate, times(2)).decode("b");
+        assertThat(decoder.size()).isEqualTo(2);
+    }
+
+    // HELPER METHODS
+
+    private CachingJwtDecoder decoder(int maxEntries) {
+        return new CachingJwtDecoder(delegate, meterRegistry, maxEntries, Duration.ofSeconds(30));
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("user-1")
+                .issuedAt(expiresAt.minusSeconds(600))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.journalSystem.clinical_service.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeycloakRoleConverterTest {
+
+    private final KeycloakRoleConverter converter = new KeycloakRoleConverter();
+
+    @Test
+    void convert_shouldMapRealmRolesToUppercaseAuthorities() {
+        // Act
+        Collection<GrantedAuthority> authorities = converter.convert(jwt(Map.of("roles", List.of("doctor", "offline_access"))));
+
+        // Assert
+        assertThat(authorities).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_DOCTOR", "ROLE_OFFLINE_ACCESS");
+    }
+
+    @Test
+    void convert_shouldShareImmutableAuthorities_forSameRoleSet() {
+        // Arrange
+        List<String> roles = new ArrayList<>(List.of("staff"));
+
+        // Act
+        Collection<GrantedAuthority> first = converter.convert(jwt(Map.of("roles", roles)));
+        roles.add("doctor");
+        Collection<GrantedAuthority> changed = converter.convert(jwt(Map.of("roles", roles)));
+        Collection<GrantedAuthority> second = converter.convert(jwt(Map.of("roles", List.of("staff"))));
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(changed).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_STAFF", "ROLE_DOCTOR");
+        assertThatThrownBy(() -> first.add(null)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void convert_shouldReturnNoAuthorities_whenRealmRolesMissing() {
+        assertThat(converter.convert(jwt(Map.of()))).isEmpty();
+    }
+
+    // HELPER METHODS
+
+    private static Jwt jwt(Map<String, Object> realmAccess) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user-1")
+                .claim("realm_access", realmAccess)
+                .build();
+    }
+}
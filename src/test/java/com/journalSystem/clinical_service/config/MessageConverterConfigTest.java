@@ -0,0 +1,220 @@
+package com.journalSystem.clinical_service.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.journalSystem.clinical_service.controller.ObservationController;
+import com.journalSystem.clinical_service.dto.ChangesDTO;
+import com.journalSystem.clinical_service.dto.ConditionDTO;
+import com.journalSystem.clinical_service.dto.ObservationDTO;
+import com.journalSystem.clinical_service.service.AsyncCreateService;
+import com.journalSystem.clinical_service.service.ChangeSet;
+import com.journalSystem.clinical_service.service.EncodedResponseCache;
+import com.journalSystem.clinical_service.service.FhirJsonSearchService;
+import com.journalSystem.clinical_service.service.HapiObservationService;
+import com.journalSystem.clinical_service.service.WriteBehindService;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MessageConverterConfigTest {
+
+    private static final Type OBSERVATION_LIST = new ParameterizedTypeReference<List<ObservationDTO>>() {}.getType();
+    private static final Type CONDITION_CHANGES = new ParameterizedTypeReference<ChangesDTO<ConditionDTO>>() {}.getType();
+    private static final Type OBSERVATION_CHANGES = new ParameterizedTypeReference<ChangesDTO<ObservationDTO>>() {}.getType();
+
+    private List<HttpMessageConverter<?>> converters;
+
+    @BeforeEach
+    void setUp() {
+        // Spring Boot's builder disables timestamp dates; mirror that instead of starting a context
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("jacksonObjectMapperBuilder", Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+        converters = new ArrayList<>(List.of(
+                new MappingJackson2HttpMessageConverter(),
+                new MappingJackson2CborHttpMessageConverter()));
+        new MessageConverterConfig(beanFactory.getBeanProvider(Jackson2ObjectMapperBuilder.class))
+                .extendMessageConverters(converters);
+    }
+
+    @Test
+    void extendMessageConverters_shouldKeepJsonFirstAndReplaceDefaultCbor() {
+        assertThat(converters.get(0)).isInstanceOf(MappingJackson2HttpMessageConverter.class);
+        assertThat(converters).hasSize(4);
+        assertThat(converters.stream().filter(c -> c instanceof MappingJackson2CborHttpMessageConverter)).hasSize(1);
+        assertThat(converters.get(converters.size() - 1)).isInstanceOf(ProtobufDtoHttpMessageConverter.class);
+    }
+
+    @Test
+    void cbor_shouldWriteDatesAsIsoStrings_likeJson() throws IOException {
+        // Arrange
+        MappingJackson2CborHttpMessageConverter cbor = converter(MappingJackson2CborHttpMessageConverter.class);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // Act
+        cbor.write(observation(1L), MediaType.parseMediaType("application/cbor"), output);
+
+        // Assert
+        JsonNode decoded = new CBORMapper().readTree(output.getBodyAsBytes());
+        assertThat(decoded.get("effectiveDateTime").asText()).isEqualTo("2024-03-15T10:30:00");
+        assertThat(decoded.get("performerId").isNull()).isTrue();
+    }
+
+    @Test
+    void protobuf_shouldRoundTripDtoLists() throws IOException {
+        // Arrange
+        ProtobufDtoHttpMessageConverter protobuf = converter(ProtobufDtoHttpMessageConverter.class);
+        List<ObservationDTO> observations = List.of(observation(1L), observation(2L));
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // Act
+        protobuf.write(observations, OBSERVATION_LIST, ProtobufDtoHttpMessageConverter.PROTOBUF, output);
+        Object decoded = protobuf.read(OBSERVATION_LIST, null, new MockHttpInputMessage(output.getBodyAsBytes()));
+
+        // Assert
+        assertThat(decoded).isEqualTo(observations);
+        assertThat(output.getHeaders().getFirst(ProtobufDtoHttpMessageConverter.MESSAGE_HEADER)).isEqualTo("Items");
+        assertThat(output.getBodyAsBytes().length).isLessThan(jsonSize(observations));
+    }
+
+    @Test
+    void protobuf_shouldRoundTripGenericDtos() throws IOException {
+        // Arrange
+        ProtobufDtoHttpMessageConverter protobuf = converter(ProtobufDtoHttpMessageConverter.class);
+        ChangesDTO<ConditionDTO> changes = new ChangesDTO<>(
+                List.of(new ConditionDTO(5L, 7L, null, "Asthma", LocalDate.of(2023, 11, 2))),
+                Instant.parse("2024-01-01T00:00:00Z"),
+                true);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // Act
+        protobuf.write(changes, CONDITION_CHANGES, ProtobufDtoHttpMessageConverter.PROTOBUF, output);
+        Object decoded = protobuf.read(CONDITION_CHANGES, null, new MockHttpInputMessage(output.getBodyAsBytes()));
+
+        // Assert
+        assertThat(decoded).isEqualTo(changes);
+    }
+
+    @Test
+    void protobuf_shouldOnlyHandleDtos() {
+        ProtobufDtoHttpMessageConverter protobuf = converter(ProtobufDtoHttpMessageConverter.class);
+        MediaType mediaType = ProtobufDtoHttpMessageConverter.PROTOBUF;
+
+        assertThat(protobuf.canWrite(ObservationDTO.class, ObservationDTO.class, mediaType)).isTrue();
+        assertThat(protobuf.canWrite(OBSERVATION_LIST, List.class, mediaType)).isTrue();
+        assertThat(protobuf.canWrite(String.class, String.class, mediaType)).isFalse();
+        assertThat(protobuf.canWrite(Map.class, Map.class, mediaType)).isFalse();
+        assertThat(protobuf.canWrite(ChangesDTO.class, ChangesDTO.class, mediaType)).isFalse();
+        assertThat(protobuf.canWrite(ObservationDTO.class, ObservationDTO.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    void protobuf_shouldBeNegotiated_forUntypedListResponses() throws Exception {
+        // Arrange
+        HapiObservationService hapiObservationService = mock(HapiObservationService.class);
+        when(hapiObservationService.getObservationsForPatient(eq("19900101-1234"), any(), any(), any(), any()))
+                .thenReturn(List.of(fhirObservation("1"), fhirObservation("2")));
+        MockMvc mockMvc = mockMvc(hapiObservationService);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/v1/clinical/observations/patient/19900101-1234")
+                        .accept(ProtobufDtoHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ProtobufDtoHttpMessageConverter.MESSAGE_HEADER, "Items"))
+                .andReturn();
+
+        // Assert
+        Object decoded = converter(ProtobufDtoHttpMessageConverter.class)
+                .read(OBSERVATION_LIST, null, new MockHttpInputMessage(result.getResponse().getContentAsByteArray()));
+        assertThat(decoded).asList().extracting("id").containsExactly(1L, 2L);
+    }
+
+    @Test
+    void protobuf_shouldBeNegotiated_forChanges() throws Exception {
+        // Arrange
+        HapiObservationService hapiObservationService = mock(HapiObservationService.class);
+        Instant watermark = Instant.parse("2024-01-01T00:00:00Z");
+        when(hapiObservationService.getObservationsChangedSince("19900101-1234", null))
+                .thenReturn(new ChangeSet<>(List.of(fhirObservation("3")), watermark, false));
+        MockMvc mockMvc = mockMvc(hapiObservationService);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/v1/clinical/observations/patient/19900101-1234/changes")
+                        .accept(ProtobufDtoHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        ChangesDTO<?> decoded = (ChangesDTO<?>) converter(ProtobufDtoHttpMessageConverter.class)
+                .read(OBSERVATION_CHANGES, null, new MockHttpInputMessage(result.getResponse().getContentAsByteArray()));
+        assertThat(decoded.watermark()).isEqualTo(watermark);
+        assertThat(decoded.entries()).extracting("id").containsExactly(3L);
+    }
+
+    // HELPER METHODS
+
+    private MockMvc mockMvc(HapiObservationService hapiObservationService) {
+        ObservationController controller = new ObservationController(hapiObservationService,
+                mock(WriteBehindService.class), mock(AsyncCreateService.class),
+                mock(FhirJsonSearchService.class), mock(EncodedResponseCache.class));
+        return MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(converters.toArray(HttpMessageConverter[]::new))
+                .build();
+    }
+
+    private static Observation fhirObservation(String id) {
+        Observation observation = new Observation();
+        observation.setId(id);
+        observation.setSubject(new Reference("Patient/7"));
+        observation.setEffective(new DateTimeType("2024-03-15T10:30:00Z"));
+        return observation;
+    }
+
+    private <C> C converter(Class<C> type) {
+        return converters.stream().filter(type::isInstance).map(type::cast).findFirst().orElseThrow();
+    }
+
+    private int jsonSize(Object value) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter(MappingJackson2HttpMessageConverter.class).write(value, MediaType.APPLICATION_JSON, output);
+        return output.getBodyAsBytes().length;
+    }
+
+    private static ObservationDTO observation(Long id) {
+        return new ObservationDTO(id, 7L, null, 9L, "Heart rate: 72.5 bpm", LocalDateTime.of(2024, 3, 15, 10, 30));
+    }
+}
@@ -0,0 +1,82 @@
+package com.journalSystem.clinical_service.config;
+
+import com.journalSystem.clinical_service.service.RequestTimings;
+import com.journalSystem.clinical_service.service.RequestTimings.Phase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServerTimingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void doFilter_shouldReportRecordedPhases_beforeCommit() throws Exception {
+        // Arrange
+        ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            RequestTimings.recordNanos(Phase.JWT, TimeUnit.MICROSECONDS.toNanos(420));
+            RequestTimings.fhirCall(() -> {
+                RequestTimings.recordNanos(Phase.FHIR, TimeUnit.MILLISECONDS.toNanos(31));
+                return null;
+            });
+            res.getOutputStream().write("[]".getBytes(StandardCharsets.UTF_8));
+            res.flushBuffer();
+        };
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/clinical/conditions/patient/p1"), response, chain);
+
+        // Assert
+        String header = response.getHeader(ServerTimingFilter.HEADER);
+        assertThat(header).startsWith("jwt;dur=0.42, fhir;dur=31.00, parse;dur=").contains(", write;dur=");
+        assertThat(header).containsPattern("total;dur=\\d+\\.\\d\\d$").doesNotContain("lookup", "map");
+        assertThat(phaseCount("fhir")).isEqualTo(1);
+        assertThat(phaseCount("write")).isEqualTo(1);
+        assertThat(phaseCount("lookup")).isZero();
+    }
+
+    @Test
+    void doFilter_shouldAddHeader_whenNothingIsWritten() throws Exception {
+        // Arrange
+        ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/patients/unknown"), response,
+                (req, res) -> RequestTimings.time(Phase.LOOKUP, () -> "p1"));
+
+        // Assert
+        assertThat(response.getHeader(ServerTimingFilter.HEADER)).startsWith("lookup;dur=").contains(", total;dur=");
+        assertThat(phaseCount("lookup")).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_shouldDoNothing_whenDisabled() throws Exception {
+        // Arrange
+        ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/patients"), response,
+                (req, res) -> RequestTimings.recordNanos(Phase.JWT, 1_000));
+
+        // Assert
+        assertThat(response.getHeader(ServerTimingFilter.HEADER)).isNull();
+        assertThat(phaseCount("jwt")).isZero();
+    }
+
+    // HELPER METHODS
+
+    private long phaseCount(String phase) {
+        return meterRegistry.get("clinical.request.phase").tag("phase", phase).timer().count();
+    }
+}
@@ -0,0 +1,205 @@
+package com.journalSystem.clinical_service.config;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotJwkSourceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private HttpServer keycloak;
+    private volatile JWKSet served = new JWKSet();
+    private volatile int status = 200;
+    private SnapshotJwkSource source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        keycloak = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        keycloak.createContext("/certs", exchange -> {
+            fetches.incrementAndGet();
+            byte[] body = served.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        keycloak.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (source != null) {
+            source.stop();
+        }
+        keycloak.stop(0);
+    }
+
+    @Test
+    void decode_shouldUseSnapshotKeys_whenKeycloakIsDown() throws Exception {
+        // Arrange
+        RSAKey key = rsaKey("key-1");
+        writeSnapshot(new JWKSet(key));
+        status = 503;
+        JwtDecoder decoder = decoder();
+
+        // Act
+        awaitFetches(1);
+
+        // Assert
+        assertThat(decoder.decode(token(key)).getSubject()).isEqualTo("user-1");
+        assertThat(Files.readString(tempDir.resolve("jwks.json"))).contains("key-1");
+    }
+
+    @Test
+    void start_shouldRefreshRightAway_whenSnapshotExists() throws Exception {
+        // Arrange: keys rotated while the service was down
+        RSAKey oldKey = rsaKey("key-1");
+        RSAKey rotatedKey = rsaKey("key-2");
+        writeSnapshot(new JWKSet(oldKey));
+        served = new JWKSet(rotatedKey);
+
+        // Act
+        JwtDecoder decoder = decoder();
+        awaitSnapshot("key-2");
+
+        // Assert
+        assertThat(fetches).hasValue(1);
+        assertThat(decoder.decode(token(rotatedKey)).getSubject()).isEqualTo("user-1");
+    }
+
+    @Test
+    void decode_shouldRefreshInBackground_onUnknownKid() throws Exception {
+        // Arrange
+        RSAKey oldKey = rsaKey("key-1");
+        RSAKey rotatedKey = rsaKey("key-2");
+        writeSnapshot(new JWKSet(oldKey));
+        served = new JWKSet(oldKey);
+        JwtDecoder decoder = decoder();
+        awaitFetches(1);
+        served = new JWKSet(rotatedKey);
+
+        // Act
+        assertThatThrownBy(() -> decoder.decode(token(rotatedKey))).isInstanceOf(JwtException.class);
+        awaitSnapshot("key-2");
+
+        // Assert
+        assertThat(fetches).hasValue(2);
+        assertThat(decoder.decode(token(rotatedKey)).getSubject()).isEqualTo("user-1");
+        assertThat(Files.readString(tempDir.resolve("jwks.json"))).doesNotContain("key-1");
+    }
+
+    @Test
+    void decode_shouldRateLimitRefreshes_forRepeatedUnknownKids() throws Exception {
+        // Arrange
+        RSAKey key = rsaKey("key-1");
+        writeSnapshot(new JWKSet(key));
+        served = new JWKSet(key);
+        RSAKey unknownKey = rsaKey("key-9");
+        JwtDecoder decoder = decoder();
+        awaitFetches(1);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> decoder.decode(token(unknownKey))).isInstanceOf(JwtException.class);
+        }
+        awaitFetches(2);
+        Thread.sleep(200);
+
+        // Assert: the startup refresh and one for the unknown kid
+        assertThat(fetches).hasValue(2);
+    }
+
+    @Test
+    void decode_shouldWaitForFirstFetch_withoutSnapshot() throws Exception {
+        // Arrange
+        RSAKey key = rsaKey("key-1");
+        served = new JWKSet(key);
+        JwtDecoder decoder = decoder();
+
+        // Act & Assert
+        assertThat(decoder.decode(token(key)).getSubject()).isEqualTo("user-1");
+        awaitSnapshot("key-1");
+    }
+
+    // HELPER METHODS
+
+    private JwtDecoder decoder() {
+        source = new SnapshotJwkSource(
+                true,
+                "http://127.0.0.1:" + keycloak.getAddress().getPort() + "/certs",
+                tempDir.resolve("jwks.json").toString(),
+                60_000,
+                60_000);
+        source.start();
+        return new SecurityConfig().jwtDecoder(new SimpleMeterRegistry(), source);
+    }
+
+    private void writeSnapshot(JWKSet keys) throws IOException {
+        Files.writeString(tempDir.resolve("jwks.json"), keys.toString());
+    }
+
+    private void awaitFetches(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && fetches.get() < expected; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(fetches.get()).isGreaterThanOrEqualTo(expected);
+        // Let the refresh finish comparing the fetched keys
+        Thread.sleep(100);
+    }
+
+    /**
+     * Waits for the snapshot to contain {@code keyId}; a refresh writes it after applying the keys.
+     */
+    private void awaitSnapshot(String keyId) throws Exception {
+        Path snapshot = tempDir.resolve("jwks.json");
+        for (int i = 0; i < 100 && !(Files.exists(snapshot) && Files.readString(snapshot).contains(keyId)); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(snapshot).exists();
+        assertThat(Files.readString(snapshot)).contains(keyId);
+    }
+
+    private static RSAKey rsaKey(String keyId) throws JOSEException {
+        return new RSAKeyGenerator(2048).keyID(keyId).generate();
+    }
+
+    private static String token(RSAKey key) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("user-1")
+                .issueTime(new Date())
+                .expirationTime(new Date(System.currentTimeMillis() + 300_000))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
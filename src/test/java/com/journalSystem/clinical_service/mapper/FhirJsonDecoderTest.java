@@ -0,0 +1,242 @@
+package com.journalSystem.clinical_service.mapper;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import com.journalSystem.clinical_service.dto.ObservationDTO;
+import org.hl7.fhir.r4.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parity tests: decoding a Bundle with {@link FhirJsonDecoder} must give exactly the DTOs that HAPI
+ * parsing followed by {@link FhirMapper} gives.
+ */
+class FhirJsonDecoderTest {
+
+    private static final FhirContext FHIR = FhirContext.forR4();
+
+    private interface Decoder<D> {
+        List<D> decode(InputStream in) throws IOException;
+    }
+
+    @Test
+    void decodeObservations_shouldMatchHapiMapping() throws IOException {
+        // Arrange
+        Observation full = new Observation();
+        full.setId("101");
+        full.setMeta(new Meta().setVersionId("3"));
+        full.setStatus(Observation.ObservationStatus.FINAL);
+        full.getCode().setText("Heart rate").addCoding().setSystem("http://loinc.org").setCode("8867-4").setDisplay("HR");
+        full.setSubject(new Reference("Patient/7"));
+        full.addPerformer(new Reference("http://hapi.example/fhir/Practitioner/5/_history/2"));
+        full.setEncounter(new Reference("Encounter/9"));
+        full.setValue(new Quantity().setValue(new BigDecimal("72.50")).setUnit("bpm"));
+        full.setEffective(new DateTimeType("2024-03-15T10:30:45.123+01:00"));
+        full.addNote().setText("Taken at rest");
+
+        Observation codingOnly = new Observation();
+        codingOnly.setId("abc");
+        codingOnly.getCode().addCoding().setCode("x");
+        codingOnly.getCode().addCoding().setDisplay("Second display");
+        codingOnly.addPerformer(new Reference("Organization/3"));
+        codingOnly.setValue(new StringType("positive"));
+        codingOnly.setEffective(new DateTimeType("2024-03"));
+
+        Observation displayOnlyReferences = new Observation();
+        displayOnlyReferences.setId("102");
+        displayOnlyReferences.setSubject(new Reference().setDisplay("Anna Andersson"));
+        displayOnlyReferences.setEncounter(new Reference("#contained"));
+        displayOnlyReferences.addPerformer(new Reference("Practitioner/abc"));
+        displayOnlyReferences.setValue(new Quantity().setValue(new BigDecimal("1E+2")));
+        displayOnlyReferences.setEffective(new Period().setStart(new DateTimeType("2024-01-01").getValue()));
+
+        Observation weight = new Observation();
+        weight.setId("103");
+        weight.getCode().setText("Weight");
+        weight.setEffective(new DateTimeType("2024-06-30T23:59:59Z"));
+        weight.setValue(new Quantity().setValue(new BigDecimal("0.0000001")).setUnit("g"));
+
+        // Act & Assert
+        assertParity(List.of(full, codingOnly, displayOnlyReferences, weight),
+                FhirJsonDecoder::decodeObservations, r -> FhirMapper.observationToDTO((Observation) r));
+    }
+
+    @Test
+    void decodeConditions_shouldMatchHapiMapping() throws IOException {
+        // Arrange
+        Condition asserted = new Condition();
+        asserted.setId("201");
+        asserted.getCode().setText("Type 2 diabetes");
+        asserted.setSubject(new Reference("Patient/7"));
+        asserted.setAsserter(new Reference("Practitioner/5"));
+        asserted.setRecorder(new Reference("Practitioner/6"));
+        asserted.setRecordedDateElement(new DateTimeType("2023-11-02T00:30:00+02:00"));
+
+        Condition recorded = new Condition();
+        recorded.setId("202");
+        recorded.getCode().addCoding().setDisplay("Hypertension");
+        recorded.setRecorder(new Reference("Practitioner/6"));
+        recorded.setRecordedDateElement(new DateTimeType("2023"));
+
+        Condition bare = new Condition();
+        bare.setId("203");
+        bare.setSubject(new Reference("Patient/7"));
+        bare.setAsserter(new Reference().setDisplay("Dr. Unknown"));
+
+        // Act & Assert
+        assertParity(List.of(asserted, recorded, bare),
+                FhirJsonDecoder::decodeConditions, r -> FhirMapper.conditionToDTO((Condition) r));
+    }
+
+    @Test
+    void decodeEncounters_shouldMatchHapiMapping() throws IOException {
+        // Arrange
+        Encounter visit = new Encounter();
+        visit.setId("301");
+        visit.setStatus(Encounter.EncounterStatus.FINISHED);
+        visit.setClass_(new Coding().setCode("AMB"));
+        visit.setSubject(new Reference("Patient/7"));
+        visit.addParticipant().setIndividual(new Reference("5"));
+        visit.addParticipant().setIndividual(new Reference().setDisplay("Nurse"));
+        visit.addParticipant().setIndividual(new Reference("PractitionerRole/4"));
+        visit.addParticipant().setIndividual(new Reference("Practitioner/5"));
+        visit.setServiceProvider(new Reference("Organization/11"));
+        visit.setPeriod(new Period()
+                .setStartElement(new DateTimeType("2024-03-31T01:30:00+01:00"))
+                .setEndElement(new DateTimeType("2024-03-31T03:30:00+02:00")));
+
+        Encounter openEnded = new Encounter();
+        openEnded.setId("302");
+        openEnded.setPeriod(new Period().setStartElement(new DateTimeType("2024-05-01")));
+
+        Encounter noParticipants = new Encounter();
+        noParticipants.setId("303");
+        noParticipants.setSubject(new Reference("Patient/8"));
+
+        // Act & Assert
+        assertParity(List.of(visit, openEnded, noParticipants),
+                FhirJsonDecoder::decodeEncounters, r -> FhirMapper.encounterToDTO((Encounter) r));
+    }
+
+    @Test
+    void decodePatients_shouldMatchHapiMapping() throws IOException {
+        // Arrange
+        Patient patient = new Patient();
+        patient.setId("401");
+        patient.addIdentifier().setSystem("urn:oid:1.2.752.129.2.1.3.1");
+        patient.addIdentifier().setSystem("http://electronichealth.se/identifier/personnummer").setValue("199001011234");
+        patient.addName().setFamily("Andersson").addGiven("Anna").addGiven("Maria");
+        patient.addName().setFamily("Svensson");
+        patient.setBirthDateElement(new DateType("1990-01-01"));
+        patient.addAddress().setCity("Stockholm");
+
+        Patient nameless = new Patient();
+        nameless.setId("402");
+        nameless.addName().setText("Unnamed");
+
+        Patient minimal = new Patient();
+        minimal.setId("403");
+
+        // Act & Assert
+        assertParity(List.of(patient, nameless, minimal),
+                FhirJsonDecoder::decodePatients, r -> FhirMapper.patientToDTO((Patient) r));
+    }
+
+    @Test
+    void decodePractitioners_shouldMatchHapiMapping() throws IOException {
+        // Arrange
+        Practitioner doctor = new Practitioner();
+        doctor.setId("501");
+        doctor.addIdentifier().setValue("197005051234");
+        doctor.addName().setFamily("Berg").addGiven("Erik");
+        doctor.setBirthDateElement(new DateType("1970-05"));
+        doctor.addQualification().setCode(new CodeableConcept().setText("Cardiologist"));
+        doctor.addQualification().setCode(new CodeableConcept().setText("Internist"));
+
+        Practitioner codedOnly = new Practitioner();
+        codedOnly.setId("502");
+        codedOnly.addName().addGiven("Lisa");
+        codedOnly.addQualification().setCode(new CodeableConcept().addCoding(new Coding().setCode("MD")));
+
+        // Act & Assert
+        assertParity(List.of(doctor, codedOnly),
+                FhirJsonDecoder::decodePractitioners, r -> FhirMapper.practitionerToDTO((Practitioner) r));
+    }
+
+    @Test
+    void decodeObservations_shouldSkipEntriesOfOtherTypes() throws IOException {
+        // Arrange
+        Observation observation = new Observation();
+        observation.setId("101");
+        observation.getCode().setText("Heart rate");
+
+        Bundle bundle = searchBundle(List.of(observation));
+        OperationOutcome outcome = new OperationOutcome();
+        outcome.addIssue().setSeverity(OperationOutcome.IssueSeverity.WARNING).setDiagnostics("Unknown search parameter");
+        bundle.addEntry().setResource(outcome).getSearch().setMode(Bundle.SearchEntryMode.OUTCOME);
+
+        // Act
+        List<ObservationDTO> result = FhirJsonDecoder.decodeObservations(toStream(FHIR.newJsonParser().encodeResourceToString(bundle)));
+
+        // Assert
+        assertThat(result).containsExactly(FhirMapper.observationToDTO(observation));
+    }
+
+    @Test
+    void decodeObservations_shouldReturnEmptyList_whenBundleHasNoEntries() throws IOException {
+        // Arrange
+        String json = "{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"total\":0,"
+                + "\"link\":[{\"relation\":\"self\",\"url\":\"http://hapi.example/fhir/Observation\"}]}";
+
+        // Act & Assert
+        assertThat(FhirJsonDecoder.decodeObservations(toStream(json))).isEmpty();
+    }
+
+    // HELPER METHODS
+
+    private static <D> void assertParity(List<? extends Resource> resources, Decoder<D> decoder,
+                                         Function<Resource, D> mapper) throws IOException {
+        for (IParser parser : List.of(FHIR.newJsonParser(), FHIR.newJsonParser().setPrettyPrint(true))) {
+            String json = parser.encodeResourceToString(searchBundle(resources));
+
+            Bundle parsed = FHIR.newJsonParser().parseResource(Bundle.class, json);
+            List<D> expected = new ArrayList<>();
+            for (Bundle.BundleEntryComponent entry : parsed.getEntry()) {
+                expected.add(mapper.apply(entry.getResource()));
+            }
+
+            List<D> actual = decoder.decode(toStream(json));
+
+            assertThat(actual).hasSize(resources.size());
+            assertThat(actual).isEqualTo(expected);
+        }
+    }
+
+    private static Bundle searchBundle(List<? extends Resource> resources) {
+        Bundle bundle = new Bundle();
+        bundle.setType(Bundle.BundleType.SEARCHSET);
+        bundle.setTotal(resources.size());
+        bundle.addLink().setRelation("self").setUrl("http://hapi.example/fhir/search");
+        for (Resource resource : resources) {
+            bundle.addEntry()
+                    .setFullUrl("http://hapi.example/fhir/" + resource.fhirType() + "/" + resource.getIdElement().getIdPart())
+                    .setResource(resource)
+                    .getSearch().setMode(Bundle.SearchEntryMode.MATCH);
+        }
+        return bundle;
+    }
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
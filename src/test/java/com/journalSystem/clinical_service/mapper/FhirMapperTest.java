@@ -0,0 +1,132 @@
+package com.journalSystem.clinical_service.mapper;
+
+import com.journalSystem.clinical_service.dto.EncounterDTO;
+import com.journalSystem.clinical_service.dto.ObservationDTO;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FhirMapperTest {
+
+    @Test
+    void extractNumericId_shouldParseLastSegmentAndIgnoreHistory() {
+        assertThat(FhirMapper.extractNumericId("123")).isEqualTo(123L);
+        assertThat(FhirMapper.extractNumericId("Patient/123")).isEqualTo(123L);
+        assertThat(FhirMapper.extractNumericId("http://hapi.example/fhir/Patient/123/_history/4")).isEqualTo(123L);
+    }
+
+    @Test
+    void extractNumericId_shouldReturnZero_whenIdIsNotNumeric() {
+        assertThat(FhirMapper.extractNumericId(null)).isZero();
+        assertThat(FhirMapper.extractNumericId("")).isZero();
+        assertThat(FhirMapper.extractNumericId("Patient/abc-123")).isZero();
+        assertThat(FhirMapper.extractNumericId("99999999999999999999")).isZero();
+    }
+
+    @Test
+    void isReferenceTo_shouldMatchTypeSegmentOnly() {
+        assertThat(FhirMapper.isReferenceTo("Practitioner/5", "Practitioner")).isTrue();
+        assertThat(FhirMapper.isReferenceTo("http://hapi.example/fhir/Practitioner/5/_history/1", "Practitioner")).isTrue();
+        assertThat(FhirMapper.isReferenceTo("PractitionerRole/5", "Practitioner")).isFalse();
+        assertThat(FhirMapper.isReferenceTo("5", "Practitioner")).isFalse();
+        assertThat(FhirMapper.isReferenceTo((String) null, "Practitioner")).isFalse();
+    }
+
+    @Test
+    void toLocalDateTime_shouldMatchZonedConversion() {
+        Date date = new Date(1_700_000_123_456L);
+
+        assertThat(FhirMapper.toLocalDateTime(date))
+                .isEqualTo(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime());
+        assertThat(FhirMapper.toLocalDate(date))
+                .isEqualTo(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+        assertThat(FhirMapper.toLocalDate(new Date(-1L)))
+                .isEqualTo(new Date(-1L).toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+    }
+
+    @Test
+    void observationToDTO_shouldMapReferencesValueAndDate() {
+        // Arrange
+        Date effective = new Date(1_700_000_000_000L);
+        Observation observation = new Observation();
+        observation.setId("Observation/42/_history/1");
+        observation.setSubject(new Reference("Patient/7"));
+        observation.addPerformer(new Reference("Practitioner/9"));
+        observation.getCode().setText("Pulse");
+        observation.setValue(new Quantity().setValue(72).setUnit("bpm"));
+        observation.setEffective(new DateTimeType(effective));
+
+        // Act
+        ObservationDTO dto = FhirMapper.observationToDTO(observation);
+
+        // Assert
+        assertThat(dto.id()).isEqualTo(42L);
+        assertThat(dto.patientId()).isEqualTo(7L);
+        assertThat(dto.performerId()).isEqualTo(9L);
+        assertThat(dto.description()).isEqualTo("Pulse: 72 bpm");
+        assertThat(dto.effectiveDateTime()).isEqualTo(LocalDateTime.ofInstant(effective.toInstant(), ZoneId.systemDefault()));
+    }
+
+    @Test
+    void encounterToDTO_shouldSkipParticipantsWithoutResourceType() {
+        // Arrange
+        Encounter encounter = new Encounter();
+        encounter.setId("3");
+        encounter.addParticipant().setIndividual(new Reference("#contained"));
+        encounter.addParticipant().setIndividual(new Reference("Practitioner/11"));
+        encounter.setPeriod(new Period().setStart(new Date(0L)));
+
+        // Act
+        EncounterDTO dto = FhirMapper.encounterToDTO(encounter);
+
+        // Assert
+        assertThat(dto.practitionerId()).isEqualTo(11L);
+        assertThat(dto.startTime().toLocalDate())
+                .isEqualTo(LocalDate.ofInstant(new Date(0L).toInstant(), ZoneId.systemDefault()));
+        assertThat(dto.endTime()).isNull();
+    }
+
+    @Test
+    void toDTOs_shouldEmitOneFlightRecorderEventPerBatch(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Encounter first = new Encounter();
+        first.setId("1");
+        Encounter second = new Encounter();
+        second.setId("2");
+        Path dump = tempDir.resolve("mapping.jfr");
+
+        // Act
+        List<EncounterDTO> dtos;
+        try (Recording recording = new Recording()) {
+            recording.enable("clinical.FhirMapping");
+            recording.start();
+            dtos = FhirMapper.toDTOs(List.of(first, second), FhirMapper::encounterToDTO);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        // Assert
+        assertThat(dtos).extracting(EncounterDTO::id).containsExactly(1L, 2L);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getString("resourceType")).isEqualTo("Encounter");
+        assertThat(events.get(0).getInt("entries")).isEqualTo(2);
+    }
+}
@@ -0,0 +1,106 @@
+package com.journalSystem.clinical_service.service;
+
+import com.journalSystem.clinical_service.dto.OperationStatusDTO;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncCreateServiceTest {
+
+    private AsyncCreateService asyncCreateService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        asyncCreateService.stop();
+    }
+
+    @Test
+    void submit_shouldCompleteOperationWithCreatedId() throws InterruptedException {
+        // Arrange
+        asyncCreateService = new AsyncCreateService(1, 10, 60_000);
+        Observation created = new Observation();
+        created.setId("obs-123");
+
+        // Act
+        String operationId = asyncCreateService.submit("Observation", () -> created);
+
+        // Assert
+        OperationStatusDTO status = awaitFinished(operationId);
+        assertThat(status.status()).isEqualTo(AsyncCreateService.COMPLETED);
+        assertThat(status.resourceType()).isEqualTo("Observation");
+        assertThat(status.resourceId()).isEqualTo("obs-123");
+        assertThat(status.completedAt()).isNotNull();
+    }
+
+    @Test
+    void submit_shouldRecordError_whenCreateFails() throws InterruptedException {
+        // Arrange
+        asyncCreateService = new AsyncCreateService(1, 10, 60_000);
+
+        // Act
+        String operationId = asyncCreateService.submit("Observation", () -> {
+            throw new RuntimeException("Patient not found with identifier or ID: 197001011234");
+        });
+
+        // Assert
+        OperationStatusDTO status = awaitFinished(operationId);
+        assertThat(status.status()).isEqualTo(AsyncCreateService.FAILED);
+        assertThat(status.resourceId()).isNull();
+        assertThat(status.error()).contains("Patient not found");
+    }
+
+    @Test
+    void submit_shouldReject_whenQueueIsFull() throws InterruptedException {
+        // Arrange
+        asyncCreateService = new AsyncCreateService(1, 1, 60_000);
+        CountDownLatch release = new CountDownLatch(1);
+        asyncCreateService.submit("Observation", () -> {
+            awaitQuietly(release);
+            return new Observation();
+        });
+        asyncCreateService.submit("Observation", Observation::new);
+
+        // Act & Assert
+        assertThatThrownBy(() -> asyncCreateService.submit("Observation", Observation::new))
+                .isInstanceOf(RejectedExecutionException.class);
+        release.countDown();
+    }
+
+    @Test
+    void getOperation_shouldReturnEmpty_whenUnknownId() {
+        // Arrange
+        asyncCreateService = new AsyncCreateService(1, 10, 60_000);
+
+        // Act & Assert
+        assertThat(asyncCreateService.getOperation("unknown")).isEmpty();
+    }
+
+    // HELPER METHODS
+
+    private OperationStatusDTO awaitFinished(String operationId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            OperationStatusDTO status = asyncCreateService.getOperation(operationId).orElseThrow();
+            if (status.completedAt() != null) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Operation " + operationId + " did not finish");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeSetTest {
+
+    @Test
+    void fromBundle_shouldAdvanceWatermarkToNewestLastUpdated() {
+        // Arrange
+        Instant since = Instant.parse("2024-01-01T00:00:00Z");
+        Bundle bundle = new Bundle();
+        bundle.addEntry().setResource(observation("1", "2024-01-02T10:00:00Z"));
+        bundle.addEntry().setResource(observation("2", "2024-01-03T10:00:00Z"));
+        bundle.addEntry().setResource(new OperationOutcome());
+
+        // Act
+        ChangeSet<Observation> result = ChangeSet.fromBundle(bundle, Observation.class, since);
+
+        // Assert
+        assertThat(result.resources()).hasSize(2);
+        assertThat(result.watermark()).isEqualTo(Instant.parse("2024-01-03T10:00:00Z"));
+        assertThat(result.hasMore()).isFalse();
+    }
+
+    @Test
+    void fromBundle_shouldKeepWatermark_whenNothingChanged() {
+        // Arrange
+        Instant since = Instant.parse("2024-01-01T00:00:00Z");
+
+        // Act
+        ChangeSet<Observation> result = ChangeSet.fromBundle(new Bundle(), Observation.class, since);
+
+        // Assert
+        assertThat(result.resources()).isEmpty();
+        assertThat(result.watermark()).isEqualTo(since);
+    }
+
+    @Test
+    void fromBundle_shouldReportMore_whenBundleHasNextLink() {
+        // Arrange
+        Bundle bundle = new Bundle();
+        bundle.addEntry().setResource(observation("1", "2024-01-02T10:00:00Z"));
+        bundle.addLink().setRelation(Bundle.LINK_NEXT).setUrl("http://fhir/next");
+
+        // Act
+        ChangeSet<Observation> result = ChangeSet.fromBundle(bundle, Observation.class, null);
+
+        // Assert
+        assertThat(result.hasMore()).isTrue();
+        assertThat(result.watermark()).isEqualTo(Instant.parse("2024-01-02T10:00:00Z"));
+    }
+
+    @Test
+    void collect_shouldReadEveryPage_whenPagesShareOneLastUpdated() throws IOException {
+        // Arrange: one transaction's resources, split over two pages
+        HttpServer fhir = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        String baseUrl = "http://127.0.0.1:" + fhir.getAddress().getPort() + "/fhir";
+        fhir.createContext("/fhir", exchange -> {
+            String body = """
+                    {"resourceType":"Bundle","type":"searchset","entry":[
+                      {"resource":{"resourceType":"Observation","id":"3","meta":{"lastUpdated":"2024-01-03T10:00:00Z"}}}]}""";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        fhir.start();
+        Bundle firstPage = new Bundle();
+        firstPage.addEntry().setResource(observation("1", "2024-01-02T10:00:00Z"));
+        firstPage.addEntry().setResource(observation("2", "2024-01-03T10:00:00Z"));
+        firstPage.addLink().setRelation(Bundle.LINK_NEXT).setUrl(baseUrl + "?_getpages=abc&_getpagesoffset=2");
+
+        try {
+            HapiClientService hapiClient = new HapiClientService(baseUrl, new IdempotencyCache(10, 60_000),
+                    new FhirClientMetrics(new SimpleMeterRegistry(), baseUrl), new SlowFhirQueryLog(false, 0, 0));
+            hapiClient.getContext().getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+
+            RequestTimings timings = RequestTimings.begin();
+
+            // Act
+            ChangeSet<Observation> result = ChangeSet.collect(hapiClient.getClient(), firstPage, Observation.class,
+                    Instant.parse("2024-01-01T00:00:00Z"));
+
+            // Assert
+            assertThat(result.resources()).extracting(Resource::getIdPart).containsExactly("1", "2", "3");
+            assertThat(result.watermark()).isEqualTo(Instant.parse("2024-01-03T10:00:00Z"));
+            assertThat(result.hasMore()).isFalse();
+            assertThat(timings.isRecorded(RequestTimings.Phase.FHIR)).isTrue();
+            assertThat(timings.isRecorded(RequestTimings.Phase.PARSE)).isTrue();
+        } finally {
+            RequestTimings.end();
+            fhir.stop(0);
+        }
+    }
+
+    private Observation observation(String id, String lastUpdated) {
+        Observation observation = new Observation();
+        observation.setId(id);
+        observation.getMeta().setLastUpdated(Date.from(Instant.parse(lastUpdated)));
+        return observation;
+    }
+}
@@ -0,0 +1,195 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.client.exceptions.FhirClientConnectionException;
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CreateBatcherTest {
+
+    @Mock
+    private HapiClientService hapiClientService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(3);
+    private CreateBatcher createBatcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        callers.shutdownNow();
+        if (createBatcher != null) {
+            createBatcher.stop();
+        }
+    }
+
+    @Test
+    void create_shouldDelegateDirectly_whenBatchingDisabled() {
+        // Arrange
+        createBatcher = new CreateBatcher(hapiClientService, meterRegistry, false, 10, 50, 5_000);
+        createBatcher.start();
+        Observation observation = new Observation();
+        when(hapiClientService.create(observation, "key-1")).thenReturn(withId(new Observation(), "obs-1"));
+
+        // Act
+        Observation result = createBatcher.create(observation, "key-1");
+
+        // Assert
+        assertThat(result.getIdElement().getIdPart()).isEqualTo("obs-1");
+        verify(hapiClientService, never()).createInTransaction(anyList(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void create_shouldSubmitConcurrentCreatesAsOneTransaction() throws Exception {
+        // Arrange
+        createBatcher = new CreateBatcher(hapiClientService, meterRegistry, true, 60_000, 3, 5_000);
+        createBatcher.start();
+        when(hapiClientService.createInTransaction(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Resource> resources = invocation.getArgument(0);
+            List<Resource> created = new ArrayList<>();
+            for (Resource resource : resources) {
+                created.add(withId(resource.copy(), "id-" + ((Observation) resource).getCode().getText()));
+            }
+            return created;
+        });
+
+        // Act
+        List<CompletableFuture<Observation>> results = new ArrayList<>();
+        for (String name : List.of("a", "b", "c")) {
+            results.add(CompletableFuture.supplyAsync(() -> createBatcher.create(observation(name), null), callers));
+        }
+
+        // Assert
+        for (int i = 0; i < results.size(); i++) {
+            Observation created = results.get(i).get(5, TimeUnit.SECONDS);
+            assertThat(created.getIdElement().getIdPart()).isEqualTo("id-" + List.of("a", "b", "c").get(i));
+        }
+        verify(hapiClientService, times(1)).createInTransaction(
+                argThat((List<Resource> resources) -> resources.size() == 3), anyList());
+        verify(hapiClientService, never()).create(any(Observation.class), any());
+
+        DistributionSummary batchSizes = meterRegistry.get("clinical.create.batch.size").summary();
+        assertThat(batchSizes.count()).isEqualTo(1);
+        assertThat(batchSizes.totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void create_shouldFlushPartialBatch_whenWindowElapses() {
+        // Arrange
+        createBatcher = new CreateBatcher(hapiClientService, meterRegistry, true, 20, 50, 5_000);
+        createBatcher.start();
+        Observation observation = observation("a");
+        when(hapiClientService.create(observation, null)).thenReturn(withId(new Observation(), "obs-1"));
+
+        // Act
+        Observation result = createBatcher.create(observation, null);
+
+        // Assert
+        assertThat(result.getIdElement().getIdPart()).isEqualTo("obs-1");
+        assertThat(meterRegistry.get("clinical.create.batch.size").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void create_shouldRetryIndividually_whenTransactionFails() throws Exception {
+        // Arrange
+        createBatcher = new CreateBatcher(hapiClientService, meterRegistry, true, 60_000, 2, 5_000);
+        createBatcher.start();
+        Observation good = observation("good");
+        Observation bad = observation("bad");
+        when(hapiClientService.createInTransaction(anyList(), anyList()))
+                .thenThrow(new UnprocessableEntityException("Transaction rejected"));
+        when(hapiClientService.create(good, null)).thenReturn(withId(new Observation(), "obs-good"));
+        when(hapiClientService.create(bad, null)).thenThrow(new IllegalArgumentException("Invalid observation"));
+
+        // Act
+        CompletableFuture<Observation> goodResult =
+                CompletableFuture.supplyAsync(() -> createBatcher.create(good, null), callers);
+        CompletableFuture<Observation> badResult =
+                CompletableFuture.supplyAsync(() -> createBatcher.create(bad, null), callers);
+
+        // Assert
+        assertThat(goodResult.get(5, TimeUnit.SECONDS).getIdElement().getIdPart()).isEqualTo("obs-good");
+        assertThatThrownBy(() -> badResult.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(meterRegistry.get("clinical.create.batch.fallbacks").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void create_shouldFailAllCallers_whenTransactionOutcomeIsUnknown() {
+        // Arrange
+        createBatcher = new CreateBatcher(hapiClientService, meterRegistry, true, 60_000, 2, 5_000);
+        createBatcher.start();
+        when(hapiClientService.createInTransaction(anyList(), anyList()))
+                .thenThrow(new FhirClientConnectionException(new SocketTimeoutException("Read timed out")));
+
+        // Act
+        CompletableFuture<Observation> first =
+                CompletableFuture.supplyAsync(() -> createBatcher.create(observation("a"), null), callers);
+        CompletableFuture<Observation> second =
+                CompletableFuture.supplyAsync(() -> createBatcher.create(observation("b"), null), callers);
+
+        // Assert
+        for (CompletableFuture<Observation> result : List.of(first, second)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(FhirClientConnectionException.class);
+        }
+        verify(hapiClientService, never()).create(any(Observation.class), any());
+        assertThat(meterRegistry.get("clinical.create.batch.fallbacks").counter().count()).isZero();
+    }
+
+    @Test
+    void create_shouldTimeOut_whenTransactionHangs() {
+        // Arrange
+        createBatcher = new CreateBatcher(hapiClientService, meterRegistry, true, 10, 50, 100);
+        createBatcher.start();
+        Observation observation = observation("a");
+        when(hapiClientService.create(observation, null)).thenAnswer(invocation -> {
+            Thread.sleep(2_000);
+            return observation;
+        });
+
+        // Act & Assert
+        assertThatThrownBy(() -> createBatcher.create(observation, null))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Timed out")
+                .hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    // HELPER METHODS
+
+    private Observation observation(String text) {
+        Observation observation = new Observation();
+        observation.getCode().setText(text);
+        return observation;
+    }
+
+    private static <T extends Resource> T withId(T resource, String id) {
+        resource.setId(id);
+        return resource;
+    }
+}
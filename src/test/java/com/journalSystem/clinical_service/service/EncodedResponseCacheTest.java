@@ -0,0 +1,265 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EncodedResponseCacheTest {
+
+    @Mock
+    private HapiClientService hapiClientService;
+
+    @Mock
+    private FhirLookupService fhirLookupService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void getResource_shouldServeCachedBytes_whenVersionIsUnchanged() {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", null)).thenReturn(practitioner("prac-1", "3"));
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", "3")).thenReturn(null);
+        AtomicInteger mapped = new AtomicInteger();
+
+        // Act
+        Optional<EncodedResponseCache.Encoded> first = cache.getResource(Practitioner.class, "prac-1", p -> name(p, mapped), false);
+        Optional<EncodedResponseCache.Encoded> second = cache.getResource(Practitioner.class, "prac-1", p -> name(p, mapped), false);
+
+        // Assert
+        assertThat(mapped).hasValue(1);
+        assertThat(second).isPresent();
+        assertThat(second.get().body()).isSameAs(first.orElseThrow().body());
+        assertThat(text(second.get().body())).isEqualTo("\"prac-1\"");
+        assertThat(meterRegistry.get("clinical.response.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void getResource_shouldReencode_whenVersionChanged() {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", null)).thenReturn(practitioner("prac-1", "3"));
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", "3")).thenReturn(practitioner("prac-1", "4"));
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", "4")).thenReturn(null);
+        AtomicInteger mapped = new AtomicInteger();
+
+        // Act
+        cache.getResource(Practitioner.class, "prac-1", p -> name(p, mapped), false);
+        cache.getResource(Practitioner.class, "prac-1", p -> name(p, mapped), false);
+        cache.getResource(Practitioner.class, "prac-1", p -> name(p, mapped), false);
+
+        // Assert
+        assertThat(mapped).hasValue(2);
+    }
+
+    @Test
+    void getResource_shouldReturnEmptyAndDropEntry_whenResourceIsGone() {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", null))
+                .thenReturn(practitioner("prac-1", "3"))
+                .thenReturn(practitioner("prac-1", "5"));
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", "3"))
+                .thenThrow(new ResourceNotFoundException("gone"));
+        cache.getResource(Practitioner.class, "prac-1", Practitioner::getId, false);
+
+        // Act
+        Optional<EncodedResponseCache.Encoded> result = cache.getResource(Practitioner.class, "prac-1", Practitioner::getId, false);
+        Optional<EncodedResponseCache.Encoded> recreated = cache.getResource(Practitioner.class, "prac-1", Practitioner::getId, false);
+
+        // Assert
+        assertThat(result).isEmpty();
+        assertThat(recreated).isPresent();
+        assertThat(cache.sizeInBytes()).isEqualTo(recreated.get().body().length);
+    }
+
+    @Test
+    void getResource_shouldServeGzipVariant() throws IOException {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", null)).thenReturn(practitioner("prac-1", "3"));
+        when(hapiClientService.readIfModified(Practitioner.class, "prac-1", "3")).thenReturn(null);
+        cache.getResource(Practitioner.class, "prac-1", p -> "x".repeat(500), false);
+
+        // Act
+        EncodedResponseCache.Encoded first = cache.getResource(Practitioner.class, "prac-1", p -> "unused", true).orElseThrow();
+        EncodedResponseCache.Encoded second = cache.getResource(Practitioner.class, "prac-1", p -> "unused", true).orElseThrow();
+
+        // Assert
+        assertThat(first.gzipped()).isTrue();
+        assertThat(second.body()).isSameAs(first.body());
+        assertThat(first.body().length).isLessThan(502);
+        assertThat(gunzip(first.body())).isEqualTo("\"" + "x".repeat(500) + "\"");
+    }
+
+    @Test
+    void getPatientList_shouldSkipFetch_whenWatermarkIsUnchanged() {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(fhirLookupService.findPatientIdByPersonnummer("19900101-1234")).thenReturn("pat-1");
+        when(hapiClientService.patientWatermark(Observation.class, "pat-1"))
+                .thenReturn("2:obs-2/1@100")
+                .thenReturn("2:obs-2/1@100")
+                .thenReturn("3:obs-3/1@200");
+        AtomicInteger fetched = new AtomicInteger();
+
+        // Act
+        cache.getPatientList(Observation.class, "19900101-1234", "", false, () -> List.of(fetched.incrementAndGet()));
+        EncodedResponseCache.Encoded hit = cache.getPatientList(Observation.class, "19900101-1234", "", false,
+                () -> List.of(fetched.incrementAndGet()));
+        EncodedResponseCache.Encoded changed = cache.getPatientList(Observation.class, "19900101-1234", "", false,
+                () -> List.of(fetched.incrementAndGet()));
+
+        // Assert
+        assertThat(fetched).hasValue(2);
+        assertThat(text(hit.body())).isEqualTo("[1]");
+        assertThat(text(changed.body())).isEqualTo("[2]");
+    }
+
+    @Test
+    void getPatientList_shouldKeepVariantsApart() {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(fhirLookupService.findPatientIdByPersonnummer("19900101-1234")).thenReturn("pat-1");
+        when(hapiClientService.patientWatermark(Observation.class, "pat-1")).thenReturn("2:obs-2/1@100");
+
+        // Act
+        cache.getPatientList(Observation.class, "19900101-1234", "limit=1", false, () -> List.of("a"));
+        EncodedResponseCache.Encoded other = cache.getPatientList(Observation.class, "19900101-1234", "limit=2", false,
+                () -> List.of("a", "b"));
+
+        // Assert
+        assertThat(text(other.body())).isEqualTo("[\"a\",\"b\"]");
+    }
+
+    @Test
+    void getPatientList_shouldNotCache_whenWatermarkIsUnavailable() {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(fhirLookupService.findPatientIdByPersonnummer("19900101-1234")).thenThrow(new RuntimeException("down"));
+        AtomicInteger fetched = new AtomicInteger();
+
+        // Act
+        cache.getPatientList(Observation.class, "19900101-1234", "", false, () -> List.of(fetched.incrementAndGet()));
+        cache.getPatientList(Observation.class, "19900101-1234", "", false, () -> List.of(fetched.incrementAndGet()));
+
+        // Assert
+        assertThat(fetched).hasValue(2);
+        assertThat(cache.sizeInBytes()).isZero();
+    }
+
+    @Test
+    void getPatientList_shouldNotCacheEmptyList_whenWatermarkCountsResources() {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(fhirLookupService.findPatientIdByPersonnummer("19900101-1234")).thenReturn("pat-1");
+        when(hapiClientService.patientWatermark(Observation.class, "pat-1")).thenReturn("2:obs-2/1@100");
+
+        // Act: the search fails after the probe and the list method answers []
+        EncodedResponseCache.Encoded failed = cache.getPatientList(Observation.class, "19900101-1234", "", false,
+                List::of);
+        EncodedResponseCache.Encoded recovered = cache.getPatientList(Observation.class, "19900101-1234", "", false,
+                () -> List.of("a", "b"));
+
+        // Assert
+        assertThat(text(failed.body())).isEqualTo("[]");
+        assertThat(text(recovered.body())).isEqualTo("[\"a\",\"b\"]");
+    }
+
+    @Test
+    void getPatientList_shouldCacheEmptyList_whenPatientHasNoResources() {
+        // Arrange
+        EncodedResponseCache cache = cache(1 << 20);
+        when(fhirLookupService.findPatientIdByPersonnummer("19900101-1234")).thenReturn("pat-1");
+        when(hapiClientService.patientWatermark(Observation.class, "pat-1")).thenReturn("0");
+        AtomicInteger fetched = new AtomicInteger();
+
+        // Act
+        cache.getPatientList(Observation.class, "19900101-1234", "", false, () -> {
+            fetched.incrementAndGet();
+            return List.of();
+        });
+        cache.getPatientList(Observation.class, "19900101-1234", "", false, () -> {
+            fetched.incrementAndGet();
+            return List.of();
+        });
+
+        // Assert
+        assertThat(fetched).hasValue(1);
+    }
+
+    @Test
+    void store_shouldEvictLeastRecentlyUsed_whenOverMaxBytes() {
+        // Arrange
+        EncodedResponseCache cache = cache(250);
+        for (String id : List.of("a", "b", "c")) {
+            when(hapiClientService.readIfModified(Practitioner.class, id, null)).thenReturn(practitioner(id, "1"));
+        }
+        when(hapiClientService.readIfModified(Practitioner.class, "a", "1")).thenReturn(null);
+        AtomicInteger mapped = new AtomicInteger();
+
+        // Act
+        cache.getResource(Practitioner.class, "a", p -> hundredBytes(mapped), false);
+        cache.getResource(Practitioner.class, "b", p -> hundredBytes(mapped), false);
+        cache.getResource(Practitioner.class, "a", p -> hundredBytes(mapped), false);
+        cache.getResource(Practitioner.class, "c", p -> hundredBytes(mapped), false);
+        cache.getResource(Practitioner.class, "a", p -> hundredBytes(mapped), false);
+
+        // Assert
+        assertThat(mapped).hasValue(3);
+        assertThat(cache.sizeInBytes()).isEqualTo(200);
+        verify(hapiClientService, times(2)).readIfModified(Practitioner.class, "a", "1");
+    }
+
+    // HELPER METHODS
+
+    private EncodedResponseCache cache(long maxBytes) {
+        return new EncodedResponseCache(hapiClientService, fhirLookupService, new ObjectMapper(), meterRegistry, true, maxBytes);
+    }
+
+    private static Practitioner practitioner(String id, String version) {
+        Practitioner practitioner = new Practitioner();
+        practitioner.setId("Practitioner/" + id + "/_history/" + version);
+        practitioner.getMeta().setVersionId(version);
+        return practitioner;
+    }
+
+    private static String name(Practitioner practitioner, AtomicInteger mapped) {
+        mapped.incrementAndGet();
+        return practitioner.getIdElement().getIdPart();
+    }
+
+    // Encodes to exactly 100 bytes of JSON
+    private static String hundredBytes(AtomicInteger mapped) {
+        mapped.incrementAndGet();
+        return "x".repeat(98);
+    }
+
+    private static String text(byte[] body) {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return text(in.readAllBytes());
+        }
+    }
+}
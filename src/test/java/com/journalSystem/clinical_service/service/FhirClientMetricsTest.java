@@ -0,0 +1,217 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import ca.uhn.fhir.rest.client.exceptions.FhirClientConnectionException;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FhirClientMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void classify_shouldRecognizeFhirInteractions() {
+        assertThat(classify("GET", "Patient/p1")).isEqualTo(new FhirClientMetrics.Call("read", "Patient"));
+        assertThat(classify("GET", "Patient/p1/_history/3")).isEqualTo(new FhirClientMetrics.Call("vread", "Patient"));
+        assertThat(classify("GET", "Observation")).isEqualTo(new FhirClientMetrics.Call("search", "Observation"));
+        assertThat(classify("POST", "Observation/_search")).isEqualTo(new FhirClientMetrics.Call("search", "Observation"));
+        assertThat(classify("POST", "Condition")).isEqualTo(new FhirClientMetrics.Call("create", "Condition"));
+        assertThat(classify("PUT", "Encounter/e1")).isEqualTo(new FhirClientMetrics.Call("update", "Encounter"));
+        assertThat(classify("GET", "Patient/p1/$everything")).isEqualTo(new FhirClientMetrics.Call("operation", "Patient"));
+        assertThat(classify("POST", "")).isEqualTo(new FhirClientMetrics.Call("transaction", "none"));
+        assertThat(FhirClientMetrics.classify("GET", List.of(), "_getpages=abc&_getpagesoffset=20"))
+                .isEqualTo(new FhirClientMetrics.Call("page", "none"));
+    }
+
+    @Test
+    void record_shouldTagByInteractionAndOutcome_relativeToBaseUrl() {
+        // Arrange
+        FhirClientMetrics metrics = new FhirClientMetrics(meterRegistry, "http://fhir.example/fhir/");
+
+        // Act
+        metrics.record("GET", "http://fhir.example/fhir/Observation?patient=p1&_count=50", 200, 5_000_000);
+        metrics.record("GET", "http://fhir.example/fhir/Patient/unknown", 404, 1_000_000);
+
+        // Assert
+        Timer search = meterRegistry.get(FhirClientMetrics.TIMER)
+                .tags("interaction", "search", "resource", "Observation", "outcome", "SUCCESS")
+                .timer();
+        assertThat(search.count()).isEqualTo(1);
+        assertThat(search.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5.0);
+        assertThat(meterRegistry.get(FhirClientMetrics.TIMER)
+                .tags("interaction", "read", "status", "404", "outcome", "CLIENT_ERROR")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void hapiClient_shouldRecordEveryCall() throws IOException {
+        // Arrange
+        HttpServer fhir = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        fhir.createContext("/fhir/Patient/p1", exchange -> {
+            byte[] body = "{\"resourceType\":\"Patient\",\"id\":\"p1\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fhir.start();
+        String baseUrl = "http://127.0.0.1:" + fhir.getAddress().getPort() + "/fhir";
+
+        try {
+            HapiClientService hapiClient = new HapiClientService(baseUrl, new IdempotencyCache(10, 60_000),
+                    new FhirClientMetrics(meterRegistry, baseUrl), new SlowFhirQueryLog(false, 0, 0));
+            hapiClient.getContext().getRestfulClientFactory().setServerValidationMode(
+                    ServerValidationModeEnum.NEVER);
+
+            // Act
+            hapiClient.getClient().read().resource(Patient.class).withId("p1").execute();
+
+            // Assert
+            assertThat(meterRegistry.get(FhirClientMetrics.TIMER)
+                    .tags("method", "GET", "interaction", "read", "resource", "Patient", "status", "200")
+                    .timer().count()).isEqualTo(1);
+        } finally {
+            fhir.stop(0);
+        }
+    }
+
+    @Test
+    void hapiClient_shouldEmitFlightRecorderEvent_perCall(@TempDir Path tempDir) throws IOException {
+        // Arrange
+        HttpServer fhir = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        byte[] body = "{\"resourceType\":\"Patient\",\"id\":\"p1\"}".getBytes(StandardCharsets.UTF_8);
+        fhir.createContext("/fhir/Patient/p1", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fhir.start();
+        String baseUrl = "http://127.0.0.1:" + fhir.getAddress().getPort() + "/fhir";
+        Path dump = tempDir.resolve("fhir.jfr");
+
+        try (Recording recording = new Recording()) {
+            HapiClientService hapiClient = new HapiClientService(baseUrl, new IdempotencyCache(10, 60_000),
+                    new FhirClientMetrics(meterRegistry, baseUrl), new SlowFhirQueryLog(false, 0, 0));
+            hapiClient.getContext().getRestfulClientFactory().setServerValidationMode(
+                    ServerValidationModeEnum.NEVER);
+            recording.enable("clinical.FhirRequest");
+            recording.start();
+
+            // Act
+            hapiClient.getClient().read().resource(Patient.class).withId("p1").execute();
+            recording.stop();
+            recording.dump(dump);
+
+            // Assert
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            assertThat(events).hasSize(1);
+            RecordedEvent event = events.get(0);
+            assertThat(event.getString("interaction")).isEqualTo("read");
+            assertThat(event.getString("resourceType")).isEqualTo("Patient");
+            assertThat(event.getInt("status")).isEqualTo(200);
+            assertThat(event.getLong("bytes")).isEqualTo(body.length);
+            assertThat(event.getDuration()).isPositive();
+        } finally {
+            fhir.stop(0);
+        }
+    }
+
+    @Test
+    void hapiClient_shouldRecordConnectionFailure_andClearPendingEvent() throws IOException {
+        // Arrange: a port nothing listens on
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        String baseUrl = "http://127.0.0.1:" + port + "/fhir";
+        FhirClientMetrics metrics = new FhirClientMetrics(meterRegistry, baseUrl);
+        HapiClientService hapiClient = hapiClient(baseUrl, metrics);
+
+        // Act & Assert
+        assertThatThrownBy(() -> hapiClient.getClient().read().resource(Patient.class).withId("p1").execute())
+                .isInstanceOf(FhirClientConnectionException.class);
+        assertThat(meterRegistry.get(FhirClientMetrics.TIMER)
+                .tags("interaction", "read", "resource", "Patient", "status", "none", "outcome", "ERROR")
+                .timer().count()).isEqualTo(1);
+        assertThat(pendingEvent(metrics).get()).isNull();
+    }
+
+    @Test
+    void hapiClient_shouldRecordTimeout() throws IOException {
+        // Arrange
+        HttpServer fhir = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        CountDownLatch release = new CountDownLatch(1);
+        fhir.createContext("/fhir/Patient", exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        fhir.start();
+        String baseUrl = "http://127.0.0.1:" + fhir.getAddress().getPort() + "/fhir";
+
+        try {
+            FhirClientMetrics metrics = new FhirClientMetrics(meterRegistry, baseUrl);
+            HapiClientService hapiClient = hapiClient(baseUrl, metrics);
+            hapiClient.getContext().getRestfulClientFactory().setSocketTimeout(200);
+
+            // Act & Assert
+            assertThatThrownBy(() -> hapiClient.getClient().search().forResource(Patient.class)
+                    .returnBundle(Bundle.class).execute())
+                    .isInstanceOf(FhirClientConnectionException.class);
+            assertThat(meterRegistry.get(FhirClientMetrics.TIMER)
+                    .tags("interaction", "search", "resource", "Patient", "status", "none", "outcome", "TIMEOUT")
+                    .timer().count()).isEqualTo(1);
+            assertThat(pendingEvent(metrics).get()).isNull();
+        } finally {
+            release.countDown();
+            fhir.stop(0);
+        }
+    }
+
+    // HELPER METHODS
+
+    private static HapiClientService hapiClient(String baseUrl, FhirClientMetrics metrics) {
+        HapiClientService hapiClient = new HapiClientService(baseUrl, new IdempotencyCache(10, 60_000),
+                metrics, new SlowFhirQueryLog(false, 0, 0));
+        hapiClient.getContext().getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+        return hapiClient;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ThreadLocal<FhirRequestEvent> pendingEvent(FhirClientMetrics metrics) {
+        return (ThreadLocal<FhirRequestEvent>) ReflectionTestUtils.getField(metrics, "pendingEvent");
+    }
+
+    private static FhirClientMetrics.Call classify(String method, String path) {
+        return FhirClientMetrics.classify(method, path.isEmpty() ? List.of() : List.of(path.split("/")), null);
+    }
+}
@@ -1,15 +1,34 @@
 package com.journalSystem.clinical_service.service;
 
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -280,4 +299,237 @@ class FhirLookupServiceTest {
             assertThat(result).contains(personnummer);
         }
     }
-}
\ No newline at end of file
+
+    // resolveParticipants() TESTS
+
+    @Test
+    void resolveParticipants_shouldResolvePatientAndPractitionerConcurrently() {
+        // Arrange
+        CountDownLatch practitionerStarted = new CountDownLatch(1);
+        FhirLookupService spyService = spy(fhirLookupService);
+        doAnswer(invocation -> {
+            // Only completes if the practitioner lookup runs at the same time
+            assertThat(practitionerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            return "patient-fhir-123";
+        }).when(spyService).findPatientIdByPersonnummer("197001011234");
+        doAnswer(invocation -> {
+            practitionerStarted.countDown();
+            return "practitioner-fhir-456";
+        }).when(spyService).findPractitionerIdByPersonnummer("198001011234");
+
+        // Act
+        FhirLookupService.Participants result = spyService.resolveParticipants("197001011234", "198001011234");
+
+        // Assert
+        assertThat(result.patientFhirId()).isEqualTo("patient-fhir-123");
+        assertThat(result.practitionerFhirId()).isEqualTo("practitioner-fhir-456");
+    }
+
+    @Test
+    void resolveParticipants_shouldOnlyResolvePatient_whenPractitionerMissing() {
+        // Arrange
+        FhirLookupService spyService = spy(fhirLookupService);
+        doReturn("patient-fhir-123").when(spyService).findPatientIdByPersonnummer("197001011234");
+
+        // Act
+        FhirLookupService.Participants result = spyService.resolveParticipants("197001011234", null);
+
+        // Assert
+        assertThat(result.patientFhirId()).isEqualTo("patient-fhir-123");
+        assertThat(result.practitionerFhirId()).isNull();
+        verify(spyService, never()).findPractitionerIdByPersonnummer(anyString());
+    }
+
+    @Test
+    void resolveParticipants_shouldRethrowLookupFailure() {
+        // Arrange
+        FhirLookupService spyService = spy(fhirLookupService);
+        doReturn("patient-fhir-123").when(spyService).findPatientIdByPersonnummer("197001011234");
+        doThrow(new RuntimeException("Practitioner not found with identifier or ID: 198001011234"))
+                .when(spyService).findPractitionerIdByPersonnummer("198001011234");
+
+        // Act & Assert
+        assertThatThrownBy(() -> spyService.resolveParticipants("197001011234", "198001011234"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Practitioner not found");
+    }
+
+    @Test
+    void resolveParticipants_shouldInterruptLookups_atDeadline() throws InterruptedException {
+        // Arrange
+        ReflectionTestUtils.setField(fhirLookupService, "deadlineMillis", 100L);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        FhirLookupService spyService = spy(fhirLookupService);
+        doAnswer(invocation -> {
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "patient-fhir-123";
+        }).when(spyService).findPatientIdByPersonnummer("197001011234");
+        doReturn("practitioner-fhir-456").when(spyService).findPractitionerIdByPersonnummer("198001011234");
+        long start = System.nanoTime();
+
+        // Act & Assert
+        assertThatThrownBy(() -> spyService.resolveParticipants("197001011234", "198001011234"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Timed out looking up patient");
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void resolveParticipants_shouldApplyDeadline_whenOnlyPatientIsResolved() {
+        // Arrange
+        ReflectionTestUtils.setField(fhirLookupService, "deadlineMillis", 100L);
+        FhirLookupService spyService = spy(fhirLookupService);
+        doAnswer(invocation -> {
+            Thread.sleep(30_000);
+            return "patient-fhir-123";
+        }).when(spyService).findPatientIdByPersonnummer("197001011234");
+        long start = System.nanoTime();
+
+        // Act & Assert
+        assertThatThrownBy(() -> spyService.resolveParticipants("197001011234", null))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Timed out looking up patient");
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void resolveParticipants_shouldFailFast_whenLookupsAreSaturated() {
+        // Arrange: every lookup thread busy and the queue full
+        ThreadPoolExecutor lookupExecutor =
+                (ThreadPoolExecutor) ReflectionTestUtils.getField(fhirLookupService, "lookupExecutor");
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            while (lookupExecutor.getQueue().remainingCapacity() > 0) {
+                lookupExecutor.execute(() -> awaitQuietly(release));
+            }
+            FhirLookupService spyService = spy(fhirLookupService);
+            long start = System.nanoTime();
+
+            // Act & Assert
+            assertThatThrownBy(() -> spyService.resolveParticipants("197001011234", "198001011234"))
+                    .isInstanceOf(RejectedExecutionException.class)
+                    .hasMessageContaining("Too many concurrent FHIR lookups");
+            assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+            verify(spyService, never()).findPatientIdByPersonnummer(anyString());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // Not-found classification, against a local FHIR server
+
+    @Test
+    void findPatientIdByPersonnummer_shouldThrowResourceNotFound_whenUnknown() throws IOException {
+        // Arrange
+        HttpServer fhir = fhirServer(404);
+        try {
+            FhirLookupService lookupService = new FhirLookupService(hapiClient(fhir));
+
+            // Act & Assert
+            assertThatThrownBy(() -> lookupService.findPatientIdByPersonnummer("199901019999"))
+                    .isInstanceOf(ResourceNotFoundException.class)
+                    .hasMessageContaining("Patient not found");
+        } finally {
+            fhir.stop(0);
+        }
+    }
+
+    @Test
+    void findPractitionerIdByPersonnummer_shouldPropagateServerError_whenDirectReadFails() throws IOException {
+        // Arrange
+        HttpServer fhir = fhirServer(503);
+        try {
+            FhirLookupService lookupService = new FhirLookupService(hapiClient(fhir));
+
+            // Act & Assert
+            assertThatThrownBy(() -> lookupService.findPractitionerIdByPersonnummer("198001011234"))
+                    .isInstanceOf(BaseServerResponseException.class)
+                    .isNotInstanceOf(ResourceNotFoundException.class)
+                    .extracting(e -> ((BaseServerResponseException) e).getStatusCode())
+                    .isEqualTo(503);
+        } finally {
+            fhir.stop(0);
+        }
+    }
+
+    @Test
+    void findPatientIdsByPersonnummer_shouldResolveMissesWithOneIdSearch() throws IOException {
+        // Arrange
+        List<String> queries = new CopyOnWriteArrayList<>();
+        HttpServer fhir = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        fhir.createContext("/fhir/Patient", exchange -> {
+            String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+            queries.add(query);
+            String entry = query.startsWith("identifier=")
+                    ? "{\"resource\":{\"resourceType\":\"Patient\",\"id\":\"p1\",\"identifier\":[{\"value\":\"197001011234\"}]}}"
+                    : "{\"resource\":{\"resourceType\":\"Patient\",\"id\":\"12345\"}}";
+            byte[] body = ("{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"entry\":[" + entry + "]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fhir.start();
+        try {
+            FhirLookupService lookupService = new FhirLookupService(hapiClient(fhir));
+
+            // Act
+            Map<String, String> ids = lookupService.findPatientIdsByPersonnummer(
+                    List.of("197001011234", "12345", "199901019999", "197001011234"));
+
+            // Assert
+            assertThat(ids).containsOnly(entry("197001011234", "p1"), entry("12345", "12345"));
+            assertThat(queries).hasSize(2);
+            assertThat(queries.get(1)).startsWith("_id=12345,199901019999");
+        } finally {
+            fhir.stop(0);
+        }
+    }
+
+    // HELPER METHODS
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Answers every identifier search with an empty bundle and every direct read with {@code readStatus}.
+     */
+    private static HttpServer fhirServer(int readStatus) throws IOException {
+        HttpServer fhir = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        fhir.createContext("/fhir", exchange -> {
+            boolean search = exchange.getRequestURI().getQuery() != null;
+            int status = search ? 200 : readStatus;
+            byte[] body = (search
+                    ? "{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"total\":0}"
+                    : "{\"resourceType\":\"OperationOutcome\",\"issue\":[{\"severity\":\"error\",\"code\":\"not-found\"}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fhir.start();
+        return fhir;
+    }
+
+    private static HapiClientService hapiClient(HttpServer fhir) {
+        String baseUrl = "http://127.0.0.1:" + fhir.getAddress().getPort() + "/fhir";
+        HapiClientService hapiClient = new HapiClientService(baseUrl, new IdempotencyCache(10, 60_000),
+                new FhirClientMetrics(new SimpleMeterRegistry(), baseUrl), new SlowFhirQueryLog(false, 0, 0));
+        hapiClient.getContext().getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+        return hapiClient;
+    }
+}
@@ -0,0 +1,192 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HapiClientServiceTest {
+
+    private static final String KEY = "alice:key-1";
+
+    private final List<String> ifNoneExist = new CopyOnWriteArrayList<>();
+    private final List<String> prefer = new CopyOnWriteArrayList<>();
+    private final AtomicInteger creates = new AtomicInteger();
+    private final AtomicInteger reads = new AtomicInteger();
+    private HttpServer fhir;
+    private volatile String baseUrl;
+    private HapiClientService hapiClient;
+    private volatile int createStatus = 201;
+    private volatile String createResponse;
+    private volatile int readStatus = 200;
+    private volatile String readResponse;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fhir = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        fhir.createContext("/fhir/Observation", exchange -> {
+            int status;
+            byte[] body;
+            if ("GET".equals(exchange.getRequestMethod())) {
+                reads.incrementAndGet();
+                status = readStatus;
+                body = readResponse.getBytes(StandardCharsets.UTF_8);
+            } else {
+                creates.incrementAndGet();
+                String condition = exchange.getRequestHeaders().getFirst("If-None-Exist");
+                ifNoneExist.add(condition != null ? URLDecoder.decode(condition, StandardCharsets.UTF_8) : "");
+                prefer.add(String.valueOf(exchange.getRequestHeaders().getFirst("Prefer")));
+                exchange.getRequestBody().readAllBytes();
+                status = createStatus;
+                body = createResponse.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Location", baseUrl + "/Observation/obs-1/_history/1");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fhir.start();
+        baseUrl = "http://127.0.0.1:" + fhir.getAddress().getPort() + "/fhir";
+
+        hapiClient = new HapiClientService(baseUrl, new IdempotencyCache(10, 60_000),
+                new FhirClientMetrics(new SimpleMeterRegistry(), baseUrl), new SlowFhirQueryLog(false, 0, 0));
+        hapiClient.getContext().getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fhir.stop(0);
+    }
+
+    // create(resource) TESTS
+
+    @Test
+    void create_shouldReturnEchoedResource_whenServerHonoursReturnRepresentation() {
+        // Arrange
+        createResponse = storedObservation("hash-1");
+
+        // Act
+        Observation created = hapiClient.create(new Observation());
+
+        // Assert
+        assertThat(created.getIdElement().getIdPart()).isEqualTo("obs-1");
+        assertThat(created.getMeta().getVersionId()).isEqualTo("1");
+        assertThat(prefer).containsExactly("return=representation");
+        assertThat(reads).hasValue(0);
+    }
+
+    @Test
+    void create_shouldReadBackStoredResource_whenServerReturnsNoBody() {
+        // Arrange
+        createResponse = "";
+        readResponse = storedObservation("hash-1");
+
+        // Act
+        Observation created = hapiClient.create(new Observation());
+
+        // Assert
+        assertThat(created.getIdElement().getIdPart()).isEqualTo("obs-1");
+        assertThat(created.getIdentifier()).hasSize(2);
+        assertThat(reads).hasValue(1);
+    }
+
+    @Test
+    void create_shouldReturnSubmittedResourceWithNewId_whenReadBackFails() {
+        // Arrange
+        createResponse = "";
+        readStatus = 500;
+        readResponse = "{\"resourceType\":\"OperationOutcome\",\"issue\":[{\"severity\":\"error\",\"code\":\"exception\"}]}";
+        Observation submitted = new Observation();
+        submitted.setStatus(Observation.ObservationStatus.FINAL);
+
+        // Act
+        Observation created = hapiClient.create(submitted);
+
+        // Assert
+        assertThat(created).isSameAs(submitted);
+        assertThat(created.getIdElement().getResourceType()).isEqualTo("Observation");
+        assertThat(created.getIdElement().getIdPart()).isEqualTo("obs-1");
+        assertThat(created.getIdElement().getVersionIdPart()).isEqualTo("1");
+        assertThat(created.getIdElement().hasBaseUrl()).isFalse();
+        assertThat(reads).hasValue(1);
+    }
+
+    // create(resource, idempotencyKey) TESTS
+
+    @Test
+    void create_shouldBeConditionalOnKey_andAnswerRetriesFromCache() {
+        // Arrange
+        createResponse = storedObservation("hash-1");
+
+        // Act
+        Observation first = hapiClient.create(keyedObservation("hash-1"), KEY);
+        Observation retry = hapiClient.create(keyedObservation("hash-1"), KEY);
+
+        // Assert
+        assertThat(first.getIdElement().getIdPart()).isEqualTo("obs-1");
+        assertThat(retry.getIdElement().getIdPart()).isEqualTo("obs-1");
+        assertThat(creates).hasValue(1);
+        assertThat(ifNoneExist).singleElement().asString()
+                .endsWith("Observation?identifier=" + HapiClientService.IDEMPOTENCY_KEY_SYSTEM + "|" + KEY);
+    }
+
+    @Test
+    void create_shouldRejectReuse_whenCachedEntryHasDifferentPayload() {
+        // Arrange
+        createResponse = storedObservation("hash-1");
+        hapiClient.create(keyedObservation("hash-1"), KEY);
+
+        // Act & Assert
+        assertThatThrownBy(() -> hapiClient.create(keyedObservation("hash-2"), KEY))
+                .isInstanceOf(UnprocessableEntityException.class);
+        assertThat(creates).hasValue(1);
+    }
+
+    @Test
+    void create_shouldRejectReuse_whenServerMatchesResourceFromDifferentRequest() {
+        // Arrange: another instance already stored a resource under the key for another request
+        createStatus = 200;
+        createResponse = storedObservation("hash-other");
+
+        // Act & Assert
+        assertThatThrownBy(() -> hapiClient.create(keyedObservation("hash-1"), KEY))
+                .isInstanceOf(UnprocessableEntityException.class);
+        assertThat(hapiClient.findRecentlyCreated(Observation.class, KEY, null)).isEmpty();
+    }
+
+    // HELPER METHODS
+
+    private static Observation keyedObservation(String payloadHash) {
+        Observation observation = new Observation();
+        observation.setStatus(Observation.ObservationStatus.FINAL);
+        observation.addIdentifier().setSystem(HapiClientService.IDEMPOTENCY_KEY_SYSTEM).setValue(KEY);
+        observation.addIdentifier().setSystem(HapiClientService.IDEMPOTENCY_PAYLOAD_SYSTEM).setValue(payloadHash);
+        return observation;
+    }
+
+    private static String storedObservation(String payloadHash) {
+        return """
+                {"resourceType":"Observation","id":"obs-1","meta":{"versionId":"1"},"status":"final",
+                 "identifier":[{"system":"%s","value":"%s"},{"system":"%s","value":"%s"}]}"""
+                .formatted(HapiClientService.IDEMPOTENCY_KEY_SYSTEM, KEY,
+                        HapiClientService.IDEMPOTENCY_PAYLOAD_SYSTEM, payloadHash);
+    }
+}
@@ -27,6 +27,9 @@ class HapiConditionServiceTest {
     @Mock
     private FhirLookupService fhirLookupService;
 
+    @Mock
+    private CreateBatcher createBatcher;
+
     private HapiConditionService hapiConditionService;
 
     private Condition testCondition;
@@ -34,7 +37,7 @@ class HapiConditionServiceTest {
 
     @BeforeEach
     void setUp() {
-        hapiConditionService = new HapiConditionService(hapiClientService, fhirLookupService);
+        hapiConditionService = new HapiConditionService(hapiClientService, fhirLookupService, createBatcher);
 
         recordedDate = new Date();
 
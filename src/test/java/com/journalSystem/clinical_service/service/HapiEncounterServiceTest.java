@@ -27,6 +27,9 @@ class HapiEncounterServiceTest {
     @Mock
     private FhirLookupService fhirLookupService;
 
+    @Mock
+    private CreateBatcher createBatcher;
+
     private HapiEncounterService hapiEncounterService;
 
     private Encounter testEncounter;
@@ -35,7 +38,7 @@ class HapiEncounterServiceTest {
 
     @BeforeEach
     void setUp() {
-        hapiEncounterService = new HapiEncounterService(hapiClientService, fhirLookupService);
+        hapiEncounterService = new HapiEncounterService(hapiClientService, fhirLookupService, createBatcher);
 
         Calendar cal = Calendar.getInstance();
         startTime = cal.getTime();
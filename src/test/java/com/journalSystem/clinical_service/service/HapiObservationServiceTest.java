@@ -1,6 +1,15 @@
 package com.journalSystem.clinical_service.service;
 
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.ICriterion;
+import ca.uhn.fhir.rest.gclient.IQuery;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.journalSystem.clinical_service.dto.BulkItemResultDTO;
 import org.hl7.fhir.r4.model.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,13 +17,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,13 +38,16 @@ class HapiObservationServiceTest {
     @Mock
     private FhirLookupService fhirLookupService;
 
+    @Mock
+    private CreateBatcher createBatcher;
+
     private HapiObservationService hapiObservationService;
 
     private Observation testObservation;
 
     @BeforeEach
     void setUp() {
-        hapiObservationService = new HapiObservationService(hapiClientService, fhirLookupService);
+        hapiObservationService = new HapiObservationService(hapiClientService, fhirLookupService, createBatcher);
 
         testObservation = createTestObservation("12345", "Patient/98765", "Practitioner/11111",
                 "Blood Pressure", "120", "mmHg", new Date());
@@ -167,6 +182,35 @@ class HapiObservationServiceTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void getObservationsForPatient_shouldPushDateRangeSortAndLimitToServer() {
+        // Arrange
+        String patientPersonnummer = "197001011234";
+        IGenericClient client = mock(IGenericClient.class, RETURNS_DEEP_STUBS);
+        IQuery<Bundle> query = mock(IQuery.class);
+        when(hapiClientService.getClient()).thenReturn(client);
+        when(hapiClientService.getContext()).thenReturn(FhirContext.forR4Cached());
+        when(fhirLookupService.findPatientIdByPersonnummer(patientPersonnummer)).thenReturn("98765");
+        when(client.search().forResource(Observation.class).where(any(ICriterion.class)).returnBundle(Bundle.class))
+                .thenReturn(query);
+        when(query.and(any(ICriterion.class))).thenReturn(query);
+        when(query.sort(any(SortSpec.class))).thenReturn(query);
+        when(query.count(anyInt())).thenReturn(query);
+        when(query.execute()).thenReturn(new Bundle());
+
+        // Act
+        List<Observation> result = hapiObservationService.getObservationsForPatient(patientPersonnummer,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                new SortSpec(Observation.SP_DATE, SortOrderEnum.DESC), 20);
+
+        // Assert
+        assertThat(result).isEmpty();
+        verify(query, times(2)).and(any(ICriterion.class));
+        verify(query).sort(argThat((SortSpec sort) -> sort.getOrder() == SortOrderEnum.DESC));
+        verify(query).count(20);
+    }
+
     // getObservationById() TESTS
 
     @Test
@@ -484,6 +528,128 @@ class HapiObservationServiceTest {
         assertThat(result.getCategory().get(0).getCoding().get(0).getCode()).isEqualTo("vital-signs");
     }
 
+    @Test
+    void createObservation_shouldReturnRecentlyCreated_withoutLookupOrCreate_whenKeyWasUsed() {
+        // Arrange
+        Date effectiveDate = new Date();
+        String payloadHash = IdempotencyCache.payloadHash("197001011234", null, "Pulse", "72", "bpm", effectiveDate);
+        when(hapiClientService.findRecentlyCreated(Observation.class, "alice:key-1", payloadHash))
+                .thenReturn(Optional.of(testObservation));
+
+        // Act
+        Observation result = hapiObservationService.createObservation(
+                "197001011234", null, "Pulse", "72", "bpm", effectiveDate, "alice:key-1");
+
+        // Assert
+        assertThat(result).isSameAs(testObservation);
+        verifyNoInteractions(fhirLookupService, createBatcher);
+    }
+
+    @Test
+    void createObservation_shouldRejectReuse_whenKeyWasUsedForDifferentObservation() {
+        // Arrange
+        when(hapiClientService.findRecentlyCreated(eq(Observation.class), eq("alice:key-1"), anyString()))
+                .thenThrow(new UnprocessableEntityException("Idempotency-Key alice:key-1 was already used for a different request"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> hapiObservationService.createObservation(
+                "197001011234", null, "Weight", "70", "kg", new Date(), "alice:key-1"))
+                .isInstanceOf(UnprocessableEntityException.class);
+        verifyNoInteractions(fhirLookupService, createBatcher);
+    }
+
+    @Test
+    void createObservation_shouldTagCreateWithKeyAndPayloadHash() {
+        // Arrange
+        Date effectiveDate = new Date();
+        when(fhirLookupService.resolveParticipants("197001011234", null))
+                .thenReturn(new FhirLookupService.Participants("98765", null));
+        when(createBatcher.create(any(Observation.class), eq("alice:key-1"))).thenAnswer(invocation -> {
+            Observation submitted = invocation.getArgument(0);
+            submitted.setId("obs-1");
+            return submitted;
+        });
+
+        // Act
+        Observation result = hapiObservationService.createObservation(
+                "197001011234", null, "Pulse", "72", "bpm", effectiveDate, "alice:key-1");
+
+        // Assert
+        assertThat(result.getIdentifier())
+                .extracting(Identifier::getSystem, Identifier::getValue)
+                .containsExactly(
+                        tuple(HapiClientService.IDEMPOTENCY_KEY_SYSTEM, "alice:key-1"),
+                        tuple(HapiClientService.IDEMPOTENCY_PAYLOAD_SYSTEM,
+                                IdempotencyCache.payloadHash("197001011234", null, "Pulse", "72", "bpm", effectiveDate)));
+    }
+
+    // createObservations() TESTS
+
+    @Test
+    void createObservations_shouldResolveEachPersonnummerOnceAndCreateInOneTransaction() {
+        // Arrange
+        Date effectiveDate = new Date();
+        List<HapiObservationService.NewObservation> items = List.of(
+                new HapiObservationService.NewObservation("197001011234", "198001011234", "Pulse", "72", "bpm", effectiveDate),
+                new HapiObservationService.NewObservation("197001011234", null, "Weight", "70", "kg", effectiveDate),
+                new HapiObservationService.NewObservation("199901019999", null, "Height", "180", "cm", effectiveDate)
+        );
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("197001011234", "98765"));
+        when(fhirLookupService.findPractitionerIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("198001011234", "11111"));
+        when(hapiClientService.createAll(anyList())).thenReturn(List.of("1", "2"));
+
+        // Act
+        List<BulkItemResultDTO> result = hapiObservationService.createObservations(items);
+
+        // Assert
+        assertThat(result).extracting(BulkItemResultDTO::status).containsExactly("CREATED", "CREATED", "REJECTED");
+        assertThat(result).extracting(BulkItemResultDTO::id).containsExactly("1", "2", null);
+        assertThat(result.get(2).error()).contains("Patient not found");
+        verify(fhirLookupService, never()).findPatientIdByPersonnummer(anyString());
+        verify(hapiClientService).createAll(argThat(list -> list.size() == 2));
+    }
+
+    @Test
+    void createObservations_shouldFailWholeBatch_whenTransactionFails() {
+        // Arrange
+        List<HapiObservationService.NewObservation> items = List.of(
+                new HapiObservationService.NewObservation("197001011234", null, "Pulse", "72", "bpm", new Date()),
+                new HapiObservationService.NewObservation("197001011234", null, "Weight", "70", "kg", new Date())
+        );
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("197001011234", "98765"));
+        when(hapiClientService.createAll(anyList())).thenThrow(new RuntimeException("Server error"));
+
+        // Act
+        List<BulkItemResultDTO> result = hapiObservationService.createObservations(items);
+
+        // Assert
+        assertThat(result).extracting(BulkItemResultDTO::status).containsOnly("FAILED");
+        assertThat(result).extracting(BulkItemResultDTO::error).containsOnly("Server error");
+    }
+
+    @Test
+    void createObservations_shouldFailEveryItem_whenLookupFails() {
+        // Arrange
+        List<HapiObservationService.NewObservation> items = List.of(
+                new HapiObservationService.NewObservation("197001011234", null, "Pulse", "72", "bpm", new Date()),
+                new HapiObservationService.NewObservation("199901019999", null, "Weight", "70", "kg", new Date())
+        );
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection()))
+                .thenThrow(new InternalErrorException("FHIR server unavailable"));
+
+        // Act
+        List<BulkItemResultDTO> result = hapiObservationService.createObservations(items);
+
+        // Assert
+        assertThat(result).extracting(BulkItemResultDTO::status).containsExactly("FAILED", "FAILED");
+        assertThat(result).extracting(BulkItemResultDTO::error)
+                .containsOnly("Could not resolve participants: FHIR server unavailable");
+        verify(hapiClientService, never()).createAll(anyList());
+    }
+
     // INTEGRATION-STYLE TESTS
 
     @Test
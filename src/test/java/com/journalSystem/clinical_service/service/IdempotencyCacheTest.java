@@ -0,0 +1,115 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.Test;
+
+import java.security.Principal;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void get_shouldReturnCopyOfStoredResource() {
+        // Arrange
+        IdempotencyCache cache = new IdempotencyCache(10, 60_000);
+        Observation observation = new Observation();
+        observation.setId("obs-1");
+        cache.put("key-1", observation, null);
+
+        // Act
+        Optional<Observation> result = cache.get(Observation.class, "key-1", null);
+
+        // Assert
+        assertThat(result).isPresent();
+        assertThat(result.get().getIdElement().getIdPart()).isEqualTo("obs-1");
+        assertThat(result.get()).isNotSameAs(observation);
+    }
+
+    @Test
+    void get_shouldSeparateKeysByResourceType() {
+        // Arrange
+        IdempotencyCache cache = new IdempotencyCache(10, 60_000);
+        cache.put("key-1", new Observation(), null);
+
+        // Act & Assert
+        assertThat(cache.get(Condition.class, "key-1", null)).isEmpty();
+    }
+
+    @Test
+    void get_shouldReturnEmpty_whenEntryExpired() {
+        // Arrange
+        IdempotencyCache cache = new IdempotencyCache(10, -1);
+        cache.put("key-1", new Observation(), null);
+
+        // Act & Assert
+        assertThat(cache.get(Observation.class, "key-1", null)).isEmpty();
+    }
+
+    @Test
+    void get_shouldReturnResource_whenPayloadHashMatches() {
+        // Arrange
+        IdempotencyCache cache = new IdempotencyCache(10, 60_000);
+        String payloadHash = IdempotencyCache.payloadHash("197001011234", "Blood Pressure", new Date(0));
+        cache.put("key-1", new Observation(), payloadHash);
+
+        // Act & Assert
+        assertThat(cache.get(Observation.class, "key-1",
+                IdempotencyCache.payloadHash("197001011234", "Blood Pressure", new Date(0)))).isPresent();
+    }
+
+    @Test
+    void get_shouldRejectReuse_whenPayloadHashDiffers() {
+        // Arrange
+        IdempotencyCache cache = new IdempotencyCache(10, 60_000);
+        cache.put("key-1", new Observation(), IdempotencyCache.payloadHash("197001011234", "Blood Pressure"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> cache.get(Observation.class, "key-1",
+                IdempotencyCache.payloadHash("197001011234", "Heart Rate")))
+                .isInstanceOf(UnprocessableEntityException.class)
+                .hasMessageContaining("key-1");
+    }
+
+    @Test
+    void scope_shouldPrefixKeyWithSubject() {
+        // Arrange
+        Principal alice = () -> "alice";
+        Principal bob = () -> "bob";
+
+        // Act & Assert
+        assertThat(IdempotencyCache.scope(alice, "key-1")).isEqualTo("alice:key-1");
+        assertThat(IdempotencyCache.scope(alice, "key-1")).isNotEqualTo(IdempotencyCache.scope(bob, "key-1"));
+        assertThat(IdempotencyCache.scope(null, "key-1")).isEqualTo("key-1");
+        assertThat(IdempotencyCache.scope(alice, null)).isNull();
+    }
+
+    @Test
+    void payloadHash_shouldDependOnFieldOrderAndDateInstant() {
+        assertThat(IdempotencyCache.payloadHash("a", "b")).isNotEqualTo(IdempotencyCache.payloadHash("b", "a"));
+        assertThat(IdempotencyCache.payloadHash("ab", "")).isNotEqualTo(IdempotencyCache.payloadHash("a", "b"));
+        assertThat(IdempotencyCache.payloadHash(new Date(1_000))).isEqualTo(IdempotencyCache.payloadHash(new Date(1_000)));
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsed_whenFull() {
+        // Arrange
+        IdempotencyCache cache = new IdempotencyCache(2, 60_000);
+        cache.put("key-1", new Observation(), null);
+        cache.put("key-2", new Observation(), null);
+        cache.get(Observation.class, "key-1", null);
+
+        // Act
+        cache.put("key-3", new Observation(), null);
+
+        // Assert
+        assertThat(cache.get(Observation.class, "key-1", null)).isPresent();
+        assertThat(cache.get(Observation.class, "key-2", null)).isEmpty();
+        assertThat(cache.get(Observation.class, "key-3", null)).isPresent();
+    }
+}
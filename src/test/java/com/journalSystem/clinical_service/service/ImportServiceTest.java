@@ -0,0 +1,208 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.journalSystem.clinical_service.dto.ImportStatusDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportServiceTest {
+
+    @Mock
+    private HapiClientService hapiClientService;
+
+    @Mock
+    private FhirLookupService fhirLookupService;
+
+    @Mock
+    private CreateBatcher createBatcher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new ImportService(
+                hapiClientService,
+                fhirLookupService,
+                new HapiObservationService(hapiClientService, fhirLookupService, createBatcher),
+                new HapiConditionService(hapiClientService, fhirLookupService, createBatcher),
+                new HapiEncounterService(hapiClientService, fhirLookupService, createBatcher),
+                meterRegistry,
+                2,
+                2,
+                60_000,
+                3,
+                1
+        );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importNdjson_shouldWriteChunksAsTransactions() throws Exception {
+        // Arrange
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("197001011234", "98765"));
+        when(fhirLookupService.findPractitionerIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("198001011234", "11111"));
+        List<List<Resource>> transactions = Collections.synchronizedList(new ArrayList<>());
+        when(hapiClientService.createInTransaction(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Resource> resources = new ArrayList<>((List<Resource>) invocation.getArgument(0));
+            transactions.add(resources);
+            return resources;
+        });
+
+        // Act
+        ImportStatusDTO result = importService.importNdjson(ndjson(
+                "{\"resourceType\":\"Observation\",\"patientPersonnummer\":\"197001011234\",\"performerPersonnummer\":\"198001011234\",\"description\":\"Pulse\",\"value\":\"72\",\"unit\":\"bpm\",\"effectiveDateTime\":\"2024-01-15\"}",
+                "{\"resourceType\":\"Condition\",\"patientPersonnummer\":\"197001011234\",\"description\":\"Asthma\",\"recordedDate\":\"2024-01-15\"}",
+                "",
+                "{\"resourceType\":\"Encounter\",\"patientPersonnummer\":\"197001011234\",\"practitionerPersonnummer\":\"198001011234\",\"startTime\":\"2024-01-15T10:00:00Z\"}"
+        ));
+
+        // Assert
+        assertThat(result.finished()).isTrue();
+        assertThat(result.linesRead()).isEqualTo(3);
+        assertThat(result.imported()).isEqualTo(3);
+        assertThat(result.rejected()).isZero();
+        assertThat(transactions).hasSize(2);
+        assertThat(transactions.stream().flatMap(List::stream).map(Resource::getClass))
+                .containsExactlyInAnyOrder(Observation.class, Condition.class, Encounter.class);
+        assertThat(meterRegistry.get("clinical.import.records").tag("outcome", "imported").counter().count())
+                .isEqualTo(3);
+    }
+
+    @Test
+    void importNdjson_shouldRejectInvalidAndUnresolvableLines() throws Exception {
+        // Arrange
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection())).thenReturn(Map.of());
+        when(fhirLookupService.findPractitionerIdsByPersonnummer(anyCollection())).thenReturn(Map.of());
+
+        // Act
+        ImportStatusDTO result = importService.importNdjson(ndjson(
+                "not json",
+                "{\"resourceType\":\"Patient\"}",
+                "{\"resourceType\":\"Condition\",\"patientPersonnummer\":\"199901019999\",\"description\":\"Asthma\"}"
+        ));
+
+        // Assert
+        assertThat(result.rejected()).isEqualTo(3);
+        assertThat(result.imported()).isZero();
+        assertThat(result.errors()).hasSize(3);
+        assertThat(result.errors().get(1)).contains("Line 2").contains("Unsupported resourceType");
+        verify(hapiClientService, never()).createInTransaction(anyList(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importNdjson_shouldKeyEveryLine_sameLineSameKey() throws Exception {
+        // Arrange
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("197001011234", "98765"));
+        when(fhirLookupService.findPractitionerIdsByPersonnummer(anyCollection())).thenReturn(Map.of());
+        List<String> keys = Collections.synchronizedList(new ArrayList<>());
+        when(hapiClientService.createInTransaction(anyList(), anyList())).thenAnswer(invocation -> {
+            keys.addAll(invocation.getArgument(1));
+            return invocation.getArgument(0);
+        });
+        String asthma = "{\"resourceType\":\"Condition\",\"patientPersonnummer\":\"197001011234\",\"description\":\"Asthma\"}";
+        String keyed = "{\"resourceType\":\"Condition\",\"idempotencyKey\":\"row-42\",\"patientPersonnummer\":\"197001011234\",\"description\":\"Eczema\"}";
+
+        // Act: the same upload twice, e.g. a re-run after a timeout
+        importService.importNdjson(ndjson(asthma, keyed));
+        importService.importNdjson(ndjson(asthma, keyed));
+
+        // Assert
+        assertThat(keys).hasSize(4);
+        assertThat(keys.subList(0, 2)).containsExactlyInAnyOrderElementsOf(keys.subList(2, 4));
+        assertThat(keys).contains("import:row-42", "import:" + IdempotencyCache.payloadHash(asthma));
+    }
+
+    @Test
+    void importNdjson_shouldRetryChunk_whenFhirIsUnavailable() throws Exception {
+        // Arrange
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("197001011234", "98765"));
+        when(fhirLookupService.findPractitionerIdsByPersonnummer(anyCollection())).thenReturn(Map.of());
+        when(hapiClientService.createInTransaction(anyList(), anyList()))
+                .thenThrow(new InternalErrorException("HTTP 500 Internal Server Error"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        ImportStatusDTO result = importService.importNdjson(ndjson(
+                "{\"resourceType\":\"Condition\",\"patientPersonnummer\":\"197001011234\",\"description\":\"Asthma\"}"
+        ));
+
+        // Assert
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.failed()).isZero();
+        verify(hapiClientService, times(2)).createInTransaction(anyList(), anyList());
+    }
+
+    @Test
+    void importNdjson_shouldCountChunkAsFailed_afterMaxAttempts() throws Exception {
+        // Arrange
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("197001011234", "98765"));
+        when(fhirLookupService.findPractitionerIdsByPersonnummer(anyCollection())).thenReturn(Map.of());
+        when(hapiClientService.createInTransaction(anyList(), anyList()))
+                .thenThrow(new InternalErrorException("HTTP 500 Internal Server Error"));
+
+        // Act
+        ImportStatusDTO result = importService.importNdjson(ndjson(
+                "{\"resourceType\":\"Condition\",\"patientPersonnummer\":\"197001011234\",\"description\":\"Asthma\"}",
+                "{\"resourceType\":\"Condition\",\"patientPersonnummer\":\"197001011234\",\"description\":\"Eczema\"}"
+        ));
+
+        // Assert
+        assertThat(result.failed()).isEqualTo(2);
+        assertThat(result.errors()).singleElement().asString().contains("Lines 1-2 failed");
+        verify(hapiClientService, times(3)).createInTransaction(anyList(), anyList());
+    }
+
+    @Test
+    void importNdjson_shouldNotRetry_whenFhirRejectsChunk() throws Exception {
+        // Arrange
+        when(fhirLookupService.findPatientIdsByPersonnummer(anyCollection()))
+                .thenReturn(Map.of("197001011234", "98765"));
+        when(fhirLookupService.findPractitionerIdsByPersonnummer(anyCollection())).thenReturn(Map.of());
+        when(hapiClientService.createInTransaction(anyList(), anyList()))
+                .thenThrow(new UnprocessableEntityException("HTTP 422 Unprocessable Entity"));
+
+        // Act
+        ImportStatusDTO result = importService.importNdjson(ndjson(
+                "{\"resourceType\":\"Condition\",\"patientPersonnummer\":\"197001011234\",\"description\":\"Asthma\"}"
+        ));
+
+        // Assert
+        assertThat(result.failed()).isEqualTo(1);
+        verify(hapiClientService, times(1)).createInTransaction(anyList(), anyList());
+    }
+
+    // HELPER METHODS
+
+    private InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+package com.journalSystem.clinical_service.service;
+
+import com.journalSystem.clinical_service.dto.PatientDTO;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class PatientSearchIndexTest {
+
+    @Mock
+    private HapiClientService hapiClientService;
+
+    private PatientSearchIndex patientSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        patientSearchIndex = new PatientSearchIndex(hapiClientService);
+        patientSearchIndex.index(List.of(
+                createTestPatient("1", "Anna", "Svensson", "197001011234"),
+                createTestPatient("2", "Erik", "Johansson", "19850202-5678"),
+                createTestPatient("3", "Johan", "Berg", "200012121234")
+        ));
+    }
+
+    @Test
+    void search_shouldFindPatientByNamePrefix() {
+        // Act
+        List<PatientDTO> result = patientSearchIndex.search("joh", 10);
+
+        // Assert
+        assertThat(result).extracting(PatientDTO::id).containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    @Test
+    void search_shouldFindPatientByFullPersonnummer_withOrWithoutDash() {
+        // Act
+        List<PatientDTO> withoutDash = patientSearchIndex.search("198502025678", 10);
+        List<PatientDTO> withDash = patientSearchIndex.search("19700101-1234", 10);
+
+        // Assert
+        assertThat(withoutDash).extracting(PatientDTO::id).containsExactly(2L);
+        assertThat(withDash).extracting(PatientDTO::id).containsExactly(1L);
+    }
+
+    @Test
+    void search_shouldFindPatientByPartialPersonnummer() {
+        // Act
+        List<PatientDTO> lastFour = patientSearchIndex.search("1234", 10);
+        List<PatientDTO> middle = patientSearchIndex.search("0202", 10);
+
+        // Assert
+        assertThat(lastFour).extracting(PatientDTO::id).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(middle).extracting(PatientDTO::id).containsExactly(2L);
+    }
+
+    @Test
+    void search_shouldCombineNameAndPersonnummerTokens() {
+        // Act
+        List<PatientDTO> result = patientSearchIndex.search("berg 1234", 10);
+
+        // Assert
+        assertThat(result).extracting(PatientDTO::id).containsExactly(3L);
+    }
+
+    @Test
+    void search_shouldApplyLimit() {
+        // Act
+        List<PatientDTO> result = patientSearchIndex.search("1", 1);
+
+        // Assert
+        assertThat(result).hasSize(1);
+    }
+
+    @Test
+    void search_shouldReturnEmptyList_whenQueryIsBlank() {
+        assertThat(patientSearchIndex.search("  ", 10)).isEmpty();
+    }
+
+    // HELPER METHODS
+
+    private Patient createTestPatient(String id, String firstName, String lastName, String personnummer) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        patient.addName().setFamily(lastName).addGiven(firstName);
+        patient.addIdentifier().setSystem("http://electronichealth.se/identifier/personnummer").setValue(personnummer);
+        return patient;
+    }
+}
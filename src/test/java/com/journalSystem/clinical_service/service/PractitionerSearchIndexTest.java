@@ -0,0 +1,103 @@
+package com.journalSystem.clinical_service.service;
+
+import com.journalSystem.clinical_service.dto.PractitionerDTO;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class PractitionerSearchIndexTest {
+
+    @Mock
+    private HapiClientService hapiClientService;
+
+    private PractitionerSearchIndex practitionerSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        practitionerSearchIndex = new PractitionerSearchIndex(hapiClientService);
+        practitionerSearchIndex.index(List.of(
+                createTestPractitioner("1", "Anna", "Svensson"),
+                createTestPractitioner("2", "Sven", "Andersson"),
+                createTestPractitioner("3", "Erik", "Svensk"),
+                createTestPractitioner("4", "Åsa", "Öberg")
+        ));
+    }
+
+    @Test
+    void search_shouldNotBeReady_beforeFirstLoad() {
+        assertThat(new PractitionerSearchIndex(hapiClientService).isReady()).isFalse();
+    }
+
+    @Test
+    void search_shouldMatchGivenAndFamilyNamePrefixes() {
+        // Act
+        List<PractitionerDTO> result = practitionerSearchIndex.search("sven", 10);
+
+        // Assert
+        assertThat(result).extracting(PractitionerDTO::id).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    void search_shouldRankExactMatchFirst_thenFamilyBeforeGiven() {
+        // Act
+        List<PractitionerDTO> result = practitionerSearchIndex.search("sven", 10);
+
+        // Assert
+        assertThat(result).extracting(PractitionerDTO::id).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void search_shouldRequireEveryToken() {
+        // Act
+        List<PractitionerDTO> result = practitionerSearchIndex.search("anna sv", 10);
+
+        // Assert
+        assertThat(result).extracting(PractitionerDTO::id).containsExactly(1L);
+    }
+
+    @Test
+    void search_shouldIgnoreDiacritics() {
+        // Act
+        List<PractitionerDTO> result = practitionerSearchIndex.search("obe", 10);
+
+        // Assert
+        assertThat(result).extracting(PractitionerDTO::lastName).containsExactly("Öberg");
+    }
+
+    @Test
+    void search_shouldApplyLimit() {
+        // Act
+        List<PractitionerDTO> result = practitionerSearchIndex.search("s", 2);
+
+        // Assert
+        assertThat(result).hasSize(2);
+    }
+
+    @Test
+    void index_shouldReplaceChangedPractitioner() {
+        // Act
+        practitionerSearchIndex.index(List.of(createTestPractitioner("1", "Anna", "Lind")));
+
+        // Assert
+        assertThat(practitionerSearchIndex.search("svensson", 10)).isEmpty();
+        assertThat(practitionerSearchIndex.search("lind", 10)).extracting(PractitionerDTO::id).containsExactly(1L);
+        assertThat(practitionerSearchIndex.size()).isEqualTo(4);
+    }
+
+    // HELPER METHODS
+
+    private Practitioner createTestPractitioner(String id, String firstName, String lastName) {
+        Practitioner practitioner = new Practitioner();
+        practitioner.setId(id);
+        practitioner.addName().setFamily(lastName).addGiven(firstName);
+        return practitioner;
+    }
+}
@@ -0,0 +1,76 @@
+package com.journalSystem.clinical_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefixIndexTest {
+
+    @Test
+    void forEachMatch_shouldReturnAllKeysWithPrefixInOrder() {
+        // Arrange
+        PrefixIndex<Integer> index = PrefixIndex.<Integer>builder()
+                .add("andersson", 1)
+                .add("berg", 2)
+                .add("anna", 3)
+                .add("andreas", 4)
+                .add("bengt", 5)
+                .build();
+
+        // Act
+        List<Integer> matches = new ArrayList<>();
+        index.forEachMatch("and", (key, value) -> matches.add(value));
+
+        // Assert
+        assertThat(matches).containsExactly(1, 4);
+    }
+
+    @Test
+    void forEachMatch_shouldReturnNothing_whenNoKeyHasPrefix() {
+        // Arrange
+        PrefixIndex<Integer> index = PrefixIndex.<Integer>builder()
+                .add("berg", 1)
+                .build();
+
+        // Act
+        List<Integer> matches = new ArrayList<>();
+        index.forEachMatch("zz", (key, value) -> matches.add(value));
+        index.forEachMatch("a", (key, value) -> matches.add(value));
+
+        // Assert
+        assertThat(matches).isEmpty();
+    }
+
+    @Test
+    void forEachMatch_shouldKeepDuplicateKeys() {
+        // Arrange
+        PrefixIndex<Integer> index = PrefixIndex.<Integer>builder()
+                .add("lind", 1)
+                .add("lind", 2)
+                .build();
+
+        // Act
+        List<Integer> matches = new ArrayList<>();
+        index.forEachMatch("lind", (key, value) -> matches.add(value));
+
+        // Assert
+        assertThat(matches).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void tokenize_shouldNormalizeCaseAndDiacritics() {
+        // Act
+        List<String> tokens = PrefixIndex.tokenize("  Åsa-Öberg  Lindén ");
+
+        // Assert
+        assertThat(tokens).containsExactly("asa", "oberg", "linden");
+    }
+
+    @Test
+    void tokenize_shouldReturnEmptyList_whenTextIsNull() {
+        assertThat(PrefixIndex.tokenize(null)).isEmpty();
+    }
+}
@@ -0,0 +1,161 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.KeyValuePair;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowFhirQueryLogTest {
+
+    private static final String BUNDLE = """
+            {"resourceType":"Bundle","type":"searchset","total":2,"link":[{"relation":"self","url":"x"}],
+             "entry":[{"resource":{"resourceType":"Patient","id":"p1","name":[{"family":"A"}]}},
+                      {"resource":{"resourceType":"Patient","id":"p2"}}]}""";
+
+    private final Logger slowQueryLogger = (Logger) LoggerFactory.getLogger("clinical.fhir.slow-queries");
+    private final ListAppender<ILoggingEvent> logged = new ListAppender<>();
+    private HttpServer fhir;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logged.start();
+        slowQueryLogger.addAppender(logged);
+
+        fhir = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        fhir.createContext("/fhir/Patient", exchange -> {
+            byte[] body = BUNDLE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fhir.start();
+        baseUrl = "http://127.0.0.1:" + fhir.getAddress().getPort() + "/fhir";
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowQueryLogger.detachAppender(logged);
+        fhir.stop(0);
+    }
+
+    @Test
+    void clientResponse_shouldLogQuerySizeAndEntries_andLeaveBodyForHapi() {
+        // Arrange
+        HapiClientService hapiClient = hapiClient(new SlowFhirQueryLog(true, 0, 10));
+
+        // Act
+        Bundle bundle = searchPatients(hapiClient);
+
+        // Assert
+        assertThat(bundle.getEntry()).hasSize(2);
+        assertThat(logged.list).hasSize(1);
+        Map<String, Object> fields = fields(logged.list.get(0));
+        assertThat((String) fields.get("url")).startsWith(baseUrl + "/Patient?identifier=");
+        assertThat(fields).containsEntry("method", "GET")
+                .containsEntry("status", 200)
+                .containsEntry("entries", 2)
+                .containsEntry("bytes", BUNDLE.getBytes(StandardCharsets.UTF_8).length)
+                .containsEntry("endpoint", "-");
+    }
+
+    @Test
+    void clientResponse_shouldRateLimitEntries() {
+        // Arrange
+        HapiClientService hapiClient = hapiClient(new SlowFhirQueryLog(true, 0, 1));
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertThat(searchPatients(hapiClient).getEntry()).hasSize(2);
+        }
+
+        // Assert
+        assertThat(logged.list).hasSize(1);
+    }
+
+    @Test
+    void clientResponse_shouldIgnoreFastCalls() {
+        // Arrange
+        HapiClientService hapiClient = hapiClient(new SlowFhirQueryLog(true, 60_000, 10));
+
+        // Act
+        searchPatients(hapiClient);
+
+        // Assert
+        assertThat(logged.list).isEmpty();
+    }
+
+    @Test
+    void record_shouldLogFastJsonSearches() {
+        // Arrange
+        SlowFhirQueryLog slowFhirQueryLog = new SlowFhirQueryLog(true, 0, 10);
+        FhirJsonSearchService fastJson = new FhirJsonSearchService(null,
+                new FhirClientMetrics(new SimpleMeterRegistry(), baseUrl), slowFhirQueryLog, baseUrl, true);
+
+        // Act
+        assertThat(fastJson.getAllPatients()).hasSize(2);
+
+        // Assert
+        assertThat(logged.list).hasSize(1);
+        Map<String, Object> fields = fields(logged.list.get(0));
+        assertThat(fields).containsEntry("url", baseUrl + "/Patient")
+                .containsEntry("method", "GET")
+                .containsEntry("status", 200)
+                .containsEntry("entries", 2)
+                .containsEntry("bytes", (long) BUNDLE.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void countEntries_shouldOnlyCountBundleEntries() {
+        assertThat(SlowFhirQueryLog.countEntries(BUNDLE.getBytes(StandardCharsets.UTF_8))).isEqualTo(2);
+        assertThat(SlowFhirQueryLog.countEntries("{\"resourceType\":\"Bundle\",\"total\":0}".getBytes(StandardCharsets.UTF_8))).isZero();
+        assertThat(SlowFhirQueryLog.countEntries("{\"resourceType\":\"Patient\",\"id\":\"p1\"}".getBytes(StandardCharsets.UTF_8))).isEqualTo(-1);
+        assertThat(SlowFhirQueryLog.countEntries("<Bundle/>".getBytes(StandardCharsets.UTF_8))).isEqualTo(-1);
+    }
+
+    // HELPER METHODS
+
+    private HapiClientService hapiClient(SlowFhirQueryLog slowFhirQueryLog) {
+        HapiClientService hapiClient = new HapiClientService(baseUrl, new IdempotencyCache(10, 60_000),
+                new FhirClientMetrics(new SimpleMeterRegistry(), baseUrl), slowFhirQueryLog);
+        hapiClient.getContext().getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+        return hapiClient;
+    }
+
+    private static Bundle searchPatients(HapiClientService hapiClient) {
+        return hapiClient.getClient()
+                .search()
+                .forResource(Patient.class)
+                .where(Patient.IDENTIFIER.exactly().identifier("19900101-1234"))
+                .returnBundle(Bundle.class)
+                .execute();
+    }
+
+    private static Map<String, Object> fields(ILoggingEvent event) {
+        Map<String, Object> fields = new HashMap<>();
+        for (KeyValuePair pair : event.getKeyValuePairs()) {
+            fields.put(pair.key, pair.value);
+        }
+        return fields;
+    }
+}
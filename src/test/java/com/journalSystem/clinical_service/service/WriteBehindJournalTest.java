@@ -0,0 +1,108 @@
+package com.journalSystem.clinical_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteBehindJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void append_shouldMakeConcurrentRecordsDurable() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("journal");
+        WriteBehindJournal journal = new WriteBehindJournal(path, Long.MAX_VALUE, objectMapper);
+
+        // Act
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(journal.append(accepted("id-" + i)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        journal.close();
+
+        // Assert
+        assertThat(Files.readAllLines(path)).hasSize(100);
+    }
+
+    @Test
+    void openEntries_shouldRecoverOnlyUncompletedEntries_afterRestart() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("journal");
+        WriteBehindJournal journal = new WriteBehindJournal(path, Long.MAX_VALUE, objectMapper);
+        journal.append(accepted("a")).get(5, TimeUnit.SECONDS);
+        journal.append(accepted("b")).get(5, TimeUnit.SECONDS);
+        journal.append(accepted("c")).get(5, TimeUnit.SECONDS);
+        journal.append(WriteBehindJournal.JournalRecord.completed("a", "123")).get(5, TimeUnit.SECONDS);
+        journal.append(WriteBehindJournal.JournalRecord.abandoned("c", "Server error")).get(5, TimeUnit.SECONDS);
+        journal.close();
+
+        // Act
+        WriteBehindJournal reopened = new WriteBehindJournal(path, Long.MAX_VALUE, objectMapper);
+
+        // Assert
+        assertThat(reopened.openEntries()).extracting(WriteBehindJournal.JournalRecord::id).containsExactly("b");
+        assertThat(reopened.openEntries().get(0).payload().get("patientPersonnummer").asText()).isEqualTo("197001011234");
+        assertThat(Files.readAllLines(path)).hasSize(1);
+        reopened.close();
+    }
+
+    @Test
+    void openEntries_shouldIgnoreTornLastLine() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("journal");
+        WriteBehindJournal journal = new WriteBehindJournal(path, Long.MAX_VALUE, objectMapper);
+        journal.append(accepted("a")).get(5, TimeUnit.SECONDS);
+        journal.close();
+        Files.writeString(path, "{\"op\":\"ACCEPTED\",\"id\":\"b\",\"ty", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // Act
+        WriteBehindJournal reopened = new WriteBehindJournal(path, Long.MAX_VALUE, objectMapper);
+
+        // Assert
+        assertThat(reopened.openEntries()).extracting(WriteBehindJournal.JournalRecord::id).containsExactly("a");
+        reopened.close();
+    }
+
+    @Test
+    void append_shouldCompactJournal_whenThresholdExceeded() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("journal");
+        WriteBehindJournal journal = new WriteBehindJournal(path, 1, objectMapper);
+
+        // Act
+        journal.append(accepted("a")).get(5, TimeUnit.SECONDS);
+        journal.append(WriteBehindJournal.JournalRecord.completed("a", "123")).get(5, TimeUnit.SECONDS);
+        journal.append(accepted("b")).get(5, TimeUnit.SECONDS);
+        journal.close();
+
+        // Assert
+        List<String> lines = Files.readAllLines(path);
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0)).contains("\"id\":\"b\"");
+    }
+
+    // HELPER METHODS
+
+    private WriteBehindJournal.JournalRecord accepted(String id) {
+        HapiObservationService.NewObservation payload = new HapiObservationService.NewObservation(
+                "197001011234", null, "Pulse", "72", "bpm", new Date());
+        return WriteBehindJournal.JournalRecord.accepted(id, "OBSERVATION", objectMapper.valueToTree(payload), null);
+    }
+}
@@ -0,0 +1,231 @@
+package com.journalSystem.clinical_service.service;
+
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private HapiObservationService hapiObservationService;
+
+    @Mock
+    private HapiConditionService hapiConditionService;
+
+    @Mock
+    private HapiEncounterService hapiEncounterService;
+
+    @TempDir
+    Path tempDir;
+
+    private WriteBehindService writeBehindService;
+
+    @BeforeEach
+    void setUp() {
+        writeBehindService = new WriteBehindService(hapiObservationService, hapiConditionService, hapiEncounterService);
+        ReflectionTestUtils.setField(writeBehindService, "enabled", true);
+        ReflectionTestUtils.setField(writeBehindService, "journalPath", tempDir.resolve("journal").toString());
+        ReflectionTestUtils.setField(writeBehindService, "drainers", 1);
+        ReflectionTestUtils.setField(writeBehindService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(writeBehindService, "retryBackoffMs", 50L);
+    }
+
+    @Test
+    void accept_shouldDeliverObservation_keyedByTrackingId_whenNoKeyGiven() throws Exception {
+        // Arrange
+        writeBehindService.start();
+        Date effectiveDate = new Date(1_700_000_000_000L);
+        when(hapiObservationService.createObservation(
+                eq("197001011234"), isNull(), eq("Pulse"), eq("72"), eq("bpm"), eq(effectiveDate), anyString()))
+                .thenReturn(withId(new Observation(), "obs-1"));
+
+        // Act
+        String trackingId = writeBehindService.accept(WriteBehindService.WriteType.OBSERVATION,
+                new HapiObservationService.NewObservation("197001011234", null, "Pulse", "72", "bpm", effectiveDate),
+                null);
+
+        // Assert
+        verify(hapiObservationService, timeout(5_000)).createObservation(
+                "197001011234", null, "Pulse", "72", "bpm", effectiveDate, trackingId);
+        writeBehindService.stop();
+        assertThat(journalOps(trackingId)).containsExactly("ACCEPTED", "COMPLETED");
+    }
+
+    @Test
+    void accept_shouldReplayWithClientKey() throws Exception {
+        // Arrange
+        writeBehindService.start();
+        Date recordedDate = new Date(1_700_000_000_000L);
+        when(hapiConditionService.createCondition("197001011234", "198001011234", "Asthma", recordedDate, "alice:key-1"))
+                .thenReturn(withId(new Condition(), "cond-1"));
+
+        // Act
+        String trackingId = writeBehindService.accept(WriteBehindService.WriteType.CONDITION,
+                new HapiConditionService.NewCondition("197001011234", "198001011234", "Asthma", recordedDate),
+                "alice:key-1");
+
+        // Assert
+        verify(hapiConditionService, timeout(5_000))
+                .createCondition("197001011234", "198001011234", "Asthma", recordedDate, "alice:key-1");
+        writeBehindService.stop();
+        assertThat(journalOps(trackingId)).containsExactly("ACCEPTED", "COMPLETED");
+    }
+
+    @Test
+    void replay_shouldRetryWithBackoff_whenFhirIsUnavailable() throws Exception {
+        // Arrange
+        writeBehindService.start();
+        List<Long> attempts = new ArrayList<>();
+        when(hapiEncounterService.createEncounter(anyString(), any(), any(Date.class), any(), anyString()))
+                .thenAnswer(invocation -> {
+                    attempts.add(System.nanoTime());
+                    if (attempts.size() < 3) {
+                        throw new InternalErrorException("FHIR server unavailable");
+                    }
+                    return withId(new Encounter(), "enc-1");
+                });
+
+        // Act
+        String trackingId = writeBehindService.accept(WriteBehindService.WriteType.ENCOUNTER,
+                new HapiEncounterService.NewEncounter("197001011234", null, new Date(), null), "key-1");
+
+        // Assert
+        verify(hapiEncounterService, timeout(5_000).times(3))
+                .createEncounter(anyString(), any(), any(Date.class), any(), eq("key-1"));
+        writeBehindService.stop();
+        assertThat(attempts.get(1) - attempts.get(0)).isGreaterThanOrEqualTo(50_000_000L);
+        assertThat(attempts.get(2) - attempts.get(1)).isGreaterThanOrEqualTo(100_000_000L);
+        assertThat(journalOps(trackingId)).containsExactly("ACCEPTED", "COMPLETED");
+    }
+
+    @Test
+    void replay_shouldAbandonWithoutRetry_whenPatientIsUnknown() throws Exception {
+        // Arrange
+        writeBehindService.start();
+        when(hapiEncounterService.createEncounter(anyString(), any(), any(Date.class), any(), anyString()))
+                .thenThrow(new ResourceNotFoundException("Patient not found with identifier or ID: 199901019999"));
+
+        // Act
+        String trackingId = writeBehindService.accept(WriteBehindService.WriteType.ENCOUNTER,
+                new HapiEncounterService.NewEncounter("199901019999", null, new Date(), null), null);
+
+        // Assert
+        verify(hapiEncounterService, timeout(5_000))
+                .createEncounter(anyString(), any(), any(Date.class), any(), anyString());
+        Thread.sleep(200);
+        writeBehindService.stop();
+        verify(hapiEncounterService, times(1))
+                .createEncounter(anyString(), any(), any(Date.class), any(), anyString());
+        assertThat(journalOps(trackingId)).containsExactly("ACCEPTED", "ABANDONED");
+    }
+
+    @Test
+    void replay_shouldAbandon_afterMaxAttempts() throws Exception {
+        // Arrange
+        writeBehindService.start();
+        when(hapiObservationService.createObservation(anyString(), any(), anyString(), anyString(), anyString(),
+                any(Date.class), anyString()))
+                .thenThrow(new InternalErrorException("FHIR server unavailable"));
+
+        // Act
+        String trackingId = writeBehindService.accept(WriteBehindService.WriteType.OBSERVATION,
+                new HapiObservationService.NewObservation("197001011234", null, "Pulse", "72", "bpm", new Date()),
+                null);
+
+        // Assert
+        verify(hapiObservationService, timeout(5_000).times(3)).createObservation(anyString(), any(), anyString(),
+                anyString(), anyString(), any(Date.class), anyString());
+        Thread.sleep(200);
+        writeBehindService.stop();
+        assertThat(journalOps(trackingId)).containsExactly("ACCEPTED", "ABANDONED");
+    }
+
+    @Test
+    void stop_shouldNotWaitForPendingRetries() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(writeBehindService, "retryBackoffMs", 60_000L);
+        writeBehindService.start();
+        when(hapiEncounterService.createEncounter(anyString(), any(), any(Date.class), any(), anyString()))
+                .thenThrow(new InternalErrorException("FHIR server unavailable"));
+        String trackingId = writeBehindService.accept(WriteBehindService.WriteType.ENCOUNTER,
+                new HapiEncounterService.NewEncounter("197001011234", null, new Date(), null), null);
+        verify(hapiEncounterService, timeout(5_000))
+                .createEncounter(anyString(), any(), any(Date.class), any(), anyString());
+        long start = System.nanoTime();
+
+        // Act
+        writeBehindService.stop();
+
+        // Assert: the retry is dropped, and the entry stays open for the next start
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(2));
+        assertThat(journalOps(trackingId)).containsExactly("ACCEPTED");
+    }
+
+    @Test
+    void start_shouldReplayOpenEntries_fromPreviousRun() throws Exception {
+        // Arrange: an entry accepted before a crash, never completed
+        WriteBehindJournal journal = new WriteBehindJournal(tempDir.resolve("journal"), Long.MAX_VALUE, objectMapper);
+        Date recordedDate = new Date(1_700_000_000_000L);
+        journal.append(WriteBehindJournal.JournalRecord.accepted("tracking-1", "CONDITION",
+                objectMapper.valueToTree(new HapiConditionService.NewCondition("197001011234", null, "Asthma", recordedDate)),
+                null)).get();
+        journal.close();
+        when(hapiConditionService.createCondition("197001011234", null, "Asthma", recordedDate, "tracking-1"))
+                .thenReturn(withId(new Condition(), "cond-1"));
+
+        // Act
+        writeBehindService.start();
+
+        // Assert
+        verify(hapiConditionService, timeout(5_000))
+                .createCondition("197001011234", null, "Asthma", recordedDate, "tracking-1");
+        writeBehindService.stop();
+        assertThat(journalOps("tracking-1")).containsExactly("ACCEPTED", "COMPLETED");
+    }
+
+    // HELPER METHODS
+
+    private static <T extends org.hl7.fhir.r4.model.Resource> T withId(T resource, String id) {
+        resource.setId(id);
+        return resource;
+    }
+
+    private List<String> journalOps(String trackingId) throws IOException {
+        List<String> ops = new ArrayList<>();
+        for (String line : Files.readAllLines(tempDir.resolve("journal"))) {
+            WriteBehindJournal.JournalRecord record = objectMapper.readValue(line, WriteBehindJournal.JournalRecord.class);
+            if (trackingId.equals(record.id())) {
+                ops.add(record.op());
+            }
+        }
+        return ops;
+    }
+}